@@ -0,0 +1,119 @@
+package se.lnu.cs.doris.git;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.lnu.cs.doris.benchmark.SyntheticRepository;
+import se.lnu.cs.doris.global.Utilities;
+
+/**
+ * Measures the tree materialization of Cloner.cloneCommit, writing every
+ * file of a commit from the object database to a new directory.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClonerBenchmark {
+
+	@Param({ "100", "1000" })
+	public int files;
+
+	@Param({ "4096" })
+	public int fileSize;
+
+	private File m_dir;
+	private Repository m_repository;
+	private GitRepository m_gitRepository;
+	private RevCommit m_commit;
+	private File m_mineDir;
+	private int m_run = 0;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		this.m_dir = Files.createTempDirectory("doris-cloner").toFile();
+		SyntheticRepository synthetic = new SyntheticRepository();
+		synthetic.setCommits(1);
+		synthetic.setFiles(this.files);
+		synthetic.setFileSize(this.fileSize);
+		File gitDir = synthetic.create(this.m_dir);
+
+		this.m_repository = new FileRepositoryBuilder().setGitDir(gitDir).build();
+		//Resume keeps the constructor from asking about an existing target.
+		this.m_gitRepository = new GitRepository("file://" + gitDir.getAbsolutePath(), this.m_dir.getAbsolutePath(),
+				null, null, null, 0, true, true);
+
+		try (RevWalk rw = new RevWalk(this.m_repository)) {
+			this.m_commit = rw.parseCommit(this.m_repository.resolve("HEAD"));
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void newDirectory() {
+		this.m_mineDir = new File(this.m_dir, "snapshot" + this.m_run++);
+		this.m_mineDir.mkdir();
+	}
+
+	@TearDown(Level.Invocation)
+	public void deleteDirectory() {
+		Utilities.deleteDirectory(this.m_mineDir);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.m_repository.close();
+		Utilities.deleteDirectory(this.m_dir);
+	}
+
+	@Benchmark
+	public File materialize() throws Exception {
+		GitRepository.Cloner cloner = this.m_gitRepository.new Cloner(this.m_commit, this.m_mineDir.getName(), 0);
+
+		try (ObjectReader reader = this.m_repository.newObjectReader()) {
+			cloner.materialize(reader, this.m_mineDir);
+		}
+
+		return this.m_mineDir;
+	}
+}
@@ -0,0 +1,148 @@
+package se.lnu.cs.doris.git;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.lnu.cs.doris.benchmark.SyntheticRepository;
+import se.lnu.cs.doris.global.Utilities;
+
+/**
+ * Measures GitLogger.addNode on logs that already hold logSize commits,
+ * and continuing such a log as --resume and --update do.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GitLoggerBenchmark {
+
+	private static final String REPO_NAME = "benchmark";
+
+	@Param({ "0", "10000", "100000" })
+	public int logSize;
+
+	private File m_dir;
+	private RevCommit m_commit;
+	private GitLogger m_logger;
+	private int m_id;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		this.m_dir = Files.createTempDirectory("doris-logger").toFile();
+		SyntheticRepository synthetic = new SyntheticRepository();
+		synthetic.setCommits(2);
+		synthetic.setFiles(1);
+		File gitDir = synthetic.create(this.m_dir);
+
+		try (Repository repository = new FileRepositoryBuilder().setGitDir(gitDir).build();
+				RevWalk rw = new RevWalk(repository)) {
+			this.m_commit = rw.parseCommit(repository.resolve("HEAD"));
+			//Parse the parents and identities up front, as mine() does.
+			rw.parseHeaders(this.m_commit.getParent(0));
+		}
+
+		GitLogger logger = new GitLogger(this.m_dir.getAbsolutePath(), REPO_NAME);
+		for (this.m_id = 0; this.m_id < this.logSize; this.m_id++) {
+			logger.addNode(Integer.toString(this.m_id), this.m_commit);
+		}
+		logger.close();
+
+		this.m_logger = new GitLogger(this.m_dir.getAbsolutePath(), REPO_NAME, true);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		this.m_logger.close();
+		Utilities.deleteDirectory(this.m_dir);
+	}
+
+	@Benchmark
+	public void addNode() throws Exception {
+		this.m_logger.addNode(Integer.toString(this.m_id++), this.m_commit);
+	}
+
+	/**
+	 * Separate state so the log continued is the one written in setUp
+	 * and not one grown by addNode.
+	 */
+	@State(Scope.Benchmark)
+	public static class ExistingLog {
+
+		@Param({ "0", "10000", "100000" })
+		public int logSize;
+
+		private File m_dir;
+
+		@Setup(Level.Trial)
+		public void setUp() throws Exception {
+			this.m_dir = Files.createTempDirectory("doris-logger").toFile();
+			SyntheticRepository synthetic = new SyntheticRepository();
+			synthetic.setCommits(1);
+			synthetic.setFiles(1);
+			File gitDir = synthetic.create(this.m_dir);
+			RevCommit commit;
+
+			try (Repository repository = new FileRepositoryBuilder().setGitDir(gitDir).build();
+					RevWalk rw = new RevWalk(repository)) {
+				commit = rw.parseCommit(repository.resolve("HEAD"));
+			}
+
+			GitLogger logger = new GitLogger(this.m_dir.getAbsolutePath(), REPO_NAME);
+			for (int i = 0; i < this.logSize; i++) {
+				logger.addNode(Integer.toString(i), commit);
+			}
+			logger.close();
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			Utilities.deleteDirectory(this.m_dir);
+		}
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void continueLog(ExistingLog log) throws Exception {
+		new GitLogger(log.m_dir.getAbsolutePath(), REPO_NAME, true).close();
+	}
+}
@@ -0,0 +1,84 @@
+package se.lnu.cs.doris.global;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures Utilities.deleteDirectory on a snapshot sized directory tree,
+ * as used when a mining run is restarted or a snapshot is removed.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DeleteDirectoryBenchmark {
+
+	@Param({ "100", "1000" })
+	public int files;
+
+	private File m_dir;
+	private File m_tree;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		this.m_dir = Files.createTempDirectory("doris-delete").toFile();
+	}
+
+	@Setup(Level.Iteration)
+	public void createTree() throws Exception {
+		byte[] content = new byte[1024];
+		this.m_tree = new File(this.m_dir, "snapshot");
+
+		for (int f = 0; f < this.files; f++) {
+			File file = new File(this.m_tree, "pkg" + (f % 10) + "/Source" + f + ".java");
+			file.getParentFile().mkdirs();
+			Files.write(file.toPath(), content);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		Utilities.deleteDirectory(this.m_dir);
+	}
+
+	@Benchmark
+	public Boolean deleteDirectory() {
+		return Utilities.deleteDirectory(this.m_tree);
+	}
+}
@@ -0,0 +1,85 @@
+package se.lnu.cs.doris.metrics;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.lnu.cs.doris.benchmark.SyntheticRepository;
+
+/**
+ * Measures the SLOC count of a single source file, both from memory as
+ * the tree counter reads blobs and from disk as snapshots are counted.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LineCounterBenchmark {
+
+	@Param({ "1024", "65536", "1048576" })
+	public int fileSize;
+
+	private LineCounter m_lineCounter;
+	private byte[] m_source;
+	private Path m_file;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		this.m_lineCounter = new LineCounter(null);
+		this.m_source = SyntheticRepository.javaSource(new Random(42), this.fileSize);
+		this.m_file = Files.createTempFile("doris-counter", ".java");
+		Files.write(this.m_file, this.m_source);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		Files.deleteIfExists(this.m_file);
+	}
+
+	@Benchmark
+	public LineCount countBytes() {
+		return this.m_lineCounter.count("Source.java", this.m_source);
+	}
+
+	@Benchmark
+	public LineCount countFile() throws Exception {
+		return this.m_lineCounter.count(this.m_file);
+	}
+}
@@ -1,14 +1,17 @@
 package com.gingerswede.source.metrics;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.Writer;
+import java.util.Map;
 
-import se.lnu.cs.doris.global.Utilities;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import se.lnu.cs.doris.git.CommitRange;
+import se.lnu.cs.doris.git.MinedCommits;
+import se.lnu.cs.doris.metrics.LineCount;
+import se.lnu.cs.doris.metrics.MetricFormat;
+import se.lnu.cs.doris.metrics.MetricSink;
+import se.lnu.cs.doris.metrics.SnapshotCounter;
+import se.lnu.cs.doris.metrics.SnapshotHistory;
 
 /**
  * This file is a part of Doris
@@ -31,180 +34,87 @@ import se.lnu.cs.doris.global.Utilities;
 public class SLOC {
 
 	private File m_mainDir;
-	private final String m_avoid = ".git";
-	private int m_baseValueTotal = -1;
-	private int m_baseValueCode = -1;
-	private int m_baseValueComments = -1;
 	private String m_projectName;
 	private String[] m_fileEndings;
+	private TreeFilter m_filter = null;
+	private String[] m_formats = null;
+	private CommitRange m_range = null;
 
 	public SLOC(String path, String[] fileEndings, String projectName) {
 		this(new File(path), fileEndings, projectName);
 	}
 
+	/**
+	 * Constructor for a mining result whose files were filtered, so the
+	 * same files are counted when reading from the .git file.
+	 */
+	public SLOC(String path, String[] fileEndings, String projectName, TreeFilter filter) {
+		this(new File(path), fileEndings, projectName);
+		this.m_filter = filter;
+	}
+
+	/**
+	 * Constructor writing the metrics in other formats than csv.
+	 * @param formats Names of the formats, e.g. csv, jsonl and bin.
+	 */
+	public SLOC(String path, String[] fileEndings, String projectName, TreeFilter filter, String[] formats) {
+		this(path, fileEndings, projectName, filter);
+		this.m_formats = formats;
+	}
+
+	/**
+	 * Constructor for a mining result of a part of the history, so the
+	 * same commits are counted when reading from the .git file.
+	 * @param range Commits that were mined.
+	 */
+	public SLOC(String path, String[] fileEndings, String projectName, TreeFilter filter, String[] formats, CommitRange range) {
+		this(path, fileEndings, projectName, filter, formats);
+		this.m_range = range;
+	}
+
 	public SLOC(File dir, String[] fileEndings, String projectName) {
 		this.m_mainDir = dir;
 		this.m_projectName = projectName;
 		this.m_fileEndings = fileEndings;
 	}
 
+	/**
+	 * Count the lines of every commit and write them to the metric files,
+	 * a csv file unless other formats are set. Commits already in an
+	 * existing file are not counted again.
+	 * @throws Exception
+	 */
 	public void generateCSV() throws Exception {
 		if (this.m_mainDir == null) {
 			throw new Exception("Base directory not set.");
 		}
 		
-		File csvFile = new File(this.m_mainDir, this.m_projectName + ".csv");
-
-		for (File f : this.m_mainDir.listFiles()) {
-			if (f.isDirectory() && !f.getName().contains(this.m_avoid)) {
-
-				int commitNumber = Utilities.parseInt(f.getName());
-				int slocd = 0;
-				int slocmt = 0;
-				int sloct = 0;
-
-				for (File sd : f.listFiles()) {
-					if (!sd.getName().toLowerCase().contains(this.m_avoid)) {
-						slocd += this.countLines(sd, false);
-						slocmt += this.countLines(sd, true);
-						sloct += slocd + slocmt;
-					}
-				}
-
-				if (this.m_baseValueTotal < 0) {
-					this.m_baseValueTotal = sloct;
-					this.m_baseValueComments = slocmt;
-					this.m_baseValueCode = slocd;
-
-					sloct = 100;
-					slocmt = 100;
-					slocd = 100;
-				} else {
-					sloct = (int) ((double) sloct
-							/ (double) this.m_baseValueTotal * 100);
-					slocmt = (int) ((double) slocmt
-							/ (double) this.m_baseValueComments * 100);
-					slocd = (int) ((double) slocd
-							/ (double) this.m_baseValueCode * 100);
-				}
-				
-				String appendString = String.format("%d;100;%s;%s;%s\n", commitNumber, sloct, slocd, slocmt);
-				this.appendString(appendString, csvFile);
-			}
-		}
-	}
-
-	private void appendString(String appendString, File csvFile) {
-		if (!csvFile.exists()) {
-			this.createCSVFile(csvFile);
-		}
-		
-		Writer writer = null;
-		
-		try {
-			writer = new BufferedWriter(new FileWriter(csvFile.getAbsolutePath(), true));
-			writer.append(appendString);
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} finally {
-			try {
-				writer.close();
-			} catch (IOException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
+		MinedCommits commits = MinedCommits.read(this.m_mainDir.getAbsolutePath(), this.m_projectName);
+
+		try (MetricSink sink = MetricFormat.open(this.m_mainDir, this.m_projectName, this.m_formats, true);
+				SnapshotHistory history = SnapshotHistory.open(this.m_mainDir, this.m_projectName, this.m_fileEndings, this.m_filter, this.m_range)) {
+			SnapshotCounter counter = new SnapshotCounter(this.m_fileEndings, history);
+			//Commits already written, e.g. from before an update of the mining.
+			Integer baseCommit = sink.getBaseCommit();
+			LineCount base = null;
+			
+			if (baseCommit != null) {
+				base = counter.count(new File(this.m_mainDir, baseCommit.toString()));
 			}
-		}
-	}
-
-	private void createCSVFile(File csvFile) {
-		Writer writer = null;
-		try {
-			csvFile.createNewFile();
-			writer = new BufferedWriter(new FileWriter(csvFile.getAbsolutePath(), true));
-			writer.append("Commit number;Base value;Total lines;Lines of source code;Lines of comments\n");
-		} catch (Exception e) {
-			e.printStackTrace();
-		} finally {
-			try {
-				writer.close();
-			} catch (IOException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
-		}
-	}
+			
+			//Counted in parallel, ordered by commit number.
+			for (Map.Entry<Integer, LineCount> commit : counter.count(this.m_mainDir, sink.getWritten()).entrySet()) {
+				int commitNumber = commit.getKey();
 
-	// TODO: Find decent api for getting sloc.
-	private int countLines(File file, Boolean countComments) throws Exception {
-		int sloc = 0;
-
-		if (file.isDirectory()) {
-			for (File f : file.listFiles()) {
-				sloc += this.countLines(f, countComments);
-			}
-		} else {
-
-			Boolean readFile = true;
-
-			if (this.m_fileEndings == null) {
-				readFile = true;
-			} else {
-				for (String s : this.m_fileEndings) {
-					if (file.getName().endsWith(s)) {
-						readFile = true;
-						break;
-					} else {
-						readFile = false;
-					}
+				if (base == null) {
+					base = commit.getValue();
 				}
-			}
 
-			if (readFile) {
-				BufferedReader br = new BufferedReader(new FileReader(file));
-				Boolean isEOF = true;
-
-				Boolean isComment;
-				Boolean isBlankLine;
-				Boolean inMultiLineComment = false;
-				Boolean prevMultiLineComment = inMultiLineComment;
-
-				do {
-					String t = br.readLine();
-
-					if (t != null) {
-						isComment = this.lineIsComment(t);
-						isBlankLine = t.trim().equals("");
-						prevMultiLineComment = inMultiLineComment;
-						inMultiLineComment = this.resolveMultiLineComment(t,
-								inMultiLineComment);
-
-						isEOF = false;
-						if (!isBlankLine
-								&& (!countComments ? !isComment
-										&& !prevMultiLineComment : isComment
-										&& prevMultiLineComment)) {
-							sloc++;
-						}
-					} else {
-						isEOF = true;
-					}
-
-				} while (!isEOF);
-
-				br.close();
+				sink.write(commitNumber,
+						(commits != null) ? commits.getCommit(commitNumber) : null,
+						(commits != null) ? commits.getCommitTime(commitNumber) : 0,
+						commit.getValue(), base);
 			}
 		}
-
-		return sloc;
-	}
-
-	private Boolean lineIsComment(String line) {
-		return (line.trim().startsWith("//") || (line.trim().startsWith("/*") && line
-				.contains("*/")));
-	}
-
-	private Boolean resolveMultiLineComment(String line, Boolean inCommentBlock) {
-		return (line.trim().startsWith("/*") || !line.contains("*/"));
 	}
 }
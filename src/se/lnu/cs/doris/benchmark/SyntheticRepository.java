@@ -0,0 +1,346 @@
+package se.lnu.cs.doris.benchmark;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+
+/**
+ * Builds bare git repositories of generated Java sources, so benchmarks
+ * run the same on every machine without network access. Objects are
+ * written straight to the object database, no work tree is used. The
+ * content only depends on the settings and the seed.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class SyntheticRepository {
+
+	public static final String NAME = "synthetic";
+
+	private static final int FILES_PER_DIRECTORY = 100;
+	private static final long START_TIME = 1000000000L;
+	private static final int SECONDS_BETWEEN_COMMITS = 3600;
+	private static final String[] WORDS = { "count", "commit", "tree", "blob", "file", "line", "snapshot",
+		"mine", "repository", "value", "index", "path", "writer", "reader", "result" };
+
+	private int m_commits = 100;
+	private int m_files = 100;
+	private int m_fileSize = 4096;
+	private double m_churn = 0.1;
+	private int m_mergeEvery = 0;
+	private long m_seed = 42;
+
+	private Random m_random;
+	private long m_bytes;
+
+	/**
+	 * Create the repository as <dir>/synthetic.git.
+	 * @param dir Directory to create the repository in.
+	 * @return The .git directory.
+	 * @throws Exception
+	 */
+	public File create(File dir) throws Exception {
+		File gitDir = new File(dir, NAME + Constants.DOT_GIT);
+		this.m_random = new Random(this.m_seed);
+		this.m_bytes = 0;
+
+		try (Repository repository = new FileRepositoryBuilder().setGitDir(gitDir).setBare().build()) {
+			repository.create(true);
+
+			try (ObjectInserter inserter = repository.newObjectInserter()) {
+				//Blob of every path, in the order of the tree entries.
+				TreeMap<String, ObjectId> files = new TreeMap<String, ObjectId>();
+				ObjectId head = null;
+
+				for (int f = 0; f < this.m_files; f++) {
+					files.put(path(f), this.insertBlob(inserter));
+				}
+
+				for (int c = 0; c < this.m_commits; c++) {
+					if (c == 0) {
+						head = this.insertCommit(inserter, files, time(c), "Commit 0", head);
+					} else if (this.m_mergeEvery > 0 && c % this.m_mergeEvery == 0) {
+						//A side branch forked from head is merged back without conflicts.
+						this.change(inserter, files);
+						ObjectId side = this.insertCommit(inserter, files, time(c) - SECONDS_BETWEEN_COMMITS / 2, "Side commit " + c, head);
+						head = this.insertCommit(inserter, files, time(c), "Merge commit " + c, head, side);
+					} else {
+						this.change(inserter, files);
+						head = this.insertCommit(inserter, files, time(c), "Commit " + c, head);
+					}
+				}
+
+				inserter.flush();
+
+				if (head != null) {
+					RefUpdate update = repository.updateRef(Constants.R_HEADS + Constants.MASTER);
+					update.setNewObjectId(head);
+					update.setForceUpdate(true);
+					update.update();
+				}
+			}
+		}
+
+		return gitDir;
+	}
+
+	/**
+	 * Rewrite the share of the files given by the churn.
+	 */
+	private void change(ObjectInserter inserter, TreeMap<String, ObjectId> files) throws Exception {
+		for (int f = 0; f < this.m_files; f++) {
+			if (this.m_random.nextDouble() < this.m_churn) {
+				files.put(path(f), this.insertBlob(inserter));
+			}
+		}
+	}
+
+	private ObjectId insertBlob(ObjectInserter inserter) throws Exception {
+		//Sizes vary between half and one and a half of the file size.
+		int size = this.m_fileSize / 2 + this.m_random.nextInt(this.m_fileSize + 1);
+		byte[] content = javaSource(this.m_random, size);
+		this.m_bytes += content.length;
+
+		return inserter.insert(Constants.OBJ_BLOB, content);
+	}
+
+	private ObjectId insertCommit(ObjectInserter inserter, TreeMap<String, ObjectId> files, long time,
+			String message, ObjectId... parents) throws Exception {
+		PersonIdent ident = new PersonIdent("Doris", "doris@example.com", time * 1000, 0);
+
+		CommitBuilder commit = new CommitBuilder();
+		commit.setTreeId(insertTree(inserter, files));
+		commit.setAuthor(ident);
+		commit.setCommitter(ident);
+		commit.setMessage(message);
+
+		for (ObjectId parent : parents) {
+			if (parent != null) {
+				commit.addParentId(parent);
+			}
+		}
+
+		return inserter.insert(commit);
+	}
+
+	/**
+	 * Write the root tree and one tree per directory. Paths are sorted, so
+	 * every directory is a run of consecutive entries.
+	 */
+	private static ObjectId insertTree(ObjectInserter inserter, TreeMap<String, ObjectId> files) throws Exception {
+		TreeMap<String, TreeFormatter> directories = new TreeMap<String, TreeFormatter>();
+
+		for (Map.Entry<String, ObjectId> file : files.entrySet()) {
+			String path = file.getKey();
+			int slash = path.indexOf('/');
+			String directory = path.substring(0, slash);
+			TreeFormatter tree = directories.get(directory);
+
+			if (tree == null) {
+				tree = new TreeFormatter();
+				directories.put(directory, tree);
+			}
+
+			tree.append(path.substring(slash + 1), FileMode.REGULAR_FILE, file.getValue());
+		}
+
+		TreeFormatter root = new TreeFormatter();
+		for (Map.Entry<String, TreeFormatter> directory : directories.entrySet()) {
+			root.append(directory.getKey(), FileMode.TREE, inserter.insert(directory.getValue()));
+		}
+
+		return inserter.insert(root);
+	}
+
+	private static long time(int c) {
+		return START_TIME + (long) c * SECONDS_BETWEEN_COMMITS;
+	}
+
+	/**
+	 * Path of a file. Directory and file names are zero padded so the
+	 * string order is the order git wants for tree entries.
+	 */
+	private static String path(int f) {
+		return String.format("pkg%04d/Source%07d.java", f / FILES_PER_DIRECTORY, f);
+	}
+
+	/**
+	 * Generate a Java source file with javadoc, line comments, block
+	 * comments, string literals and blank lines.
+	 * @param random Source of the content.
+	 * @param size Approximate size in bytes.
+	 * @return Content of the file.
+	 */
+	public static byte[] javaSource(Random random, int size) {
+		StringBuilder source = new StringBuilder(size + 256);
+		source.append("package se.lnu.cs.doris.generated;\n\nimport java.util.List;\n\n");
+		source.append("/**\n * Generated class.\n *\n * @author Doris\n */\npublic class Generated {\n\n");
+
+		while (source.length() < size) {
+			String name = word(random) + random.nextInt(1000);
+
+			source.append("\t/**\n\t * Get the ").append(word(random)).append(" of a ").append(word(random)).append(".\n");
+			source.append("\t * @return int\n\t */\n");
+			source.append("\tpublic int ").append(name).append("(List<String> ").append(word(random)).append(") {\n");
+			source.append("\t\tint ").append(word(random)).append(" = ").append(random.nextInt(100)).append(";\n");
+			source.append("\t\t//Skip the ").append(word(random)).append(" when it is empty.\n");
+			source.append("\t\tString s = \"/* not a comment */ ").append(word(random)).append("\";\n\n");
+
+			if (random.nextInt(4) == 0) {
+				source.append("\t\t/*\n\t\t * ").append(word(random)).append(" ").append(word(random)).append("\n\t\t */\n");
+			}
+
+			source.append("\t\treturn s.length(); // ").append(word(random)).append("\n\t}\n\n");
+		}
+
+		source.append("}\n");
+
+		return source.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String word(Random random) {
+		return WORDS[random.nextInt(WORDS.length)];
+	}
+
+	/**
+	 * Get the number of commits on the first parent line.
+	 * @return int
+	 */
+	public int getCommits() {
+		return this.m_commits;
+	}
+
+	/**
+	 * Set the number of commits on the first parent line. Merges add one
+	 * side branch commit each.
+	 * @param commits Number of commits.
+	 */
+	public void setCommits(int commits) {
+		this.m_commits = commits;
+	}
+
+	/**
+	 * Get the number of files.
+	 * @return int
+	 */
+	public int getFiles() {
+		return this.m_files;
+	}
+
+	/**
+	 * Set the number of files, spread over directories of 100 files.
+	 * @param files Number of files.
+	 */
+	public void setFiles(int files) {
+		this.m_files = files;
+	}
+
+	/**
+	 * Get the mean size of a file in bytes.
+	 * @return int
+	 */
+	public int getFileSize() {
+		return this.m_fileSize;
+	}
+
+	/**
+	 * Set the mean size of a file in bytes.
+	 * @param fileSize Size in bytes.
+	 */
+	public void setFileSize(int fileSize) {
+		this.m_fileSize = fileSize;
+	}
+
+	/**
+	 * Get the share of the files rewritten by every commit.
+	 * @return double
+	 */
+	public double getChurn() {
+		return this.m_churn;
+	}
+
+	/**
+	 * Set the share of the files rewritten by every commit.
+	 * @param churn Share between 0 and 1.
+	 */
+	public void setChurn(double churn) {
+		this.m_churn = churn;
+	}
+
+	/**
+	 * Get how often a commit is a merge.
+	 * @return int
+	 */
+	public int getMergeEvery() {
+		return this.m_mergeEvery;
+	}
+
+	/**
+	 * Make every n:th commit a merge of a side branch, 0 for no merges.
+	 * @param mergeEvery Commits between merges.
+	 */
+	public void setMergeEvery(int mergeEvery) {
+		this.m_mergeEvery = mergeEvery;
+	}
+
+	/**
+	 * Get the seed of the generated content.
+	 * @return long
+	 */
+	public long getSeed() {
+		return this.m_seed;
+	}
+
+	/**
+	 * Set the seed of the generated content.
+	 * @param seed Seed.
+	 */
+	public void setSeed(long seed) {
+		this.m_seed = seed;
+	}
+
+	/**
+	 * Get the number of commits created, side branch commits included.
+	 * @return int
+	 */
+	public int getTotalCommits() {
+		return this.m_commits + ((this.m_mergeEvery > 0 && this.m_commits > 0) ? (this.m_commits - 1) / this.m_mergeEvery : 0);
+	}
+
+	/**
+	 * Get the uncompressed size of all blobs written by the last create.
+	 * @return long
+	 */
+	public long getBytes() {
+		return this.m_bytes;
+	}
+}
@@ -0,0 +1,189 @@
+package se.lnu.cs.doris.git;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+
+/**
+ * Formats of the archives written by --archive, one archive per commit
+ * instead of a directory of loose files.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public enum ArchiveFormat {
+	TAR(".tar"), TGZ(".tar.gz"), ZIP(".zip");
+
+	//Bytes of a tar header and the blocks entries are padded to.
+	private static final long TAR_BLOCK = 512;
+	//Local header, central directory entry and data descriptor of a zip entry, without the name.
+	private static final long ZIP_ENTRY = 128;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private String m_suffix;
+
+	private ArchiveFormat(String suffix) {
+		this.m_suffix = suffix;
+	}
+
+	public String getSuffix() {
+		return this.m_suffix;
+	}
+
+	/**
+	 * Estimate the size of an archive. Compression is not taken into
+	 * account, so the size of a tgz or zip archive is an upper bound.
+	 * @param bytes Size of the content of the files.
+	 * @param tarBytes Size of the content with every file padded by padTar.
+	 * @param files Number of files.
+	 * @param directories Number of directories.
+	 * @return Bytes.
+	 */
+	public long estimateSize(long bytes, long tarBytes, long files, long directories) {
+		if (this == ZIP) {
+			return bytes + (files + directories) * ZIP_ENTRY;
+		}
+
+		//Every entry has a header, the archive ends with two empty blocks.
+		return tarBytes + (files + directories) * TAR_BLOCK + 2 * TAR_BLOCK;
+	}
+
+	/**
+	 * Get the size of a file in a tar archive, padded to whole blocks.
+	 * @param bytes Size of the file.
+	 * @return Bytes.
+	 */
+	public static long padTar(long bytes) {
+		return (bytes + TAR_BLOCK - 1) / TAR_BLOCK * TAR_BLOCK;
+	}
+
+	/**
+	 * Parse the name of a format, e.g. tar, tgz or zip.
+	 * @param name Name of the format.
+	 * @return ArchiveFormat or null if the name is null.
+	 */
+	public static ArchiveFormat parse(String name) {
+		if (name == null) {
+			return null;
+		}
+
+		switch (name.trim().toLowerCase()) {
+		case "tar":
+			return TAR;
+		case "tgz":
+		case "tar.gz":
+			return TGZ;
+		case "zip":
+			return ZIP;
+		default:
+			throw new IllegalArgumentException("Unknown archive format " + name + ".");
+		}
+	}
+
+	/**
+	 * Get the format of an archive from its file name.
+	 * @param fileName Name of the file.
+	 * @return ArchiveFormat or null if the file is not an archive.
+	 */
+	public static ArchiveFormat of(String fileName) {
+		String name = fileName.toLowerCase();
+
+		for (ArchiveFormat format : values()) {
+			if (name.endsWith(format.m_suffix)) {
+				return format;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Find the archive of a commit.
+	 * @param dir Directory of the mining result.
+	 * @param name Number of the commit.
+	 * @return The archive or null if there is none.
+	 */
+	public static File find(File dir, String name) {
+		for (ArchiveFormat format : values()) {
+			File archive = new File(dir, name + format.m_suffix);
+
+			if (archive.isFile()) {
+				return archive;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Open an archive for reading its entries without extracting it. The
+	 * content of the current entry is read from the returned stream.
+	 * @param archive Archive written by --archive.
+	 * @return ArchiveInputStream
+	 * @throws IOException
+	 */
+	public static ArchiveInputStream<? extends ArchiveEntry> open(File archive) throws IOException {
+		ArchiveFormat format = of(archive.getName());
+
+		if (format == null) {
+			throw new IOException(archive + " is not an archive.");
+		}
+
+		InputStream in = new BufferedInputStream(new FileInputStream(archive), BUFFER_SIZE);
+
+		try {
+			switch (format) {
+			case TGZ:
+				return new TarArchiveInputStream(new GZIPInputStream(in, BUFFER_SIZE));
+			case ZIP:
+				return new ZipArchiveInputStream(in);
+			default:
+				return new TarArchiveInputStream(in);
+			}
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Check if an entry is a symbolic link.
+	 * @param entry Entry of an archive.
+	 * @return Boolean
+	 */
+	public static Boolean isLink(ArchiveEntry entry) {
+		if (entry instanceof TarArchiveEntry) {
+			return ((TarArchiveEntry) entry).isSymbolicLink();
+		} else if (entry instanceof ZipArchiveEntry) {
+			return ((ZipArchiveEntry) entry).isUnixSymlink();
+		}
+
+		return false;
+	}
+}
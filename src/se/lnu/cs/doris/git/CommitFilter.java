@@ -0,0 +1,106 @@
+package se.lnu.cs.doris.git;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.jgit.revwalk.filter.AndRevFilter;
+import org.eclipse.jgit.revwalk.filter.AuthorRevFilter;
+import org.eclipse.jgit.revwalk.filter.CommitTimeRevFilter;
+import org.eclipse.jgit.revwalk.filter.MessageRevFilter;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+
+/**
+ * Decides which commits are mined by their time, author and message.
+ * The filter is set on the RevWalk, so a commit that is left out is
+ * never returned by the walk and never numbered, written or counted.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class CommitFilter {
+
+	/**
+	 * Create the filter asked for by the parameters.
+	 * @param params Parameters for the mining.
+	 * @return RevFilter or null if all commits should be mined.
+	 */
+	public static RevFilter create(GitParameters params) {
+		List<RevFilter> filters = new ArrayList<RevFilter>();
+
+		if (params.getSince() != null) {
+			filters.add(CommitTimeRevFilter.after(params.getSince()));
+		}
+		if (params.getUntil() != null) {
+			filters.add(CommitTimeRevFilter.before(params.getUntil()));
+		}
+		if (params.getAuthor() != null) {
+			filters.add(AuthorRevFilter.create(params.getAuthor()));
+		}
+		if (params.getGrep() != null) {
+			filters.add(MessageRevFilter.create(params.getGrep()));
+		}
+
+		if (filters.isEmpty()) {
+			return null;
+		}
+
+		return (filters.size() == 1) ? filters.get(0) : AndRevFilter.create(filters);
+	}
+
+	/**
+	 * Parse a date of --since or --until. Dates without a zone are in the
+	 * zone of the computer.
+	 * @param value A date (2014-05-31), a date and time (2014-05-31T12:00:00),
+	 * a date and time with an offset (2014-05-31T12:00:00+02:00) or seconds
+	 * since the epoch.
+	 * @param endOfDay True if a date without a time means the end of the day
+	 * rather than the start.
+	 * @return Date or null if no value is given.
+	 */
+	public static Date parseDate(String value, Boolean endOfDay) {
+		if (value == null) {
+			return null;
+		}
+
+		String date = value.trim();
+		ZoneId zone = ZoneId.systemDefault();
+
+		try {
+			if (date.matches("[0-9]+")) {
+				return new Date(Long.parseLong(date) * 1000);
+			} else if (date.indexOf('T') < 0) {
+				LocalDate day = LocalDate.parse(date);
+				return Date.from((endOfDay ? day.atTime(LocalTime.MAX) : day.atStartOfDay()).atZone(zone).toInstant());
+			} else if (date.endsWith("Z") || date.matches(".*[+-][0-9]{2}:[0-9]{2}")) {
+				return Date.from(OffsetDateTime.parse(date).toInstant());
+			}
+
+			return Date.from(LocalDateTime.parse(date).atZone(zone).toInstant());
+		} catch (DateTimeParseException | NumberFormatException e) {
+			throw new IllegalArgumentException("Unknown date " + value + ".");
+		}
+	}
+}
@@ -0,0 +1,221 @@
+package se.lnu.cs.doris.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+import se.lnu.cs.doris.global.GlobalStrings;
+
+/**
+ * Reads the binary commit index written by CommitIndexWriter. The index
+ * file is memory mapped, so looking up a commit by its number is a fixed
+ * offset read and no xml has to be parsed.
+ *
+ * @author Emil Carlsson
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+public class CommitIndexReader implements AutoCloseable {
+
+	//Offsets within a record.
+	private static final int TIME = 20;
+	private static final int PARENT_COUNT = 24;
+	private static final int PARENTS = 28;
+	private static final int DATA_OFFSET = 36;
+	private static final int DATA_LENGTH = 44;
+
+	//Order of the strings in a data entry.
+	private static final int AUTHOR_NAME = 0;
+	private static final int AUTHOR_E_MAIL = 1;
+	private static final int COMMITTER_NAME = 2;
+	private static final int COMMITTER_E_MAIL = 3;
+	private static final int MESSAGE = 4;
+
+	private FileChannel m_indexChannel;
+	private FileChannel m_dataChannel;
+	private MappedByteBuffer m_index;
+	private int m_size;
+
+	/**
+	 * Open the index of a mining result.
+	 * @param target Path to the mining base dir.
+	 * @param repoName Name of the repository.
+	 * @throws IOException
+	 */
+	public CommitIndexReader(String target, String repoName) throws IOException {
+		this(new File(target, repoName + CommitIndexWriter.INDEX_SUFFIX),
+				new File(target, repoName + CommitIndexWriter.DATA_SUFFIX));
+	}
+
+	/**
+	 * Open an index and its data file.
+	 * @param indexFile The .idx file.
+	 * @param dataFile The .dat file.
+	 * @throws IOException
+	 */
+	public CommitIndexReader(File indexFile, File dataFile) throws IOException {
+		this.m_indexChannel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ);
+		this.m_dataChannel = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ);
+		this.m_index = this.m_indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, this.m_indexChannel.size());
+
+		if (this.m_index.getInt(0) != CommitIndexWriter.MAGIC
+				|| this.m_index.getInt(4) != CommitIndexWriter.VERSION) {
+			this.close();
+			throw new IOException("Not a Doris commit index: " + indexFile.getAbsolutePath());
+		}
+
+		//A count past the end of the file means records were lost.
+		this.m_size = Math.min(this.m_index.getInt(CommitIndexWriter.COUNT_OFFSET),
+				(this.m_index.capacity() - CommitIndexWriter.HEADER_SIZE) / CommitIndexWriter.RECORD_SIZE);
+	}
+
+	/**
+	 * Number of records, i.e. the highest commit number plus one.
+	 * @return Size of the index.
+	 */
+	public int size() {
+		return this.m_size;
+	}
+
+	/**
+	 * Check if a commit number have been mined. Commits before the start
+	 * point have no record.
+	 * @param number Commit number.
+	 * @return True if the commit is in the index.
+	 */
+	public Boolean contains(int number) {
+		if (number < 0 || number >= this.m_size) {
+			return false;
+		}
+
+		int record = this.record(number);
+		for (int i = 0; i < 5; i++) {
+			if (this.m_index.getInt(record + i * 4) != 0) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	public ObjectId getCommitId(int number) {
+		byte[] raw = new byte[20];
+		int record = this.record(number);
+
+		for (int i = 0; i < raw.length; i++) {
+			raw[i] = this.m_index.get(record + i);
+		}
+
+		return ObjectId.fromRaw(raw);
+	}
+
+	public int getCommitTime(int number) {
+		return this.m_index.getInt(this.record(number) + TIME);
+	}
+
+	public int getParentCount(int number) {
+		return this.m_index.getInt(this.record(number) + PARENT_COUNT);
+	}
+
+	/**
+	 * Get the commit number of a parent.
+	 * @param number Commit number.
+	 * @param parent Which parent, starting at 0.
+	 * @return Commit number of the parent, -1 if it wasn't mined.
+	 * @throws IOException
+	 */
+	public int getParent(int number, int parent) throws IOException {
+		if (parent < 2) {
+			return this.m_index.getInt(this.record(number) + PARENTS + parent * 4);
+		}
+
+		ByteBuffer data = this.readData(number);
+		this.skipStrings(data, MESSAGE + 1);
+
+		return data.getInt(data.position() + (parent - 2) * 4);
+	}
+
+	public String getAuthorName(int number) throws IOException {
+		return this.readString(number, AUTHOR_NAME);
+	}
+
+	public String getAuthorEmail(int number) throws IOException {
+		return this.readString(number, AUTHOR_E_MAIL);
+	}
+
+	public String getCommitterName(int number) throws IOException {
+		return this.readString(number, COMMITTER_NAME);
+	}
+
+	public String getCommitterEmail(int number) throws IOException {
+		return this.readString(number, COMMITTER_E_MAIL);
+	}
+
+	public String getMessage(int number) throws IOException {
+		return this.readString(number, MESSAGE);
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.m_indexChannel.close();
+		this.m_dataChannel.close();
+	}
+
+	private int record(int number) {
+		if (number < 0 || number >= this.m_size) {
+			throw new IndexOutOfBoundsException("No commit number " + number);
+		}
+
+		return CommitIndexWriter.HEADER_SIZE + number * CommitIndexWriter.RECORD_SIZE;
+	}
+
+	private String readString(int number, int field) throws IOException {
+		ByteBuffer data = this.readData(number);
+
+		this.skipStrings(data, field);
+
+		int length = data.getInt();
+		return new String(data.array(), data.position(), length, GlobalStrings.UTF8_CHATSET);
+	}
+
+	private void skipStrings(ByteBuffer data, int count) {
+		for (int i = 0; i < count; i++) {
+			int length = data.getInt();
+			data.position(data.position() + length);
+		}
+	}
+
+	private ByteBuffer readData(int number) throws IOException {
+		int record = this.record(number);
+		long offset = this.m_index.getLong(record + DATA_OFFSET);
+		ByteBuffer data = ByteBuffer.allocate(this.m_index.getInt(record + DATA_LENGTH));
+
+		while (data.hasRemaining()) {
+			if (this.m_dataChannel.read(data, offset + data.position()) < 0) {
+				throw new IOException("Commit index data is truncated.");
+			}
+		}
+
+		data.flip();
+		return data;
+	}
+}
@@ -0,0 +1,240 @@
+package se.lnu.cs.doris.git;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.HashMap;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import se.lnu.cs.doris.global.GlobalStrings;
+
+/**
+ * Writes a binary index of the mined commits next to the xml log.
+ *
+ * The index file (.idx) starts with a header, holding the magic number,
+ * version, record size and number of records, followed by one fixed width
+ * record per commit number, so the record of a commit is found at
+ * HEADER_SIZE + number * RECORD_SIZE. A record holds the commit id, the
+ * commit time, the parent count, the commit numbers of the first two
+ * parents and the offset and length of the commit's entry in the data
+ * file (.dat). The data entry holds author, committer and message as
+ * length prefixed UTF-8 strings, followed by the commit numbers of any
+ * further parents. Parents that were not mined are given as -1.
+ *
+ * @author Emil Carlsson
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+public class CommitIndexWriter {
+
+	public static final String INDEX_SUFFIX = ".idx";
+	public static final String DATA_SUFFIX = ".dat";
+	public static final int MAGIC = 0x44494458; //"DIDX"
+	public static final int VERSION = 2;
+	public static final int HEADER_SIZE = 16;
+	public static final int RECORD_SIZE = 48;
+	public static final int COUNT_OFFSET = 12;
+
+	private FileChannel m_index;
+	private DataOutputStream m_data;
+	private long m_dataOffset = 0;
+	private HashMap<ObjectId, Integer> m_numbers = new HashMap<ObjectId, Integer>();
+	private ByteBuffer m_record = ByteBuffer.allocate(RECORD_SIZE);
+	private BitSet m_present = new BitSet();
+	private int m_count = 0;
+
+	/**
+	 * Constructor creating the index and data files.
+	 * @param target Path to the mining base dir.
+	 * @param repoName Name of the repository.
+	 * @throws Exception
+	 */
+	public CommitIndexWriter(String target, String repoName) throws Exception {
+		this(target, repoName, false);
+	}
+
+	/**
+	 * Constructor that can continue an existing index. Records whose data
+	 * never made it to the data file are removed.
+	 * @param target Path to the mining base dir.
+	 * @param repoName Name of the repository.
+	 * @param append True to continue the index if it exists.
+	 * @throws Exception
+	 */
+	public CommitIndexWriter(String target, String repoName, Boolean append) throws Exception {
+		File indexFile = new File(target, repoName + INDEX_SUFFIX);
+		File dataFile = new File(target, repoName + DATA_SUFFIX);
+
+		this.m_index = FileChannel.open(indexFile.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		if (append && dataFile.exists() && this.readExisting(dataFile.length())) {
+			try (FileChannel data = FileChannel.open(dataFile.toPath(), StandardOpenOption.WRITE)) {
+				data.truncate(this.m_dataOffset);
+			}
+			this.m_data = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dataFile, true)));
+		} else {
+			this.m_index.truncate(0);
+			this.m_data = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dataFile)));
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(0);
+			header.flip();
+			this.m_index.write(header, 0);
+		}
+	}
+
+	/**
+	 * Check if a commit is already in a continued index.
+	 * @param number Commit number.
+	 * @return True if the commit have a record.
+	 */
+	public Boolean contains(int number) {
+		return this.m_present.get(number);
+	}
+
+	/**
+	 * Add a commit to the index.
+	 * @param number Commit number.
+	 * @param commit RevCommit of the commit.
+	 * @throws Exception
+	 */
+	public void addCommit(int number, RevCommit commit) throws Exception {
+		long offset = this.m_dataOffset;
+
+		this.writeString(commit.getAuthorIdent().getName());
+		this.writeString(commit.getAuthorIdent().getEmailAddress());
+		this.writeString(commit.getCommitterIdent().getName());
+		this.writeString(commit.getCommitterIdent().getEmailAddress());
+		this.writeString(commit.getFullMessage());
+
+		for (int i = 2; i < commit.getParentCount(); i++) {
+			this.m_data.writeInt(this.numberOf(commit.getParent(i)));
+			this.m_dataOffset += 4;
+		}
+
+		ByteBuffer record = this.m_record;
+		record.clear();
+		commit.getId().copyRawTo(record);
+		record.putInt(commit.getCommitTime());
+		record.putInt(commit.getParentCount());
+		record.putInt(commit.getParentCount() > 0 ? this.numberOf(commit.getParent(0)) : -1);
+		record.putInt(commit.getParentCount() > 1 ? this.numberOf(commit.getParent(1)) : -1);
+		record.putLong(offset);
+		record.putInt((int) (this.m_dataOffset - offset));
+		record.flip();
+
+		this.m_index.write(record, HEADER_SIZE + (long) number * RECORD_SIZE);
+		this.m_numbers.put(commit.getId().copy(), number);
+		this.m_present.set(number);
+		
+		//The count is written after the record, so it never covers a record that is missing.
+		if (number >= this.m_count) {
+			this.writeCount(number + 1);
+		}
+	}
+
+	/**
+	 * Flush and close the files.
+	 * @throws Exception
+	 */
+	public void close() throws Exception {
+		this.m_data.close();
+		this.m_index.close();
+	}
+
+	/**
+	 * Read the records of an existing index.
+	 * @param dataSize Size of the existing data file.
+	 * @return False if there is no usable index.
+	 */
+	private Boolean readExisting(long dataSize) throws Exception {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		this.m_index.read(header, 0);
+		header.flip();
+
+		if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) {
+			return false;
+		}
+
+		long records = (this.m_index.size() - HEADER_SIZE) / RECORD_SIZE;
+		ByteBuffer record = this.m_record;
+		byte[] raw = new byte[20];
+
+		for (int number = 0; number < records; number++) {
+			long position = HEADER_SIZE + (long) number * RECORD_SIZE;
+
+			record.clear();
+			this.m_index.read(record, position);
+			record.flip();
+			record.get(raw);
+
+			ObjectId id = ObjectId.fromRaw(raw);
+			if (id.equals(ObjectId.zeroId())) {
+				continue;
+			}
+
+			long offset = record.getLong(36);
+			int length = record.getInt(44);
+
+			if (offset + length <= dataSize) {
+				this.m_numbers.put(id, number);
+				this.m_present.set(number);
+				this.m_dataOffset = Math.max(this.m_dataOffset, offset + length);
+				this.m_count = number + 1;
+			} else {
+				//The data was lost, the commit will be added again.
+				this.m_index.write(ByteBuffer.allocate(RECORD_SIZE), position);
+			}
+		}
+
+		this.writeCount(this.m_count);
+		
+		return true;
+	}
+	
+	private void writeCount(int count) throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocate(4);
+		buffer.putInt(count);
+		buffer.flip();
+		
+		this.m_index.write(buffer, COUNT_OFFSET);
+		this.m_count = count;
+	}
+
+	private int numberOf(ObjectId parent) {
+		Integer number = this.m_numbers.get(parent);
+
+		return (number == null) ? -1 : number;
+	}
+
+	private void writeString(String s) throws Exception {
+		byte[] bytes = s.getBytes(GlobalStrings.UTF8_CHATSET);
+
+		this.m_data.writeInt(bytes.length);
+		this.m_data.write(bytes);
+		this.m_dataOffset += 4 + bytes.length;
+	}
+}
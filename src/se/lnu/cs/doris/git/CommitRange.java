@@ -0,0 +1,169 @@
+package se.lnu.cs.doris.git;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+
+import se.lnu.cs.doris.global.GlobalMessages;
+
+/**
+ * The commits of a repository that are mined: the ones from the start
+ * point up to, but not including, the end point that pass the commit
+ * filter. The commits are numbered by their order in the walk, so the
+ * same range has to be walked to find the commit of a snapshot number.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class CommitRange {
+
+	private String m_startPoint;
+	private String m_endPoint;
+	private RevFilter m_filter;
+	private Boolean m_reported = false;
+
+	/**
+	 * Constructor.
+	 * @param startPoint First commit to mine, null to start at the first commit.
+	 * @param endPoint Commit to stop before, null to mine up to HEAD.
+	 * @param filter Filter of the commits, null to mine all of them.
+	 */
+	public CommitRange(String startPoint, String endPoint, RevFilter filter) {
+		this.m_startPoint = startPoint;
+		this.m_endPoint = endPoint;
+		this.m_filter = filter;
+	}
+
+	/**
+	 * Create the range asked for by the parameters.
+	 * @param params Parameters for the mining.
+	 * @return CommitRange
+	 */
+	public static CommitRange create(GitParameters params) {
+		return new CommitRange(params.getStartPoint(), params.getEndPoint(), CommitFilter.create(params));
+	}
+
+	/**
+	 * Walk the commits of the range from first to last. Points that are
+	 * not found are reported the first time the range is walked.
+	 * @param repository Repository to walk.
+	 * @param rw RevWalk of the repository.
+	 * @param mined Commits mined by an earlier run that are left out, or null.
+	 * @return Commits.
+	 * @throws Exception
+	 */
+	public List<RevCommit> walk(Repository repository, RevWalk rw, MinedCommits mined) throws Exception {
+		List<RevCommit> commits = new ArrayList<RevCommit>();
+		List<RevCommit> tips = new ArrayList<RevCommit>();
+		RevCommit head = rw.parseCommit(repository.resolve(Constants.HEAD));
+		RevCommit end = this.resolvePoint(repository, rw, this.m_endPoint);
+
+		//The end point itself is not mined, the walk starts from its parents.
+		if (end != null && rw.isMergedInto(end, head)) {
+			for (RevCommit parent : end.getParents()) {
+				tips.add(rw.parseCommit(parent));
+			}
+		} else {
+			tips.add(head);
+		}
+
+		//A continued run is already past the start point.
+		RevCommit start = null;
+		if (this.m_startPoint != null && mined == null) {
+			start = this.resolvePoint(repository, rw, this.m_startPoint);
+
+			if (start == null || !isMergedInto(rw, start, tips)) {
+				this.m_reported = true;
+				return commits;
+			}
+		}
+
+		this.m_reported = true;
+		rw.reset();
+		rw.sort(RevSort.REVERSE);
+		rw.setRevFilter(this.m_filter != null ? this.m_filter : RevFilter.ALL);
+		rw.markStart(tips);
+
+		//Nothing before the start point is walked.
+		if (start != null) {
+			for (RevCommit parent : start.getParents()) {
+				rw.markUninteresting(rw.parseCommit(parent));
+			}
+		}
+
+		if (mined != null) {
+			for (ObjectId commit : mined.getCommits().values()) {
+				rw.markUninteresting(rw.parseCommit(commit));
+			}
+		}
+
+		//A reversed walk reads every commit before returning the first,
+		//keeping them gives the number of commits to report progress on.
+		for (RevCommit commit : rw) {
+			commits.add(commit);
+		}
+
+		return commits;
+	}
+
+	/**
+	 * Resolve a start or end point to its commit.
+	 * @param repository Repository of the commit.
+	 * @param rw RevWalk of the repository.
+	 * @param point Sha-1, abbreviated sha-1, tag or branch.
+	 * @return RevCommit or null if the point is not set or not found.
+	 * @throws Exception
+	 */
+	private RevCommit resolvePoint(Repository repository, RevWalk rw, String point) throws Exception {
+		if (point == null) {
+			return null;
+		}
+
+		ObjectId id = repository.resolve(point.trim() + "^{commit}");
+
+		if (id == null) {
+			if (!this.m_reported) {
+				GlobalMessages.pointNotFound(point);
+			}
+			return null;
+		}
+
+		return rw.parseCommit(id);
+	}
+
+	/**
+	 * Check if a commit is in the history of any of the tips.
+	 */
+	private static Boolean isMergedInto(RevWalk rw, RevCommit commit, List<RevCommit> tips) throws Exception {
+		for (RevCommit tip : tips) {
+			if (rw.isMergedInto(commit, tip)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+}
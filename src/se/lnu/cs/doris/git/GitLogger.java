@@ -1,17 +1,23 @@
 package se.lnu.cs.doris.git;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
-import javax.xml.parsers.*;
-import javax.xml.transform.*;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-
-import org.w3c.dom.*;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamWriter;
 
+import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.revwalk.RevCommit;
 
 import se.lnu.cs.doris.global.GlobalStrings;
+import se.lnu.cs.doris.monitor.LogAppendEvent;
 /**
  * 
  * @author Emil Carlsson
@@ -34,109 +40,200 @@ import se.lnu.cs.doris.global.GlobalStrings;
  */
 public class GitLogger {
 	
-	//Used in function parseXMLUnsafeCharacters().
-	//Not my prettiest work, but it had to be fixed fast.
-	private final static char[] unsafeChars = {0, 1, 2, 3, 4, 5, 6, 7, 8, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30, 31};
+	//Commit numbers in commit start tags and ends of commit nodes, used when continuing a log.
+	private final static Pattern LOG_TOKENS = Pattern.compile(
+			"<" + GlobalStrings.COMMIT + "\\s[^<>]*?" + GlobalStrings.COMMIT_NUMBER + "=\"(\\d+)\"|</" + GlobalStrings.COMMIT + ">");
+	
+	private OutputStream m_stream;
+	private XMLStreamWriter m_writer;
+	private Boolean m_appended = false;
+	private BitSet m_logged = new BitSet();
 	
 	/**
-	 * Method to add an xml-node to the log for the repository.
+	 * Constructor creating the log for the repository. The log is kept
+	 * open until close() is called and every commit is written once.
+	 * @param target Path to the mining base dir.
+	 * @param repoName Name of the repository.
+	 * @throws Exception
+	 */
+	public GitLogger(String target, String repoName) throws Exception {
+		this(target, repoName, false);
+	}
+	
+	/**
+	 * Constructor that can continue an existing log. Anything after the
+	 * last complete commit node of the existing log is removed.
 	 * @param target Path to the mining base dir.
 	 * @param repoName Name of the repository.
+	 * @param append True to continue the log if it exists.
+	 * @throws Exception
+	 */
+	public GitLogger(String target, String repoName, Boolean append) throws Exception {
+		//Set up the base path to the xml file.
+		String path = String.format("%s/%s.xml", target, repoName);
+		File file = new File(path);
+		
+		this.m_appended = append && file.exists() && this.truncateLog(file);
+		this.m_stream = new BufferedOutputStream(new FileOutputStream(path, this.m_appended));
+		this.m_writer = XMLOutputFactory.newInstance().createXMLStreamWriter(this.m_stream, "UTF-8");
+		
+		if (!this.m_appended) {
+			this.m_writer.writeStartDocument("UTF-8", "1.0");
+			this.m_writer.writeStartElement(GlobalStrings.PROJECT);
+			this.m_writer.writeAttribute(GlobalStrings.PROJECT_NAME, repoName);
+			//Make the writer close the start tag, closing it is done by hand.
+			this.m_writer.writeCharacters("");
+		}
+	}
+	
+	/**
+	 * Check if a commit is already in a continued log.
+	 * @param id What number of order the commit is.
+	 * @return True if the commit have been logged.
+	 */
+	public Boolean isLogged(int id) {
+		return this.m_logged.get(id);
+	}
+	
+	/**
+	 * Method to add an xml-node to the log for the repository.
 	 * @param id What number of order the commit is.
 	 * @param commit RevCommit of the commit.
+	 * @throws Exception
 	 */
-	public static void addNode(String target, String repoName, String id, RevCommit commit) {
-		try {
-			//Set up the base path to the xml file.
-			String path = String.format("%s/%s.xml", target, repoName);
-			
-			//Instantiate some of the tools needed to build the xml document.
-			DocumentBuilderFactory df = DocumentBuilderFactory.newInstance();
-			DocumentBuilder db = df.newDocumentBuilder();
-			
-			//Used to see if the file exists or not.
-			File file = new File(path);
-			
-			Document log;
-			Element root;
-			
-			//If the file doesn't exists a file need to be created
-			//and also some root elements etc.
-			if (!file.exists()) {
-				file.createNewFile();
-				log = db.newDocument();
-				root = log.createElement(GlobalStrings.PROJECT);
-				root.setAttribute(GlobalStrings.PROJECT_NAME, repoName);
-				log.appendChild(root);				
-			} else { //Load the existing document if it exists.
-				log = db.parse(file);
-				root = (Element) log.getFirstChild();
-			}
-			
-			//Create a new commit node with attributes.
-			Element commitNode = log.createElement(GlobalStrings.COMMIT);
-			commitNode.setAttribute(GlobalStrings.COMMIT_NUMBER, id);
-			commitNode.setAttribute(GlobalStrings.COMMIT_NAME, commit.getName());
-			commitNode.setAttribute(GlobalStrings.COMMIT_TIME, Integer.toString(commit.getCommitTime()));
-			
-			//Find all parents. If initial commit no parent node is created.
-			if (commit.getParentCount() > 0) {
-				for (RevCommit rc : commit.getParents()) {
-					Element parentNode = log.createElement(GlobalStrings.PARENT);
-					parentNode.setAttribute(GlobalStrings.COMMIT_NAME, rc.getName());
-					
-					commitNode.appendChild(parentNode);
+	public void addNode(String id, RevCommit commit) throws Exception {
+		LogAppendEvent event = new LogAppendEvent();
+		event.begin();
+		
+		//Create a new commit node with attributes.
+		this.m_writer.writeStartElement(GlobalStrings.COMMIT);
+		this.m_writer.writeAttribute(GlobalStrings.COMMIT_NAME, commit.getName());
+		this.m_writer.writeAttribute(GlobalStrings.COMMIT_NUMBER, id);
+		this.m_writer.writeAttribute(GlobalStrings.COMMIT_TIME, Integer.toString(commit.getCommitTime()));
+		
+		//Find all parents. If initial commit no parent node is created.
+		for (RevCommit rc : commit.getParents()) {
+			this.m_writer.writeEmptyElement(GlobalStrings.PARENT);
+			this.m_writer.writeAttribute(GlobalStrings.COMMIT_NAME, rc.getName());
+		}
+		
+		//Populate with other nodes.
+		this.writeIdent(GlobalStrings.AUTHOR, commit.getAuthorIdent());
+		this.writeIdent(GlobalStrings.COMMITTER, commit.getCommitterIdent());
+		
+		this.m_writer.writeStartElement(GlobalStrings.COMMIT_MESSAGE);
+		this.m_writer.writeCharacters(parseXMLUnsafeCharacters(commit.getFullMessage()));
+		this.m_writer.writeEndElement();
+		
+		this.m_writer.writeEndElement();
+		
+		event.end();
+		if (event.shouldCommit()) {
+			event.commit = commit.getName();
+			event.number = id;
+			event.commit();
+		}
+	}
+	
+	/**
+	 * Closes the root element and the file.
+	 * @throws Exception
+	 */
+	public void close() throws Exception {
+		//The root element might have been opened by an earlier run.
+		this.m_writer.flush();
+		this.m_stream.write(("</" + GlobalStrings.PROJECT + ">").getBytes(GlobalStrings.UTF8_CHATSET));
+		this.m_writer.close();
+		this.m_stream.close();
+	}
+	
+	/**
+	 * Cut an existing log after its last complete commit node and read
+	 * what commits it contains. The log is scanned in chunks since it can
+	 * be larger than what fits in memory.
+	 * @param file The log.
+	 * @return False if the log is unusable and should be started over.
+	 */
+	private Boolean truncateLog(File file) throws Exception {
+		try (RandomAccessFile log = new RandomAccessFile(file, "rw")) {
+			byte[] buffer = new byte[1 << 20];
+			//Long enough to hold any token searched for.
+			int overlap = 256;
+			long chunkStart = 0;
+			long end = -1;
+			int pending = -1;
+			String carry = "";
+			
+			while (chunkStart < log.length()) {
+				log.seek(chunkStart);
+				int read = log.read(buffer);
+				Boolean last = chunkStart + read >= log.length();
+				
+				//A '<' in text or attribute values is always escaped, so a tag can only be markup.
+				//Quotes in text are not, which is why numbers are only read inside start tags.
+				String chunk = carry + new String(buffer, 0, read, StandardCharsets.ISO_8859_1);
+				long offset = chunkStart - carry.length();
+				int limit = last ? chunk.length() : chunk.length() - overlap;
+				
+				if (end < 0) {
+					int project = chunk.indexOf("<" + GlobalStrings.PROJECT);
+					if (project >= 0 && chunk.indexOf('>', project) >= 0) {
+						end = offset + chunk.indexOf('>', project) + 1;
+					}
+				}
+				
+				Matcher matcher = LOG_TOKENS.matcher(chunk);
+				while (matcher.find() && matcher.start() < limit) {
+					if (matcher.group(1) != null) {
+						pending = Integer.parseInt(matcher.group(1));
+					} else if (pending >= 0) {
+						this.m_logged.set(pending);
+						end = offset + matcher.end();
+						pending = -1;
+					}
 				}
+				
+				carry = last ? "" : chunk.substring(limit);
+				chunkStart += read;
 			}
 			
-			//Populate with other nodes.
-			Element authorNode = log.createElement(GlobalStrings.AUTHOR);
-			authorNode.setAttribute(GlobalStrings.NAME, commit.getAuthorIdent().getName());
-			authorNode.setAttribute(GlobalStrings.E_MAIL, commit.getAuthorIdent().getEmailAddress());
-			
-			commitNode.appendChild(authorNode);
-			
-			Element committerNode = log.createElement(GlobalStrings.COMMITTER);
-			committerNode.setAttribute(GlobalStrings.NAME, commit.getCommitterIdent().getName());
-			committerNode.setAttribute(GlobalStrings.E_MAIL, commit.getCommitterIdent().getEmailAddress());
-			
-			commitNode.appendChild(committerNode);
-			
-			Element messageNode = log.createElement(GlobalStrings.COMMIT_MESSAGE);
-			//Ugly quick fix to repair broken XML returns.
-			byte[] messageByteArray = commit.getFullMessage().getBytes("UTF-8");
-			String message = parseXMLUnsafeCharacters(new String(messageByteArray, GlobalStrings.UTF8_CHATSET));
-			messageNode.appendChild(log.createTextNode(message));
-			
-			commitNode.appendChild(messageNode);
-			
-			root.appendChild(commitNode);
-			
-			//Write to file.
-			TransformerFactory tf = TransformerFactory.newInstance();
-			Transformer t = tf.newTransformer();
-			DOMSource source = new DOMSource(log);
-			StreamResult result = new StreamResult(path);
-			
-			t.transform(source, result);
-			
+			if (end <= 0) {
+				return false;
+			}
 			
-		} catch (Exception e) {
-			e.printStackTrace();
+			log.setLength(end);
 		}
+		
+		return true;
+	}
+
+	
+	private void writeIdent(String element, PersonIdent ident) throws Exception {
+		this.m_writer.writeEmptyElement(element);
+		this.m_writer.writeAttribute(GlobalStrings.E_MAIL, parseXMLUnsafeCharacters(ident.getEmailAddress()));
+		this.m_writer.writeAttribute(GlobalStrings.NAME, parseXMLUnsafeCharacters(ident.getName()));
 	}
 	
 	/**
 	 * Removes characters that isn't safe for XML and replaces them
-	 * with a single space.
+	 * with a single space. Tabs and line feeds are kept.
 	 * @param s String to be parsed
 	 * @return Parsed String.
 	 */
-	private static String parseXMLUnsafeCharacters(String s) {
-		for (char c : unsafeChars) {
-			s = s.replace(c, (char) 32);
+	static String parseXMLUnsafeCharacters(String s) {
+		char[] chars = null;
+		
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			
+			if (c < 32 && c != '\t' && c != '\n') {
+				if (chars == null) {
+					chars = s.toCharArray();
+				}
+				chars[i] = (char) 32;
+			}
 		}
 		
-		return s;
+		return (chars == null) ? s : new String(chars);
 	}
 }
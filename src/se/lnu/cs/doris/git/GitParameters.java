@@ -1,5 +1,7 @@
 package se.lnu.cs.doris.git;
 
+import java.util.Date;
+
 import se.lnu.cs.doris.global.ExceptionHandler;
 import se.lnu.cs.doris.global.InputFlag;
 import se.lnu.cs.doris.global.Utilities;
@@ -33,6 +35,31 @@ public class GitParameters {
 	private String m_endPoint = null;
 	private int m_limit = 0;
 	private Boolean m_noLog = false;
+	private Boolean m_deduplicate = false;
+	private Boolean m_incremental = false;
+	private Boolean m_metrics = false;
+	private String[] m_metricsFiles = null;
+	private Boolean m_metricsOnly = false;
+	private Boolean m_resume = false;
+	private Boolean m_update = false;
+	private String[] m_includes = null;
+	private String[] m_excludes = null;
+	private Boolean m_linguist = false;
+	private String m_languages = null;
+	private String[] m_metricFormats = null;
+	private int m_prometheusPort = 0;
+	private Boolean m_quiet = false;
+	private OverwritePolicy m_overwrite = null;
+	private String m_batch = null;
+	private int m_parallel = 0;
+	private Boolean m_plan = false;
+	private int m_reserve = 0;
+	private ArchiveFormat m_archive = null;
+	private Boolean m_store = false;
+	private Date m_since = null;
+	private Date m_until = null;
+	private String m_author = null;
+	private String m_grep = null;
 	
 	/**
 	 * Empty constructor.
@@ -45,6 +72,31 @@ public class GitParameters {
 		this.m_endPoint = null;
 		this.m_limit = 0;
 		this.m_noLog = false;
+		this.m_deduplicate = false;
+		this.m_incremental = false;
+		this.m_metrics = false;
+		this.m_metricsFiles = null;
+		this.m_metricsOnly = false;
+		this.m_resume = false;
+		this.m_update = false;
+		this.m_includes = null;
+		this.m_excludes = null;
+		this.m_linguist = false;
+		this.m_languages = null;
+		this.m_metricFormats = null;
+		this.m_prometheusPort = 0;
+		this.m_quiet = false;
+		this.m_overwrite = null;
+		this.m_batch = null;
+		this.m_parallel = 0;
+		this.m_plan = false;
+		this.m_reserve = 0;
+		this.m_archive = null;
+		this.m_store = false;
+		this.m_since = null;
+		this.m_until = null;
+		this.m_author = null;
+		this.m_grep = null;
 	}
 	
 	/**
@@ -82,6 +134,7 @@ public class GitParameters {
 				inputFlag = InputFlag.valueOf(flag.replace("-", "").toLowerCase());
 			} catch (Exception e) {
 				ExceptionHandler.unknownFlag(flag);
+				continue;
 			}
 			
 			String prefix = (inputFlag.name().length() > 1) ? "--" : "-";
@@ -110,6 +163,59 @@ public class GitParameters {
 				//NOTICE: This functionality have not been added yet. But the parameter exists.
 				//The parameter will do nothing in practice.
 				this.setBranch(Flags.getFlagValue(args, prefix + inputFlag.name()));
+			} else if (inputFlag == InputFlag.d || inputFlag == InputFlag.dedup) {
+				this.setDeduplicate(true);
+			} else if (inputFlag == InputFlag.i || inputFlag == InputFlag.incremental) {
+				this.setIncremental(true);
+			} else if (inputFlag == InputFlag.m || inputFlag == InputFlag.metric) {
+				this.setMetrics(true);
+				this.setMetricsFiles(Flags.parseMetricsFiles(Flags.getFlagValue(args, prefix + inputFlag.name())));
+			} else if (inputFlag == InputFlag.metricsonly) {
+				this.setMetrics(true);
+				this.setMetricsOnly(true);
+			} else if (inputFlag == InputFlag.r || inputFlag == InputFlag.resume) {
+				this.setResume(true);
+			} else if (inputFlag == InputFlag.update) {
+				this.setUpdate(true);
+			} else if (inputFlag == InputFlag.include) {
+				this.setIncludes(Flags.parseList(Flags.getFlagValue(args, prefix + inputFlag.name())));
+			} else if (inputFlag == InputFlag.exclude) {
+				this.setExcludes(Flags.parseList(Flags.getFlagValue(args, prefix + inputFlag.name())));
+			} else if (inputFlag == InputFlag.linguist) {
+				this.setLinguist(true);
+			} else if (inputFlag == InputFlag.languages) {
+				this.setLanguages(Flags.getFlagValue(args, prefix + inputFlag.name()));
+			} else if (inputFlag == InputFlag.metricformat) {
+				this.setMetricFormats(Flags.parseList(Flags.getFlagValue(args, prefix + inputFlag.name())));
+			} else if (inputFlag == InputFlag.prometheus) {
+				String port = Flags.getFlagValue(args, prefix + inputFlag.name());
+				this.setPrometheusPort(Utilities.tryParseInt(port) ? Utilities.parseInt(port) : 0);
+			} else if (inputFlag == InputFlag.q || inputFlag == InputFlag.quiet) {
+				this.setQuiet(true);
+			} else if (inputFlag == InputFlag.overwrite) {
+				this.setOverwrite(OverwritePolicy.parse(Flags.getFlagValue(args, prefix + inputFlag.name())));
+			} else if (inputFlag == InputFlag.batch) {
+				this.setBatch(Flags.getFlagValue(args, prefix + inputFlag.name()));
+			} else if (inputFlag == InputFlag.parallel) {
+				String parallel = Flags.getFlagValue(args, prefix + inputFlag.name());
+				this.setParallel(Utilities.tryParseInt(parallel) ? Utilities.parseInt(parallel) : 0);
+			} else if (inputFlag == InputFlag.plan) {
+				this.setPlan(true);
+			} else if (inputFlag == InputFlag.reserve) {
+				String reserve = Flags.getFlagValue(args, prefix + inputFlag.name());
+				this.setReserve(Utilities.tryParseInt(reserve) ? Utilities.parseInt(reserve) : 0);
+			} else if (inputFlag == InputFlag.archive) {
+				this.setArchive(ArchiveFormat.parse(Flags.getFlagValue(args, prefix + inputFlag.name())));
+			} else if (inputFlag == InputFlag.store) {
+				this.setStore(true);
+			} else if (inputFlag == InputFlag.since) {
+				this.setSince(CommitFilter.parseDate(Flags.getFlagValue(args, prefix + inputFlag.name()), false));
+			} else if (inputFlag == InputFlag.until) {
+				this.setUntil(CommitFilter.parseDate(Flags.getFlagValue(args, prefix + inputFlag.name()), true));
+			} else if (inputFlag == InputFlag.author) {
+				this.setAuthor(Flags.getFlagValue(args, prefix + inputFlag.name()));
+			} else if (inputFlag == InputFlag.grep) {
+				this.setGrep(Flags.getFlagValue(args, prefix + inputFlag.name()));
 			}
 		}
 	}
@@ -167,4 +273,204 @@ public class GitParameters {
 	public void setBranch(String branch) {
 		this.m_branch = branch;
 	}
+	
+	public Boolean getDeduplicate() {
+		return this.m_deduplicate;
+	}
+	
+	public void setDeduplicate(Boolean deduplicate) {
+		this.m_deduplicate = deduplicate;
+	}
+	
+	public Boolean getIncremental() {
+		return this.m_incremental;
+	}
+	
+	public void setIncremental(Boolean incremental) {
+		this.m_incremental = incremental;
+	}
+	
+	public Boolean getMetrics() {
+		return this.m_metrics;
+	}
+	
+	public void setMetrics(Boolean metrics) {
+		this.m_metrics = metrics;
+	}
+	
+	public String[] getMetricsFiles() {
+		return this.m_metricsFiles;
+	}
+	
+	public void setMetricsFiles(String[] metricsFiles) {
+		this.m_metricsFiles = metricsFiles;
+	}
+	
+	public Boolean getMetricsOnly() {
+		return this.m_metricsOnly;
+	}
+	
+	public void setMetricsOnly(Boolean metricsOnly) {
+		this.m_metricsOnly = metricsOnly;
+	}
+	
+	public Boolean getResume() {
+		return this.m_resume;
+	}
+	
+	public void setResume(Boolean resume) {
+		this.m_resume = resume;
+	}
+	
+	public Boolean getUpdate() {
+		return this.m_update;
+	}
+	
+	public void setUpdate(Boolean update) {
+		this.m_update = update;
+	}
+	
+	public String[] getIncludes() {
+		return this.m_includes;
+	}
+	
+	public void setIncludes(String[] includes) {
+		this.m_includes = includes;
+	}
+	
+	public String[] getExcludes() {
+		return this.m_excludes;
+	}
+	
+	public void setExcludes(String[] excludes) {
+		this.m_excludes = excludes;
+	}
+	
+	public Boolean getLinguist() {
+		return this.m_linguist;
+	}
+	
+	public void setLinguist(Boolean linguist) {
+		this.m_linguist = linguist;
+	}
+	
+	public String getLanguages() {
+		return this.m_languages;
+	}
+	
+	public void setLanguages(String languages) {
+		this.m_languages = languages;
+	}
+	
+	public String[] getMetricFormats() {
+		return this.m_metricFormats;
+	}
+	
+	public void setMetricFormats(String[] metricFormats) {
+		this.m_metricFormats = metricFormats;
+	}
+	
+	public int getPrometheusPort() {
+		return this.m_prometheusPort;
+	}
+	
+	public void setPrometheusPort(int prometheusPort) {
+		this.m_prometheusPort = prometheusPort;
+	}
+	
+	public Boolean getQuiet() {
+		return this.m_quiet;
+	}
+	
+	public void setQuiet(Boolean quiet) {
+		this.m_quiet = quiet;
+	}
+	
+	public OverwritePolicy getOverwrite() {
+		return this.m_overwrite;
+	}
+	
+	public void setOverwrite(OverwritePolicy overwrite) {
+		this.m_overwrite = overwrite;
+	}
+	
+	public String getBatch() {
+		return this.m_batch;
+	}
+	
+	public void setBatch(String batch) {
+		this.m_batch = batch;
+	}
+	
+	public int getParallel() {
+		return this.m_parallel;
+	}
+	
+	public void setParallel(int parallel) {
+		this.m_parallel = parallel;
+	}
+	
+	public Boolean getPlan() {
+		return this.m_plan;
+	}
+	
+	public void setPlan(Boolean plan) {
+		this.m_plan = plan;
+	}
+	
+	public int getReserve() {
+		return this.m_reserve;
+	}
+	
+	public void setReserve(int reserve) {
+		this.m_reserve = reserve;
+	}
+	
+	public ArchiveFormat getArchive() {
+		return this.m_archive;
+	}
+	
+	public void setArchive(ArchiveFormat archive) {
+		this.m_archive = archive;
+	}
+	
+	public Boolean getStore() {
+		return this.m_store;
+	}
+	
+	public void setStore(Boolean store) {
+		this.m_store = store;
+	}
+	
+	public Date getSince() {
+		return this.m_since;
+	}
+	
+	public void setSince(Date since) {
+		this.m_since = since;
+	}
+	
+	public Date getUntil() {
+		return this.m_until;
+	}
+	
+	public void setUntil(Date until) {
+		this.m_until = until;
+	}
+	
+	public String getAuthor() {
+		return this.m_author;
+	}
+	
+	public void setAuthor(String author) {
+		this.m_author = author;
+	}
+	
+	public String getGrep() {
+		return this.m_grep;
+	}
+	
+	public void setGrep(String grep) {
+		this.m_grep = grep;
+	}
 }
@@ -2,10 +2,16 @@ package se.lnu.cs.doris.git;
 
 import java.io.File;
 import java.io.FileOutputStream;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffEntry.ChangeType;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectId;
@@ -13,14 +19,24 @@ import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.revwalk.RevSort;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 
-import se.lnu.cs.doris.global.ExceptionHandler;
 import se.lnu.cs.doris.global.GlobalMessages;
 import se.lnu.cs.doris.global.OutOfSpaceException;
 import se.lnu.cs.doris.global.Utilities;
+import se.lnu.cs.doris.metrics.LineCounter;
+import se.lnu.cs.doris.metrics.MetricFormat;
+import se.lnu.cs.doris.metrics.SLOCWriter;
+import se.lnu.cs.doris.metrics.TreeLineCounter;
+import se.lnu.cs.doris.monitor.BlobWriteEvent;
+import se.lnu.cs.doris.monitor.CommitEvent;
+import se.lnu.cs.doris.monitor.MiningEvent;
+import se.lnu.cs.doris.monitor.MiningStatistics;
+import se.lnu.cs.doris.monitor.ProgressReporter;
 
 /**
  * Class to perform repository mining of git repositories.
@@ -46,21 +62,43 @@ import se.lnu.cs.doris.global.Utilities;
 public class GitRepository {
 	//Class specific constants
 	//Because of IO-time compensation there is a minimum of 4 threads. Else double the amount of available cores.
-	private final int MAX_NUMBER_OF_THREADS = (Runtime.getRuntime().availableProcessors() < 2) ? 4 : Runtime.getRuntime().availableProcessors() * 2;
+	public static final int MAX_NUMBER_OF_THREADS = (Runtime.getRuntime().availableProcessors() < 2) ? 4 : Runtime.getRuntime().availableProcessors() * 2;
 	
 	//Class usage
 	private Repository m_headRepository;
 	private String m_repoName;
-	private int m_runningThreads = 0;
 
 	//Inputs
 	private String m_uri;
 	private String m_target;
-	private String m_startPoint;
-	private String m_endPoint;
+	private CommitRange m_range;
 	private String m_branch;
 	private Boolean m_noLog;
 	private int m_limit;
+	private Boolean m_deduplicate = false;
+	private Boolean m_incremental = false;
+	private SnapshotDeduplicator m_deduplicator = null;
+	private SnapshotDeduplicator m_linker = null;
+	private Boolean m_metricsOnly = false;
+	private String[] m_metricsFiles = null;
+	private String[] m_metricFormats = null;
+	private SLOCWriter m_slocWriter = null;
+	private Boolean m_resume = false;
+	private ProgressManifest m_manifest = null;
+	private Boolean m_update = false;
+	private SnapshotFilter m_filter = null;
+	private int m_commitCount = 0;
+	private Boolean m_quiet = false;
+	private ProgressReporter m_progress = null;
+	private Boolean m_skipped = false;
+	private ThreadPoolExecutor m_workerPool = null;
+	private int m_workerCapacity = 0;
+	private Boolean m_plan = false;
+	private int m_reserve = 0;
+	private SpaceReserve m_spaceReserve = null;
+	private ArchiveFormat m_archive = null;
+	private Boolean m_store = false;
+	private SnapshotStore m_snapshotStore = null;
 
 	//Strings
 	private String m_master = "master";
@@ -127,8 +165,28 @@ public class GitRepository {
 		this(uri, target, branch, startPoint, endPoint, limit, false);
 	}
 	
+	/**
+	 * Constructor taking a parameter object.
+	 * @param params Parameters for the mining.
+	 */
 	public GitRepository(GitParameters params) {
-		//TODO: Create functionality that a GitParameters object can be passed.
+		this(params.getUri(), params.getTarget(), params.getBranch(), params.getStartPoint(),
+				params.getEndPoint(), params.getLimit(), params.getLogStatus(), 
+				params.getResume() || params.getUpdate(), params.getOverwrite(), params.getPlan());
+		
+		this.m_reserve = params.getReserve();
+		this.m_archive = params.getArchive();
+		this.m_store = params.getStore();
+		
+		this.m_deduplicate = params.getDeduplicate();
+		this.m_incremental = params.getIncremental();
+		this.m_metricsOnly = params.getMetricsOnly();
+		this.m_metricsFiles = params.getMetricsFiles();
+		this.m_metricFormats = params.getMetricFormats();
+		this.m_update = params.getUpdate();
+		this.m_filter = SnapshotFilter.create(params);
+		this.m_range = CommitRange.create(params);
+		this.m_quiet = params.getQuiet();
 	}
 
 	/**
@@ -142,6 +200,54 @@ public class GitRepository {
 	 */
 	public GitRepository(String uri, String target, String branch, String startPoint,
 			String endPoint, int limit, Boolean noLog) {
+		this(uri, target, branch, startPoint, endPoint, limit, noLog, false);
+	}
+
+	/**
+	 * Constructor taking the URI, target, start point flags and end point.
+	 * @param uri URI to the git repository's .git file.
+	 * @param target Path to target directory.
+	 * @param startPoint SHA-1 checksum of the commit that is the starting point.
+	 * @param endPoint SHA-1 checksum of the commit that is the end point.
+	 * @param limit Number of commits to be mined.
+	 * @param noLog Boolean to set if a meta-data log should be created or not.
+	 * @param resume Boolean to set if an earlier, unfinished mining should be continued.
+	 */
+	public GitRepository(String uri, String target, String branch, String startPoint,
+			String endPoint, int limit, Boolean noLog, Boolean resume) {
+		this(uri, target, branch, startPoint, endPoint, limit, noLog, resume, null);
+	}
+
+	/**
+	 * Constructor taking the URI, target, start point flags and end point.
+	 * @param uri URI to the git repository's .git file.
+	 * @param target Path to target directory.
+	 * @param startPoint SHA-1 checksum of the commit that is the starting point.
+	 * @param endPoint SHA-1 checksum of the commit that is the end point.
+	 * @param limit Number of commits to be mined.
+	 * @param noLog Boolean to set if a meta-data log should be created or not.
+	 * @param resume Boolean to set if an earlier, unfinished mining should be continued.
+	 * @param overwrite What to do if the target already exists, null to ask.
+	 */
+	public GitRepository(String uri, String target, String branch, String startPoint,
+			String endPoint, int limit, Boolean noLog, Boolean resume, OverwritePolicy overwrite) {
+		this(uri, target, branch, startPoint, endPoint, limit, noLog, resume, overwrite, false);
+	}
+
+	/**
+	 * Constructor taking the URI, target, start point flags and end point.
+	 * @param uri URI to the git repository's .git file.
+	 * @param target Path to target directory.
+	 * @param startPoint SHA-1 checksum of the commit that is the starting point.
+	 * @param endPoint SHA-1 checksum of the commit that is the end point.
+	 * @param limit Number of commits to be mined.
+	 * @param noLog Boolean to set if a meta-data log should be created or not.
+	 * @param resume Boolean to set if an earlier, unfinished mining should be continued.
+	 * @param overwrite What to do if the target already exists, null to ask.
+	 * @param plan Boolean to set if the run is only planned, an existing target is then kept as it is.
+	 */
+	public GitRepository(String uri, String target, String branch, String startPoint,
+			String endPoint, int limit, Boolean noLog, Boolean resume, OverwritePolicy overwrite, Boolean plan) {
 		//TODO: Refactor this constructor.
 		//Get repository name.
 		this.m_repoName = this.getRepoNameFromUri(uri);
@@ -157,20 +263,31 @@ public class GitRepository {
 		
 		File file = new File(this.m_target);
 		
-		if (file.exists()) {
-			if (!GlobalMessages.overWriteFolder(this.m_target)) {
+		//When resuming the earlier result is kept and continued.
+		if (file.exists() && !resume && !plan) {
+			if (overwrite == null || overwrite == OverwritePolicy.ASK) {
+				overwrite = GlobalMessages.overWriteFolder(this.m_target) ? 
+						OverwritePolicy.OVERWRITE : OverwritePolicy.RENAME;
+			}
+			
+			if (overwrite == OverwritePolicy.OVERWRITE) {
+				Utilities.deleteDirectory(file);
+			} else if (overwrite == OverwritePolicy.RENAME) {
 				this.m_target += "_" + Utilities.getNumeralFileAppendix(this.m_target);
+			} else if (overwrite == OverwritePolicy.SKIP) {
+				this.m_skipped = true;
 			} else {
-				Utilities.deleteDirectory(file);
+				resume = true;
 			}
 		}
 		
 		//Set all in parameters.
 		this.m_uri = uri;
 		this.m_noLog = noLog;
-		this.m_startPoint = startPoint;
-		this.m_endPoint = endPoint;
+		this.m_range = new CommitRange(startPoint, endPoint, null);
 		this.m_limit = limit;
+		this.m_resume = resume;
+		this.m_plan = plan;
 
 		//Set head repository to null.
 		this.m_headRepository = null;
@@ -184,6 +301,23 @@ public class GitRepository {
 		String barePath = this.m_target + "/" + this.m_repoName + "_" + this.m_branch + ".git";
 		File file = new File(barePath);
 		
+		if ((this.m_resume || this.m_plan) && file.exists()) {
+			//Reuse the repository fetched by the earlier run.
+			try {
+				Git git = Git.open(file);
+				
+				if (this.m_update) {
+					//Only the objects that are new since the last run are downloaded.
+					git.fetch().setRemote("origin").call();
+				}
+				
+				this.m_headRepository = git.getRepository();
+				return;
+			} catch (Exception e) {
+				//Not a usable repository, fetch it again.
+			}
+		}
+		
 		if (file.exists()) {
 			Utilities.deleteDirectory(file);
 		}
@@ -209,86 +343,331 @@ public class GitRepository {
 	 * @throws Exception 
 	 */
 	public void mine() throws Exception {
+		if (this.m_skipped) {
+			return;
+		} else if (this.m_plan) {
+			this.plan();
+			return;
+		}
+		
+		MiningStatistics statistics = MiningStatistics.getDefault();
+		MiningEvent event = new MiningEvent();
+		event.begin();
+		long phase = System.nanoTime();
+		
 		//Fetch the bare .git file to continue working locally only.
 		this.pullBare();
+		statistics.phaseDone("fetch", phase);
+		phase = System.nanoTime();
 		RevWalk rw = this.getRevWalk();
+		this.m_spaceReserve = null;
+		this.m_snapshotStore = this.m_store ? new SnapshotStore(new File(this.m_target)) : null;
+		this.m_deduplicator = this.m_deduplicate ? new SnapshotDeduplicator() : null;
+		this.m_linker = (this.m_deduplicator != null) ? this.m_deduplicator : new SnapshotDeduplicator();
+		//Incremental snapshots depend on the previous one, a single worker runs them in order.
+		Boolean incremental = this.m_incremental && this.m_archive == null && !this.m_store;
+		MiningExecutor executor;
+		if (this.m_workerPool != null) {
+			executor = new MiningExecutor(this.m_workerPool, incremental ? 1 : this.m_workerCapacity);
+		} else {
+			executor = new MiningExecutor(incremental ? 1 : MAX_NUMBER_OF_THREADS);
+		}
+		statistics.addExecutor(executor);
+		this.m_progress = new ProgressReporter(System.out, this.m_quiet);
+		TreeLineCounter lineCounter = null;
+		GitLogger logger = null;
+		CommitIndexWriter index = null;
+		MinedCommits mined = this.m_update ? MinedCommits.read(this.m_target, this.m_repoName) : null;
+		
+		if (mined != null && mined.isEmpty()) {
+			mined = null;
+		}
+		
+		if (this.m_metricsOnly) {
+			lineCounter = new TreeLineCounter(new LineCounter(this.m_metricsFiles), this.m_headRepository, this.m_filter);
+			this.m_slocWriter = new SLOCWriter(MetricFormat.open(new File(this.m_target), this.m_repoName, this.m_metricFormats, mined != null));
+		}
 		
 		try {
-			//Order all commits from first to last.
-			AnyObjectId headId = this.m_headRepository.resolve(Constants.HEAD);
+			if (!this.m_metricsOnly) {
+				this.m_manifest = new ProgressManifest(this.m_target, this.m_repoName, this.m_resume);
+			}
+			
+			if (!this.m_noLog) {
+				logger = new GitLogger(this.m_target, this.m_repoName, this.m_resume);
+				index = new CommitIndexWriter(this.m_target, this.m_repoName, this.m_resume);
+			}
+			
+			List<RevCommit> commits = this.m_range.walk(this.m_headRepository, rw, mined);
+			int[] range = this.selectRange(commits);
 			int i = 0;
-			rw.sort(RevSort.REVERSE);
-
-			RevCommit root = rw.parseCommit(headId);
-			rw.markStart(root);
-
-			Iterator<RevCommit> revs = rw.iterator();
+			RevCommit previous = null;
+			File previousDir = null;
 			
-			RevCommit current = rw.parseCommit(revs.next());
-			Boolean startFound = this.m_startPoint == null,
-					stopFound = false,
-					checkLimit = this.m_limit != 0;
-			int limit = 0;
-
-			while (true) {
-				if (!stopFound && this.m_endPoint != null) {
-					if (current.getName().toLowerCase().equals(this.m_endPoint.toLowerCase())) {
-						GlobalMessages.miningDone(this.m_repoName);
-						break;
-					}
-				} 
-				if (checkLimit && this.m_limit <= limit) {
-					GlobalMessages.miningDone(this.m_repoName);
-					break;
-				} 
-				if (!startFound) {
-					if (current.getName().toLowerCase().equals(this.m_startPoint.toLowerCase())) {
-						startFound = true;
-					}
-				}
-				if (startFound) {
-					//Should work, but not the most beautiful solution.
-					while (this.m_runningThreads > MAX_NUMBER_OF_THREADS) {
-						try {
-							wait();
-						} catch (Exception e) {}
-					}
-					String name = Integer.toString(i);
-					File file = new File(this.m_target + "/" + name);
-
-					//If the commit already have been mined we remove it in case it's
-					//an older version or another program.
-					if (file.exists()) {
-						Utilities.deleteDirectory(file);
-					}					
+			if (mined != null) {
+				//Only the commits that are new since the last run are walked, the numbering continues.
+				i = mined.getLastNumber() + 1;
+				previousDir = new File(this.m_target, Integer.toString(mined.getLastNumber()));
+				previous = previousDir.exists() ? rw.parseCommit(mined.getLastCommit()) : null;
+				
+				if (this.m_metricsOnly && this.m_slocWriter.getBaseCommit() != null) {
+					ObjectId base = mined.getCommit(this.m_slocWriter.getBaseCommit());
 					
-					new Cloner(current, name, i);
-
-					if (!this.m_noLog) {
-						GitLogger.addNode(this.m_target, this.m_repoName, name, current);
+					if (base != null) {
+						try (ObjectReader objectReader = this.m_headRepository.newObjectReader()) {
+							this.m_slocWriter.setBase(lineCounter.count(objectReader, rw.parseCommit(base).getTree()));
+						}
 					}
-					this.m_runningThreads++;
-					limit++;
 				}
-				if (revs.hasNext()) {
-					current = rw.parseCommit(revs.next());
-					i++;
+			}
+			
+			if (this.m_reserve > 0 && !this.m_metricsOnly) {
+				range[1] = this.reserveSpace(commits, range, i);
+			}
+			
+			this.m_progress.setTotal(range[1] - range[0]);
+			this.m_progress.start();
+			int first = i, limit = 0;
+
+			for (int c = range[0]; c < range[1] && !executor.hasFailed(); c++) {
+				RevCommit current = rw.parseCommit(commits.get(c));
+				i = first + c;
+				String name = Integer.toString(i);
+				File file = this.getSnapshot(i);
+				Boolean done = this.isDone(i);
+
+				//If the commit already have been mined we remove it in case it's
+				//an older version, another program or half written by an earlier run.
+				if (!this.m_metricsOnly && !done && file.exists()) {
+					Utilities.deleteSnapshot(file);
+				}					
+				
+				//Blocks while all workers are busy and the queue is full.
+				if (done) {
+					//Finished by an earlier run.
+					previous = current;
+					previousDir = file;
+					this.m_progress.commitDone();
+				} else if (this.m_metricsOnly) {
+					this.m_slocWriter.expect(i);
+					executor.submit(current, new MetricsCounter(lineCounter, current, i));
+				} else if (this.m_store) {
+					executor.submit(current, new StoreCloner(current, name, i));
+				} else if (this.m_archive != null) {
+					executor.submit(current, new ArchiveCloner(current, name, i));
+				} else if (this.m_incremental) {
+					executor.submit(current, new IncrementalCloner(previous, previousDir, current, name, i));
+					previous = current;
+					previousDir = file;
 				} else {
-					//Ugly but working to clean up after multiple threads.
-					while (this.m_runningThreads > 0) {
-						Thread.sleep(200);
-					}
-					GlobalMessages.miningDone(this.m_repoName);
-					break;
+					executor.submit(current, new Cloner(current, name, i));
+				}
+
+				long logStart = System.nanoTime();
+				if (logger != null && !logger.isLogged(i)) {
+					logger.addNode(name, current);
+				}
+				if (index != null && !index.contains(i)) {
+					index.addCommit(i, current);
 				}
+				if (logger != null) {
+					statistics.logAppended(System.nanoTime() - logStart);
+				}
+				limit++;
 			}
+			
+			statistics.phaseDone("walk", phase);
+			phase = System.nanoTime();
+			
+			executor.awaitCompletion();
+			statistics.phaseDone("drain", phase);
+			this.m_commitCount = limit;
 		} catch (Exception e) {
+			//Nothing below may be closed while tasks still use it.
+			executor.cancel(e);
 			this.errorHandlingMining(e, null);
+		} finally {
+			phase = System.nanoTime();
+			executor.shutdown();
+			statistics.removeExecutor(executor);
+			this.m_progress.stop();
+			rw.close();
+			
+			//Also closed on failure so a resumed run can continue from here.
+			if (logger != null) {
+				logger.close();
+			}
+			
+			if (index != null) {
+				index.close();
+			}
+			
+			if (this.m_manifest != null) {
+				this.m_manifest.close();
+			}
+			
+			if (this.m_slocWriter != null) {
+				this.m_slocWriter.close();
+			}
+			
+			if (this.m_headRepository != null) {
+				this.m_headRepository.close();
+			}
+			
+			statistics.phaseDone("close", phase);
+			
+			event.end();
+			if (event.shouldCommit()) {
+				event.repository = this.m_repoName;
+				event.target = this.m_target;
+				event.commits = this.m_commitCount;
+				event.commit();
+			}
+		}
+		
+		if (executor.hasFailed()) {
+			this.errorHandlingMining(executor.getFailure(), executor.getFailedCommit());
+		}
+		
+		GlobalMessages.miningDone(this.m_repoName);
+	}
+
+	/**
+	 * Print an estimate of what mining would write, without writing any
+	 * snapshots. A target created to fetch the repository is removed.
+	 * @throws Exception
+	 */
+	private void plan() throws Exception {
+		File target = new File(this.m_target);
+		File created = target.getAbsoluteFile();
+		
+		//The first directory the fetch creates.
+		while (created.getParentFile() != null && !created.getParentFile().exists()) {
+			created = created.getParentFile();
+		}
+		
+		Boolean existed = created.exists();
+		
+		try {
+			this.pullBare();
+			MinedCommits mined = this.m_update ? MinedCommits.read(this.m_target, this.m_repoName) : null;
+			
+			if (mined != null && mined.isEmpty()) {
+				mined = null;
+			}
+			
+			try (RevWalk rw = new RevWalk(this.m_headRepository);
+					SpacePlan plan = this.newSpacePlan()) {
+				List<RevCommit> commits = this.m_range.walk(this.m_headRepository, rw, mined);
+				int[] range = this.selectRange(commits);
+				
+				for (int c = range[0]; c < range[1]; c++) {
+					plan.add(commits.get(c));
+				}
+				
+				plan.print(System.out, this.m_repoName, target);
+			}
+		} finally {
+			if (this.m_headRepository != null) {
+				this.m_headRepository.close();
+			}
+			
+			if (!existed) {
+				Utilities.deleteDirectory(created);
+			}
+		}
+	}
+	
+	/**
+	 * Find the commits to mine from the limit.
+	 * @param commits Commits from first to last.
+	 * @return Index of the first commit and the index after the last.
+	 */
+	private int[] selectRange(List<RevCommit> commits) {
+		int to = commits.size();
+		
+		if (this.m_limit != 0) {
+			to = Math.min(to, Math.max(this.m_limit, 0));
+		}
+		
+		return new int[] { 0, to };
+	}
+	
+	/**
+	 * Check if a commit was finished by an earlier run.
+	 * @param i Number of the commit.
+	 * @return Boolean
+	 */
+	private Boolean isDone(int i) {
+		return this.m_manifest != null && this.m_manifest.isDone(i) && this.getSnapshot(i).exists();
+	}
+	
+	/**
+	 * Get the directory, or archive, a commit is written to.
+	 * @param i Number of the commit.
+	 * @return File
+	 */
+	private File getSnapshot(int i) {
+		String name = Integer.toString(i);
+		
+		if (this.m_store) {
+			return new File(this.m_target, name + SnapshotStore.SUFFIX);
 		}
 		
-		if (this.m_headRepository != null) {
-			this.m_headRepository.close();
+		return new File(this.m_target, (this.m_archive != null) ? name + this.m_archive.getSuffix() : name);
+	}
+	
+	/**
+	 * Create a plan of the space the commits take up.
+	 * @return SpacePlan
+	 */
+	private SpacePlan newSpacePlan() {
+		//Archives are written whole, only identical snapshots are linked.
+		SpacePlan plan = new SpacePlan(this.m_headRepository, this.m_filter, 
+				this.m_store || ((this.m_deduplicate || this.m_incremental) && this.m_archive == null));
+		plan.setArchive(this.m_store ? null : this.m_archive);
+		plan.setStore(this.m_store);
+		
+		return plan;
+	}
+	
+	/**
+	 * Plan the commits to write and shorten the run to the ones that fit
+	 * above the reserve. Every commit is checked again before it is
+	 * written, as other programs may use the disk as well.
+	 * @param commits Commits from first to last.
+	 * @param range Commits to mine.
+	 * @param first Number of the first commit.
+	 * @return Index after the last commit that fits.
+	 * @throws Exception
+	 */
+	private int reserveSpace(List<RevCommit> commits, int[] range, int first) throws Exception {
+		long reserve = (long) this.m_reserve * 1024 * 1024;
+		long available = SpacePlan.usableSpace(new File(this.m_target)) - reserve, needed = 0;
+		int end = range[0];
+		
+		//Closed right away, the estimates are kept for the SpaceReserve.
+		try (SpacePlan plan = this.newSpacePlan()) {
+			for (int c = range[0]; c < range[1]; c++) {
+				if (this.isDone(first + c)) {
+					plan.addWritten(commits.get(c));
+				} else if ((needed += plan.add(commits.get(c))) > available) {
+					break;
+				}
+				
+				end = c + 1;
+			}
+			
+			this.m_spaceReserve = new SpaceReserve(new File(this.m_target), reserve, plan);
+		}
+		
+		if (end == range[0] && range[1] > range[0]) {
+			throw new OutOfSpaceException("Not enough space for the first commit.", commits.get(range[0]).getName());
+		} else if (end < range[1]) {
+			GlobalMessages.runShortened(end - range[0], range[1] - range[0]);
 		}
+		
+		return end;
 	}
 
 	/**
@@ -298,7 +677,9 @@ public class GitRepository {
 	 * @throws Exception 
 	 */
 	private void errorHandlingMining(Exception e, RevCommit current) throws Exception {
-		if (e.getMessage().contains("not enough space")) {
+		if (e instanceof OutOfSpaceException) {
+			throw e;
+		} else if (e.getMessage() != null && e.getMessage().contains("not enough space")) {
 			throw new OutOfSpaceException(e.getMessage(), (current != null ? current.getName() : "Initial commit"));
 		} else {
 			throw e;
@@ -318,6 +699,24 @@ public class GitRepository {
 		return new RevWalk(this.m_headRepository);
 	}
 
+	/**
+	 * Create a TreeWalk that only returns the files to mine.
+	 * @param objectReader Reader of the head repository.
+	 * @return TreeWalk
+	 */
+	private TreeWalk newTreeWalk(ObjectReader objectReader) {
+		if (this.m_filter == null) {
+			return new TreeWalk(objectReader);
+		}
+		
+		//Attributes are only read by a TreeWalk knowing the repository.
+		TreeWalk treeWalk = this.m_filter.usesAttributes() ? 
+				new TreeWalk(this.m_headRepository, objectReader) : new TreeWalk(objectReader);
+		treeWalk.setFilter(this.m_filter);
+		
+		return treeWalk;
+	}
+
 	/**
 	 * Add project name to target string. Used to create a new directory at the
 	 * target directory with the project name.
@@ -353,6 +752,34 @@ public class GitRepository {
 		return this.m_target;
 	}
 
+	/**
+	 * Mine on a pool shared with other repositories instead of an own one.
+	 * @param pool Pool created by MiningExecutor.newWorkerPool.
+	 * @param capacity Number of commits of this repository that can be
+	 * mined or queued at the same time.
+	 */
+	public void setWorkerPool(ThreadPoolExecutor pool, int capacity) {
+		this.m_workerPool = pool;
+		this.m_workerCapacity = capacity;
+	}
+	
+	/**
+	 * Check if the mining is skipped because the target already existed.
+	 * @return Boolean
+	 */
+	public Boolean isSkipped() {
+		return this.m_skipped;
+	}
+	
+	/**
+	 * Get the number of commits handled by the last call to mine(),
+	 * including commits finished by an earlier run.
+	 * @return int
+	 */
+	public int getCommitCount() {
+		return this.m_commitCount;
+	}
+
 	/**
 	 * Get the project name.
 	 * @return String
@@ -361,84 +788,445 @@ public class GitRepository {
 		return this.m_repoName;
 	}
 	
-	class Cloner implements Runnable {
+	/**
+	 * Get the commits that are mined, to number them the same way
+	 * when the log is not written.
+	 * @return CommitRange
+	 */
+	public CommitRange getCommitRange() {
+		return this.m_range;
+	}
+	
+	class Cloner implements Callable<Void> {
 
-		private String m_name;
-		private int m_i;
-		private RevCommit m_current;
-		private Thread m_thread;
+		protected String m_name;
+		protected int m_i;
+		protected RevCommit m_current;
 
-		public Cloner(RevCommit current, String name, int i) throws Exception {	    
+		public Cloner(RevCommit current, String name, int i) {	    
 			this.m_current = current;
 			this.m_name = name;
 			this.m_i = i;
-			this.m_thread = new Thread(this);
-			this.m_thread.start();
 		}
 		
-		private void cloneCommit() throws Exception{
-			try(ObjectReader objectReader = m_headRepository.newObjectReader()){
-				try{
-					File mineDir = new File(m_target, this.m_name);
+		private void cloneCommit() throws Exception {
+			long held = (m_spaceReserve != null) ? m_spaceReserve.admit(this.m_current) : 0;
+			
+			try (ObjectReader objectReader = m_headRepository.newObjectReader()) {
+				File mineDir = this.createOutput();
 
-					if(!mineDir.exists()){
-						mineDir.mkdir();
-						mineDir.setWritable(true);
-						mineDir.setExecutable(true);
-					}
+				CommitEvent event = new CommitEvent();
+				event.begin();
+				this.materialize(objectReader, mineDir);
+				event.end();
+				
+				m_manifest.done(this.m_i);
+				MiningStatistics.getDefault().commitMaterialized();
+				
+				if (event.shouldCommit()) {
+					event.commit = this.m_current.getName();
+					event.number = this.m_i;
+					event.mode = this.getMode();
+					event.commit();
+				}
 
-					TreeWalk treeWalk = new TreeWalk(objectReader);
-					treeWalk.addTree(m_current.getTree());
-
-					while(treeWalk.next()){
-						String path = treeWalk.getPathString();
-						File file = new File(mineDir, path);
-						if(treeWalk.isSubtree()){
-							file.mkdir();
-							treeWalk.enterSubtree();
-						}else{
-							FileOutputStream outputStream = new FileOutputStream(file);
-							ObjectId objectId = treeWalk.getObjectId(0);
-							ObjectLoader objectLoader = objectReader.open(objectId);
-							try{
-								objectLoader.copyTo(outputStream);
-							}finally{
-								outputStream.close();
-							}
-
-							if(FileMode.EXECUTABLE_FILE.equals(treeWalk.getRawMode(0))){
-								file.setExecutable(true);
-							}
-						}
+				m_progress.commitDone();
+			} finally {
+				if (m_spaceReserve != null) {
+					m_spaceReserve.release(held);
+				}
+			}
+		}
+		
+		/**
+		 * Create the directory of the commit.
+		 * @return File
+		 */
+		protected File createOutput() {
+			File mineDir = new File(m_target, this.m_name);
+
+			if (!mineDir.exists()) {
+				mineDir.mkdir();
+				mineDir.setWritable(true);
+				mineDir.setExecutable(true);
+			}
+			
+			return mineDir;
+		}
+		
+		/**
+		 * Get how the commit is written, shown in flight recordings.
+		 * @return String
+		 */
+		protected String getMode() {
+			return "full";
+		}
+		
+		/**
+		 * Write the content of the commit to its directory.
+		 * @param objectReader Reader of the head repository.
+		 * @param mineDir Directory of the commit.
+		 * @throws Exception
+		 */
+		protected void materialize(ObjectReader objectReader, File mineDir) throws Exception {
+			File snapshot = (m_deduplicator != null) ? m_deduplicator.getSnapshot(this.m_current.getTree()) : null;
+
+			if (snapshot != null) {
+				//Same content as an earlier commit.
+				m_deduplicator.linkSnapshot(snapshot, mineDir);
+			} else {
+				this.writeTree(objectReader, mineDir);
+				
+				if (m_deduplicator != null) {
+					m_deduplicator.snapshotWritten(this.m_current.getTree(), mineDir);
+				}
+			}
+		}
+		
+		private void writeTree(ObjectReader objectReader, File mineDir) throws Exception {
+			TreeWalk treeWalk = newTreeWalk(objectReader);
+			treeWalk.addTree(this.m_current.getTree());
+			File created = mineDir;
+
+			while (treeWalk.next()) {
+				String path = treeWalk.getPathString();
+				File file = new File(mineDir, path);
+				if (treeWalk.isSubtree()) {
+					treeWalk.enterSubtree();
+				} else {
+					//Directories are made for the files written to them, so
+					//directories without files that pass the filter are left out.
+					if (!file.getParentFile().equals(created)) {
+						created = file.getParentFile();
+						created.mkdirs();
 					}
+					this.writeBlob(objectReader, treeWalk.getObjectId(0), 
+							FileMode.EXECUTABLE_FILE.equals(treeWalk.getRawMode(0)), file);
+				}
+			}
+		}
+		
+		/**
+		 * Write a single blob to a file, or link it when deduplicating.
+		 * @param objectReader Reader of the head repository.
+		 * @param objectId Id of the blob.
+		 * @param executable True if the file should be executable.
+		 * @param file File to write.
+		 * @throws Exception
+		 */
+		protected void writeBlob(ObjectReader objectReader, ObjectId objectId, Boolean executable, File file) throws Exception {
+			if (m_deduplicator != null && m_deduplicator.linkBlob(objectId, executable, file)) {
+				MiningStatistics.getDefault().blobLinked();
+				return;
+			}
+			
+			BlobWriteEvent event = new BlobWriteEvent();
+			event.begin();
+			long start = System.nanoTime();
+			FileOutputStream outputStream = new FileOutputStream(file);
+			ObjectLoader objectLoader = objectReader.open(objectId);
+			try {
+				objectLoader.copyTo(outputStream);
+			} finally {
+				outputStream.close();
+			}
+			MiningStatistics.getDefault().blobWritten(objectLoader.getSize(), System.nanoTime() - start);
+			
+			event.end();
+			if (event.shouldCommit()) {
+				event.blob = objectId.getName();
+				event.path = file.getPath();
+				event.bytes = objectLoader.getSize();
+				event.commit();
+			}
 
-					GlobalMessages.commitPulled(this.m_i, this.m_current.getName());
+			if (executable) {
+				file.setExecutable(true);
+			}
+			
+			if (m_deduplicator != null) {
+				m_deduplicator.blobWritten(objectId, executable, file);
+			}
+		}
+		
+		/**
+		 * Runs on one of the mining workers. Exceptions are passed on to
+		 * the MiningExecutor which hands them to errorHandlingMining.
+		 */
+		@Override
+		public Void call() throws Exception {
+			this.cloneCommit();
+			return null;
+		}
+	}
+	
+	/**
+	 * Builds a snapshot by linking the snapshot of the previously mined
+	 * commit and applying the difference between the two trees. Relies on
+	 * the previous snapshot being complete, so these are run one at a time.
+	 */
+	class IncrementalCloner extends Cloner {
+		
+		private RevCommit m_previous;
+		private File m_previousDir;
+		
+		public IncrementalCloner(RevCommit previous, File previousDir, RevCommit current, String name, int i) {
+			super(current, name, i);
+			this.m_previous = previous;
+			this.m_previousDir = previousDir;
+		}
+		
+		@Override
+		protected String getMode() {
+			return "incremental";
+		}
+		
+		@Override
+		protected void materialize(ObjectReader objectReader, File mineDir) throws Exception {
+			if (this.m_previous == null || this.attributesChanged(objectReader)) {
+				super.materialize(objectReader, mineDir);
+				return;
+			}
+			
+			m_linker.linkSnapshot(this.m_previousDir, mineDir);
+			
+			TreeWalk treeWalk = newTreeWalk(objectReader);
+			treeWalk.addTree(this.m_previous.getTree());
+			treeWalk.addTree(this.m_current.getTree());
+			treeWalk.setRecursive(true);
+			treeWalk.setFilter(m_filter == null ? TreeFilter.ANY_DIFF : AndTreeFilter.create(TreeFilter.ANY_DIFF, m_filter));
+			
+			List<DiffEntry> entries = DiffEntry.scan(treeWalk);
+			Map<ObjectId, DiffEntry> removed = new HashMap<ObjectId, DiffEntry>();
+			
+			//Remove old paths first, a deleted file might be replaced by a directory.
+			for (DiffEntry entry : entries) {
+				if (entry.getChangeType() == ChangeType.DELETE || entry.getChangeType() == ChangeType.MODIFY) {
+					this.remove(mineDir, entry.getOldPath());
+					
+					if (entry.getChangeType() == ChangeType.DELETE) {
+						removed.put(entry.getOldId().toObjectId(), entry);
+					}
+				}
+			}
+			
+			for (DiffEntry entry : entries) {
+				if (entry.getChangeType() != ChangeType.ADD && entry.getChangeType() != ChangeType.MODIFY) {
+					continue;
+				}
+				
+				File file = new File(mineDir, entry.getNewPath());
+				file.getParentFile().mkdirs();
+				
+				ObjectId objectId = entry.getNewId().toObjectId();
+				Boolean executable = FileMode.EXECUTABLE_FILE.equals(entry.getNewMode());
+				DiffEntry renamedFrom = removed.get(objectId);
+				
+				if (renamedFrom != null && entry.getChangeType() == ChangeType.ADD 
+						&& entry.getNewMode().equals(renamedFrom.getOldMode())) {
+					//Exact rename, the old file is still in the previous snapshot.
+					m_linker.linkFile(new File(this.m_previousDir, renamedFrom.getOldPath()), file);
+					MiningStatistics.getDefault().blobLinked();
+				} else {
+					this.writeBlob(objectReader, objectId, executable, file);
+				}
+			}
+		}
+		
+		/**
+		 * When files are filtered on their attributes a changed .gitattributes
+		 * can include or exclude files that did not change, the commit is then
+		 * written in full.
+		 */
+		private Boolean attributesChanged(ObjectReader objectReader) throws Exception {
+			if (m_filter == null || !m_filter.usesAttributes()) {
+				return false;
+			}
+			
+			TreeWalk treeWalk = new TreeWalk(objectReader);
+			treeWalk.addTree(this.m_previous.getTree());
+			treeWalk.addTree(this.m_current.getTree());
+			treeWalk.setRecursive(true);
+			treeWalk.setFilter(AndTreeFilter.create(TreeFilter.ANY_DIFF, PathSuffixFilter.create(Constants.DOT_GIT_ATTRIBUTES)));
+			
+			return treeWalk.next();
+		}
+		
+		/**
+		 * Remove a file and any directories that became empty.
+		 */
+		private void remove(File mineDir, String path) {
+			File file = new File(mineDir, path);
+			file.delete();
+			
+			File parent = file.getParentFile();
+			while (!parent.equals(mineDir) && parent.delete()) {
+				parent = parent.getParentFile();
+			}
+		}
+	}
+	
+	/**
+	 * Streams the snapshot of a commit into a single archive instead of
+	 * writing one file per blob.
+	 */
+	class ArchiveCloner extends Cloner {
+		
+		public ArchiveCloner(RevCommit current, String name, int i) {
+			super(current, name, i);
+		}
+		
+		@Override
+		protected File createOutput() {
+			return getSnapshot(this.m_i);
+		}
+		
+		@Override
+		protected String getMode() {
+			return "archive";
+		}
+		
+		@Override
+		protected void materialize(ObjectReader objectReader, File archive) throws Exception {
+			File snapshot = (m_deduplicator != null) ? m_deduplicator.getSnapshot(this.m_current.getTree()) : null;
 
-					m_runningThreads--;
+			if (snapshot != null) {
+				//Same content as an earlier commit.
+				m_deduplicator.linkFile(snapshot, archive);
+				return;
+			}
+			
+			try (SnapshotArchiveWriter writer = new SnapshotArchiveWriter(archive, m_archive, this.m_current.getCommitTime() * 1000L)) {
+				TreeWalk treeWalk = newTreeWalk(objectReader);
+				treeWalk.addTree(this.m_current.getTree());
 
-				}catch(Exception e){
-					errorHandlingMining(e, this.m_current);
+				while (treeWalk.next()) {
+					String path = treeWalk.getPathString();
+					FileMode mode = treeWalk.getFileMode(0);
+					
+					if (treeWalk.isSubtree()) {
+						treeWalk.enterSubtree();
+					} else if (mode != FileMode.GITLINK) {
+						BlobWriteEvent event = new BlobWriteEvent();
+						event.begin();
+						long start = System.nanoTime();
+						ObjectLoader objectLoader = objectReader.open(treeWalk.getObjectId(0));
+						writer.addFile(path, mode, objectLoader);
+						MiningStatistics.getDefault().blobWritten(objectLoader.getSize(), System.nanoTime() - start);
+						
+						event.end();
+						if (event.shouldCommit()) {
+							event.blob = treeWalk.getObjectId(0).getName();
+							event.path = archive.getPath() + "!" + path;
+							event.bytes = objectLoader.getSize();
+							event.commit();
+						}
+					}
 				}
 			}
+			
+			if (m_deduplicator != null) {
+				m_deduplicator.snapshotWritten(this.m_current.getTree(), archive);
+			}
+		}
+	}
+	
+	/**
+	 * Stores the blobs of a commit that are not stored yet and writes the
+	 * manifest of the commit.
+	 */
+	class StoreCloner extends Cloner {
+		
+		public StoreCloner(RevCommit current, String name, int i) {
+			super(current, name, i);
 		}
 		
 		@Override
-		public void run() {	
-			this.guardedCloner();
+		protected File createOutput() {
+			return getSnapshot(this.m_i);
 		}
 		
-		public synchronized void guardedCloner() {
+		@Override
+		protected String getMode() {
+			return "store";
+		}
+		
+		@Override
+		protected void materialize(ObjectReader objectReader, File manifest) throws Exception {
+			try (SnapshotStore.ManifestWriter writer = m_snapshotStore.createManifest(manifest)) {
+				TreeWalk treeWalk = newTreeWalk(objectReader);
+				treeWalk.addTree(this.m_current.getTree());
+				treeWalk.setRecursive(true);
 
-			try {
-				this.cloneCommit();
-			} catch (Exception e) {
-				if (e.getMessage().contains("not enough space")) {
-					ExceptionHandler.HandleException(new OutOfSpaceException(e.getMessage(), (this.m_current != null ? this.m_current.getName() : "Initial commit")));
-				} else {
-					ExceptionHandler.HandleException(e);
+				while (treeWalk.next()) {
+					FileMode mode = treeWalk.getFileMode(0);
+					
+					if (mode == FileMode.GITLINK) {
+						continue;
+					}
+					
+					ObjectId objectId = treeWalk.getObjectId(0);
+					BlobWriteEvent event = new BlobWriteEvent();
+					event.begin();
+					long start = System.nanoTime();
+					long bytes = m_snapshotStore.store(objectReader, objectId);
+					
+					if (bytes < 0) {
+						MiningStatistics.getDefault().blobLinked();
+					} else {
+						MiningStatistics.getDefault().blobWritten(bytes, System.nanoTime() - start);
+						
+						event.end();
+						if (event.shouldCommit()) {
+							event.blob = objectId.getName();
+							event.path = treeWalk.getPathString();
+							event.bytes = bytes;
+							event.commit();
+						}
+					}
+					
+					writer.add(treeWalk.getPathString(), mode, objectId);
 				}
 			}
-			notifyAll();
+		}
+	}
+	
+	/**
+	 * Measures the lines of a commit without writing it to disk.
+	 */
+	class MetricsCounter implements Callable<Void> {
+		
+		private TreeLineCounter m_lineCounter;
+		private RevCommit m_current;
+		private int m_i;
+		
+		public MetricsCounter(TreeLineCounter lineCounter, RevCommit current, int i) {
+			this.m_lineCounter = lineCounter;
+			this.m_current = current;
+			this.m_i = i;
+		}
+		
+		@Override
+		public Void call() throws Exception {
+			CommitEvent event = new CommitEvent();
+			event.begin();
+			
+			try (ObjectReader objectReader = m_headRepository.newObjectReader()) {
+				m_slocWriter.add(this.m_i, this.m_current, this.m_current.getCommitTime(), 
+						this.m_lineCounter.count(objectReader, this.m_current.getTree()));
+			}
+			
+			event.end();
+			if (event.shouldCommit()) {
+				event.commit = this.m_current.getName();
+				event.number = this.m_i;
+				event.mode = "metrics";
+				event.commit();
+			}
+			
+			m_progress.commitDone();
+			
+			return null;
 		}
 	}
 }
@@ -0,0 +1,169 @@
+package se.lnu.cs.doris.git;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+import se.lnu.cs.doris.global.GlobalStrings;
+
+/**
+ * The commits of an earlier mining result by their commit number, read
+ * from the commit index or, if there is none, from the xml log.
+ *
+ * @author Emil Carlsson
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+public class MinedCommits {
+
+	private TreeMap<Integer, ObjectId> m_commits = new TreeMap<Integer, ObjectId>();
+	private Map<Integer, Integer> m_times = new HashMap<Integer, Integer>();
+
+	private MinedCommits() {
+	}
+
+	/**
+	 * Read the commits of a mining result.
+	 * @param target Path to the mining base dir.
+	 * @param repoName Name of the repository.
+	 * @return MinedCommits or null if there is no index or log to read.
+	 */
+	public static MinedCommits read(String target, String repoName) {
+		File index = new File(target, repoName + CommitIndexWriter.INDEX_SUFFIX);
+		File log = new File(target, repoName + ".xml");
+
+		if (index.exists()) {
+			try {
+				return readIndex(target, repoName);
+			} catch (Exception e) {
+				//Try the log instead.
+			}
+		}
+
+		if (log.exists()) {
+			try {
+				return readLog(log);
+			} catch (Exception e) {
+				//Unreadable log.
+			}
+		}
+
+		return null;
+	}
+
+	public Boolean isEmpty() {
+		return this.m_commits.isEmpty();
+	}
+
+	/**
+	 * Get the highest commit number.
+	 * @return Commit number, -1 if no commit was mined.
+	 */
+	public int getLastNumber() {
+		return this.isEmpty() ? -1 : this.m_commits.lastKey();
+	}
+
+	/**
+	 * Get the commit with the highest commit number.
+	 * @return ObjectId or null if no commit was mined.
+	 */
+	public ObjectId getLastCommit() {
+		return this.isEmpty() ? null : this.m_commits.lastEntry().getValue();
+	}
+
+	/**
+	 * Get a commit by its number.
+	 * @param number Commit number.
+	 * @return ObjectId or null if the number wasn't mined.
+	 */
+	public ObjectId getCommit(int number) {
+		return this.m_commits.get(number);
+	}
+
+	/**
+	 * Get the commit time of a commit by its number.
+	 * @param number Commit number.
+	 * @return Seconds since the epoch, 0 if the number wasn't mined.
+	 */
+	public int getCommitTime(int number) {
+		Integer time = this.m_times.get(number);
+
+		return (time != null) ? time : 0;
+	}
+
+	/**
+	 * Get all commits ordered by their number.
+	 * @return Map from commit number to commit.
+	 */
+	public Map<Integer, ObjectId> getCommits() {
+		return this.m_commits;
+	}
+
+	private static MinedCommits readIndex(String target, String repoName) throws Exception {
+		MinedCommits commits = new MinedCommits();
+
+		try (CommitIndexReader index = new CommitIndexReader(target, repoName)) {
+			for (int i = 0; i < index.size(); i++) {
+				if (index.contains(i)) {
+					commits.m_commits.put(i, index.getCommitId(i));
+					commits.m_times.put(i, index.getCommitTime(i));
+				}
+			}
+		}
+
+		return commits;
+	}
+
+	private static MinedCommits readLog(File log) throws Exception {
+		MinedCommits commits = new MinedCommits();
+
+		try (InputStream stream = new FileInputStream(log)) {
+			XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(stream);
+
+			try {
+				while (reader.hasNext()) {
+					if (reader.next() == XMLStreamConstants.START_ELEMENT
+							&& reader.getLocalName().equals(GlobalStrings.COMMIT)) {
+						int number = Integer.parseInt(reader.getAttributeValue(null, GlobalStrings.COMMIT_NUMBER));
+						String time = reader.getAttributeValue(null, GlobalStrings.COMMIT_TIME);
+
+						commits.m_commits.put(number, ObjectId.fromString(reader.getAttributeValue(null, GlobalStrings.COMMIT_NAME)));
+						if (time != null) {
+							commits.m_times.put(number, Integer.parseInt(time));
+						}
+					}
+				}
+			} catch (XMLStreamException e) {
+				//The log of a stopped mining ends without closing the project node.
+			}
+
+			reader.close();
+		}
+
+		return commits;
+	}
+}
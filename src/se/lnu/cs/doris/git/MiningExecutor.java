@@ -0,0 +1,242 @@
+package se.lnu.cs.doris.git;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/**
+ * Fixed size worker pool used to mine commits in parallel.
+ *
+ * Every submitted task holds a permit until it has finished, so
+ * submitting blocks when all workers are busy and the queue is full.
+ * The first task that fails is remembered together with its commit
+ * and no further tasks are started after that.
+ *
+ * Several executors can share one pool, as when mining a batch of
+ * repositories. Each of them then holds at most its own number of
+ * permits, so no repository can fill the pool on its own.
+ *
+ * @author Emil Carlsson
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+public class MiningExecutor {
+
+	private final ThreadPoolExecutor m_pool;
+	private final Semaphore m_permits;
+	private final int m_capacity;
+	private final Boolean m_shared;
+
+	private Exception m_failure = null;
+	private RevCommit m_failedCommit = null;
+
+	/**
+	 * Constructor taking the number of workers.
+	 * The same number of tasks can be queued while all workers are busy.
+	 * @param workers Number of worker threads.
+	 */
+	public MiningExecutor(int workers) {
+		this(workers, workers);
+	}
+
+	/**
+	 * Constructor taking the number of workers and the queue size.
+	 * @param workers Number of worker threads.
+	 * @param queueSize Number of tasks that can wait for a free worker.
+	 */
+	public MiningExecutor(int workers, int queueSize) {
+		this.m_capacity = workers + queueSize;
+		this.m_permits = new Semaphore(this.m_capacity);
+		this.m_shared = false;
+		this.m_pool = new ThreadPoolExecutor(
+				workers,
+				workers,
+				0L,
+				TimeUnit.MILLISECONDS,
+				//A finished task gives back its permit before its worker takes
+				//the next task, so the queue must fit every permit.
+				new ArrayBlockingQueue<Runnable>(this.m_capacity),
+				new MinerThreadFactory());
+	}
+
+	/**
+	 * Constructor taking a pool shared with other executors.
+	 * @param pool Pool created by newWorkerPool.
+	 * @param capacity Number of tasks of this executor that can be
+	 * running or queued at the same time.
+	 */
+	public MiningExecutor(ThreadPoolExecutor pool, int capacity) {
+		this.m_capacity = capacity;
+		this.m_permits = new Semaphore(this.m_capacity);
+		this.m_shared = true;
+		this.m_pool = pool;
+	}
+
+	/**
+	 * Create a pool that several executors can share. The queue is not
+	 * bounded, the permits of the executors bound it.
+	 * @param workers Number of worker threads.
+	 * @return ThreadPoolExecutor
+	 */
+	public static ThreadPoolExecutor newWorkerPool(int workers) {
+		return new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), new MinerThreadFactory());
+	}
+
+	/**
+	 * Submit a task mining a commit. Blocks until there is room for it.
+	 * If an earlier task have failed the task is not started.
+	 * @param commit The commit the task works on.
+	 * @param task Task to run.
+	 * @throws InterruptedException
+	 */
+	public void submit(final RevCommit commit, final Callable<?> task) throws InterruptedException {
+		this.m_permits.acquire();
+
+		if (this.hasFailed()) {
+			this.m_permits.release();
+			return;
+		}
+
+		try {
+			this.m_pool.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						if (!hasFailed()) {
+							task.call();
+						}
+					} catch (Exception e) {
+						fail(e, commit);
+					} finally {
+						m_permits.release();
+					}
+				}
+			});
+		} catch (RuntimeException e) {
+			this.m_permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Blocks until every submitted task have finished.
+	 * @throws InterruptedException
+	 */
+	public void awaitCompletion() throws InterruptedException {
+		this.m_permits.acquire(this.m_capacity);
+		this.m_permits.release(this.m_capacity);
+	}
+
+	/**
+	 * Stop after the submitting thread failed. Tasks still queued are
+	 * skipped and the running ones are waited for, so the resources they
+	 * use can be closed afterwards.
+	 * @param e Exception of the submitting thread.
+	 */
+	public void cancel(Exception e) {
+		this.fail(e, null);
+		this.m_permits.acquireUninterruptibly(this.m_capacity);
+		this.m_permits.release(this.m_capacity);
+	}
+
+	/**
+	 * Stops the worker threads. Tasks already running are finished first.
+	 * A shared pool is left running for the other executors.
+	 */
+	public void shutdown() {
+		if (!this.m_shared) {
+			this.m_pool.shutdown();
+		}
+	}
+
+	/**
+	 * Check if any task have failed.
+	 * @return True if a task have thrown an exception.
+	 */
+	public synchronized Boolean hasFailed() {
+		return this.m_failure != null;
+	}
+
+	/**
+	 * Get the exception thrown by the first failing task.
+	 * @return Exception or null if no task have failed.
+	 */
+	public synchronized Exception getFailure() {
+		return this.m_failure;
+	}
+
+	/**
+	 * Get the commit of the first failing task.
+	 * @return RevCommit or null if no task have failed.
+	 */
+	public synchronized RevCommit getFailedCommit() {
+		return this.m_failedCommit;
+	}
+
+	/**
+	 * Get the pool running the tasks.
+	 * @return ThreadPoolExecutor
+	 */
+	public ThreadPoolExecutor getPool() {
+		return this.m_pool;
+	}
+
+	/**
+	 * Number of tasks waiting for a free worker.
+	 * @return Queue depth.
+	 */
+	public int getQueueDepth() {
+		return this.m_pool.getQueue().size();
+	}
+
+	/**
+	 * Number of workers currently running a task.
+	 * @return Active workers.
+	 */
+	public int getActiveWorkers() {
+		return this.m_pool.getActiveCount();
+	}
+
+	private synchronized void fail(Exception e, RevCommit commit) {
+		if (this.m_failure == null) {
+			this.m_failure = e;
+			this.m_failedCommit = commit;
+		}
+	}
+
+	/**
+	 * Names the worker threads so they can be told apart in stack dumps.
+	 */
+	private static class MinerThreadFactory implements ThreadFactory {
+		private final AtomicInteger m_count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "doris-miner-" + this.m_count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package se.lnu.cs.doris.git;
+
+/**
+ * What to do when the target directory of a repository already exists
+ * and the mining is not resumed.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public enum OverwritePolicy {
+	/** Ask on the console, the default when mining a single repository. */
+	ASK,
+	/** Delete the earlier result. */
+	OVERWRITE,
+	/** Mine to a new directory with a number appended. */
+	RENAME,
+	/** Leave the earlier result and do not mine, the default of a batch. */
+	SKIP,
+	/** Continue the earlier result as with --resume. */
+	RESUME;
+
+	/**
+	 * Parse the name of a policy.
+	 * @param name Name, e.g. overwrite or skip.
+	 * @return OverwritePolicy or null if the name is null.
+	 */
+	public static OverwritePolicy parse(String name) {
+		if (name == null) {
+			return null;
+		}
+
+		try {
+			return valueOf(name.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Unknown overwrite policy " + name + ".");
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package se.lnu.cs.doris.git;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+import se.lnu.cs.doris.global.GlobalStrings;
+import se.lnu.cs.doris.global.Utilities;
+
+/**
+ * Durable record of which commits have been completely mined, kept in the
+ * target directory as &lt;repository&gt;.progress with one commit number
+ * per line. Every number is written straight to the file when its commit
+ * is done, so the record survives the program being halted, and the file
+ * is synced to disk regularly so it survives a system crash as well.
+ *
+ * @author Emil Carlsson
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+public class ProgressManifest {
+
+	public static final String SUFFIX = ".progress";
+
+	//Number of finished commits between syncs to disk.
+	private static final int SYNC_INTERVAL = 256;
+
+	private FileChannel m_channel;
+	private BitSet m_done = new BitSet();
+	private int m_unsynced = 0;
+
+	/**
+	 * Open the manifest of a mining result.
+	 * @param target Path to the mining base dir.
+	 * @param repoName Name of the repository.
+	 * @param resume True to keep the commits already recorded, false to start over.
+	 * @throws Exception
+	 */
+	public ProgressManifest(String target, String repoName, Boolean resume) throws Exception {
+		File file = new File(target, repoName + SUFFIX);
+
+		if (resume && file.exists()) {
+			String content = new String(Files.readAllBytes(file.toPath()), GlobalStrings.UTF8_CHATSET);
+			
+			//A line without line break was cut short by a crash and is ignored.
+			String[] lines = content.substring(0, content.lastIndexOf('\n') + 1).split("\n");
+			for (String line : lines) {
+				if (Utilities.tryParseInt(line.trim())) {
+					this.m_done.set(Utilities.parseInt(line.trim()));
+				}
+			}
+
+			this.m_channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+			//Start on a new line in case the last one was cut short.
+			this.m_channel.write(ByteBuffer.wrap("\n".getBytes(GlobalStrings.UTF8_CHATSET)));
+		} else {
+			this.m_channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		}
+	}
+
+	/**
+	 * Check if a commit was completely mined by an earlier run.
+	 * @param number Commit number.
+	 * @return True if the commit is done.
+	 */
+	public synchronized Boolean isDone(int number) {
+		return this.m_done.get(number);
+	}
+
+	/**
+	 * Record that a commit have been completely mined.
+	 * @param number Commit number.
+	 * @throws Exception
+	 */
+	public synchronized void done(int number) throws Exception {
+		this.m_channel.write(ByteBuffer.wrap((number + "\n").getBytes(GlobalStrings.UTF8_CHATSET)));
+		this.m_done.set(number);
+
+		if (++this.m_unsynced >= SYNC_INTERVAL) {
+			this.m_channel.force(false);
+			this.m_unsynced = 0;
+		}
+	}
+
+	/**
+	 * Sync and close the manifest.
+	 * @throws Exception
+	 */
+	public synchronized void close() throws Exception {
+		if (this.m_channel.isOpen()) {
+			this.m_channel.force(false);
+			this.m_channel.close();
+		}
+	}
+}
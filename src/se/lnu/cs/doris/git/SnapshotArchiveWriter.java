@@ -0,0 +1,168 @@
+package se.lnu.cs.doris.git;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
+import org.apache.commons.compress.archivers.zip.UnixStat;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectLoader;
+
+/**
+ * Writes the snapshot of a commit as a single archive. Blobs are streamed
+ * from the object database into the archive, executable files and
+ * symbolic links keep their modes and every entry gets the time of the
+ * commit, so the same commit always gives the same archive.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class SnapshotArchiveWriter implements AutoCloseable {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int DIRECTORY_MODE = 0755;
+	private static final int FILE_MODE = 0644;
+	private static final int EXECUTABLE_MODE = 0755;
+	private static final int LINK_MODE = 0777;
+
+	private TarArchiveOutputStream m_tar = null;
+	private ZipArchiveOutputStream m_zip = null;
+	private final long m_time;
+	private Set<String> m_directories = new HashSet<String>();
+
+	/**
+	 * Constructor.
+	 * @param file Archive to write.
+	 * @param format Format of the archive.
+	 * @param time Time of the entries in milliseconds.
+	 * @throws Exception
+	 */
+	public SnapshotArchiveWriter(File file, ArchiveFormat format, long time) throws Exception {
+		this.m_time = time;
+
+		if (format == ArchiveFormat.ZIP) {
+			//Written to a file the sizes go in the local headers, readable as a stream.
+			this.m_zip = new ZipArchiveOutputStream(file);
+		} else {
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+
+			if (format == ArchiveFormat.TGZ) {
+				out = new GZIPOutputStream(out, BUFFER_SIZE);
+			}
+
+			this.m_tar = new TarArchiveOutputStream(out);
+			this.m_tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+			this.m_tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+		}
+	}
+
+	/**
+	 * Add a directory.
+	 * @param path Path of the directory in the snapshot.
+	 * @throws Exception
+	 */
+	public void addDirectory(String path) throws Exception {
+		if (!this.m_directories.add(path)) {
+			return;
+		}
+
+		if (this.m_tar != null) {
+			TarArchiveEntry entry = new TarArchiveEntry(path + "/");
+			entry.setMode(TarArchiveEntry.DEFAULT_DIR_MODE & ~0777 | DIRECTORY_MODE);
+			entry.setModTime(this.m_time);
+			this.m_tar.putArchiveEntry(entry);
+			this.m_tar.closeArchiveEntry();
+		} else {
+			ZipArchiveEntry entry = new ZipArchiveEntry(path + "/");
+			entry.setUnixMode(UnixStat.DIR_FLAG | DIRECTORY_MODE);
+			entry.setTime(this.m_time);
+			this.m_zip.putArchiveEntry(entry);
+			this.m_zip.closeArchiveEntry();
+		}
+	}
+
+	/**
+	 * Add a file, or a symbolic link when the mode says so. Directories of
+	 * the file that are not in the archive yet are added first.
+	 * @param path Path of the file in the snapshot.
+	 * @param mode Mode of the file in the tree.
+	 * @param loader Loader of the blob.
+	 * @throws Exception
+	 */
+	public void addFile(String path, FileMode mode, ObjectLoader loader) throws Exception {
+		Boolean link = FileMode.SYMLINK.equals(mode);
+		int permissions = link ? LINK_MODE : (FileMode.EXECUTABLE_FILE.equals(mode) ? EXECUTABLE_MODE : FILE_MODE);
+
+		//Directories are added before the first file in them.
+		for (int i = path.indexOf('/'); i > 0; i = path.indexOf('/', i + 1)) {
+			this.addDirectory(path.substring(0, i));
+		}
+
+		if (this.m_tar != null) {
+			TarArchiveEntry entry;
+
+			if (link) {
+				entry = new TarArchiveEntry(path, TarConstants.LF_SYMLINK);
+				entry.setLinkName(new String(loader.getCachedBytes(), StandardCharsets.UTF_8));
+			} else {
+				entry = new TarArchiveEntry(path);
+				entry.setSize(loader.getSize());
+			}
+
+			entry.setMode(entry.getMode() & ~0777 | permissions);
+			entry.setModTime(this.m_time);
+			this.m_tar.putArchiveEntry(entry);
+
+			if (!link) {
+				loader.copyTo(this.m_tar);
+			}
+
+			this.m_tar.closeArchiveEntry();
+		} else {
+			//A link is stored as a file holding the path it points to.
+			ZipArchiveEntry entry = new ZipArchiveEntry(path);
+			entry.setUnixMode((link ? UnixStat.LINK_FLAG : UnixStat.FILE_FLAG) | permissions);
+			entry.setSize(loader.getSize());
+			entry.setTime(this.m_time);
+			this.m_zip.putArchiveEntry(entry);
+			loader.copyTo(this.m_zip);
+			this.m_zip.closeArchiveEntry();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.m_tar != null) {
+			this.m_tar.close();
+		} else {
+			this.m_zip.close();
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package se.lnu.cs.doris.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Keeps track of where blobs and complete trees have been written during
+ * a mining run so later commits can hard link to them instead of writing
+ * the same content again. When a link can't be created (other file system,
+ * too many links etc.) the file is copied instead.
+ *
+ * @author Emil Carlsson
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+public class SnapshotDeduplicator {
+
+	//Linked files share permissions, so executable and regular copies
+	//of the same blob are kept apart.
+	private final ConcurrentHashMap<ObjectId, Path> m_blobs = new ConcurrentHashMap<ObjectId, Path>();
+	private final ConcurrentHashMap<ObjectId, Path> m_executableBlobs = new ConcurrentHashMap<ObjectId, Path>();
+	private final ConcurrentHashMap<ObjectId, Path> m_snapshots = new ConcurrentHashMap<ObjectId, Path>();
+
+	/**
+	 * Try to create a file from an already written copy of a blob.
+	 * @param blobId Id of the blob.
+	 * @param executable True if the file should be executable.
+	 * @param file File to create.
+	 * @return True if the file was created, false if the blob have to be written.
+	 * @throws IOException
+	 */
+	public Boolean linkBlob(ObjectId blobId, Boolean executable, File file) throws IOException {
+		ConcurrentHashMap<ObjectId, Path> blobs = executable ? this.m_executableBlobs : this.m_blobs;
+		Path source = blobs.get(blobId);
+
+		if (source == null) {
+			return false;
+		}
+
+		Path target = file.toPath();
+
+		if (!this.link(source, target)) {
+			//Let later occurrences link to the copy instead.
+			blobs.put(blobId.copy(), target);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Register a blob that have been written to disk.
+	 * Should only be called once the file is complete.
+	 * @param blobId Id of the blob.
+	 * @param executable True if the file is executable.
+	 * @param file The written file.
+	 */
+	public void blobWritten(ObjectId blobId, Boolean executable, File file) {
+		ConcurrentHashMap<ObjectId, Path> blobs = executable ? this.m_executableBlobs : this.m_blobs;
+		blobs.putIfAbsent(blobId.copy(), file.toPath());
+	}
+
+	/**
+	 * Get a complete snapshot of a root tree if one have been written.
+	 * @param treeId Id of the root tree.
+	 * @return Directory of the snapshot or null.
+	 */
+	public File getSnapshot(ObjectId treeId) {
+		Path snapshot = this.m_snapshots.get(treeId);
+
+		return snapshot == null ? null : snapshot.toFile();
+	}
+
+	/**
+	 * Register a snapshot directory that have been completely written.
+	 * @param treeId Id of the root tree.
+	 * @param directory Directory of the snapshot.
+	 */
+	public void snapshotWritten(ObjectId treeId, File directory) {
+		this.m_snapshots.putIfAbsent(treeId.copy(), directory.toPath());
+	}
+
+	/**
+	 * Recreate a written snapshot in a new directory by linking every file.
+	 * @param source Directory of the existing snapshot.
+	 * @param target Directory to create.
+	 * @throws IOException
+	 */
+	public void linkSnapshot(File source, File target) throws IOException {
+		final Path from = source.toPath();
+		final Path to = target.toPath();
+
+		Files.walkFileTree(from, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				Path directory = to.resolve(from.relativize(dir));
+
+				if (!Files.isDirectory(directory)) {
+					Files.createDirectory(directory);
+				}
+
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				link(file, to.resolve(from.relativize(file)));
+
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Recreate a single written file by linking it.
+	 * @param source Existing file.
+	 * @param target File to create.
+	 * @throws IOException
+	 */
+	public void linkFile(File source, File target) throws IOException {
+		this.link(source.toPath(), target.toPath());
+	}
+
+	/**
+	 * Hard link target to source, falling back on a copy.
+	 * @return True if a link was created.
+	 */
+	private Boolean link(Path source, Path target) throws IOException {
+		try {
+			Files.deleteIfExists(target);
+			Files.createLink(target, source);
+			return true;
+		} catch (FileAlreadyExistsException e) {
+			throw e;
+		} catch (IOException | UnsupportedOperationException e) {
+			//No reflink support in the JDK, a plain copy is the fallback.
+			Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+			return false;
+		}
+	}
+}
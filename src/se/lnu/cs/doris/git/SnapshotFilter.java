@@ -0,0 +1,157 @@
+package se.lnu.cs.doris.git;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.attributes.Attributes;
+import org.eclipse.jgit.ignore.FastIgnoreRule;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * Decides which files of a commit are mined. Paths are matched against
+ * include and exclude patterns with the same syntax as .gitignore, and
+ * files marked linguist-generated or linguist-vendored in .gitattributes
+ * can be left out as well. Being a TreeFilter it is applied inside the
+ * TreeWalk, so excluded directories are never entered and excluded blobs
+ * are never opened.
+ *
+ * Attributes are only read when the TreeWalk is created with a
+ * repository, i.e. new TreeWalk(repository, reader).
+ *
+ * @author Emil Carlsson
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+public class SnapshotFilter extends TreeFilter {
+
+	public static final String LINGUIST_GENERATED = "linguist-generated";
+	public static final String LINGUIST_VENDORED = "linguist-vendored";
+
+	private List<FastIgnoreRule> m_includes;
+	private List<FastIgnoreRule> m_excludes;
+	private Boolean m_linguist;
+
+	/**
+	 * Constructor.
+	 * @param includes Patterns of files to mine, null to mine all files.
+	 * @param excludes Patterns of files and directories to leave out, may be null.
+	 * @param linguist True to leave out files marked as generated or vendored.
+	 */
+	public SnapshotFilter(String[] includes, String[] excludes, Boolean linguist) {
+		this.m_includes = parseRules(includes);
+		this.m_excludes = parseRules(excludes);
+		this.m_linguist = linguist;
+	}
+
+	/**
+	 * Create the filter asked for by the parameters.
+	 * @param params Parameters for the mining.
+	 * @return SnapshotFilter or null if all files should be mined.
+	 */
+	public static SnapshotFilter create(GitParameters params) {
+		if (params.getIncludes() == null && params.getExcludes() == null && !params.getLinguist()) {
+			return null;
+		}
+
+		return new SnapshotFilter(params.getIncludes(), params.getExcludes(), params.getLinguist());
+	}
+
+	/**
+	 * Check if the filter reads the attributes of the files.
+	 * @return True if .gitattributes are honored.
+	 */
+	public Boolean usesAttributes() {
+		return this.m_linguist;
+	}
+
+	@Override
+	public boolean include(TreeWalk walker) {
+		String path = walker.getPathString();
+		Boolean directory = walker.isSubtree();
+
+		if (matches(this.m_excludes, path, directory)) {
+			return false;
+		}
+
+		//Directories are entered, the files in them are matched on their own.
+		if (directory) {
+			return true;
+		}
+
+		if (!this.m_includes.isEmpty() && !matches(this.m_includes, path, false)) {
+			return false;
+		}
+
+		return !(this.m_linguist && this.isLinguistExcluded(walker));
+	}
+
+	@Override
+	public boolean shouldBeRecursive() {
+		return !this.m_includes.isEmpty() || !this.m_excludes.isEmpty();
+	}
+
+	@Override
+	public TreeFilter clone() {
+		//No state is kept between entries.
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "SnapshotFilter(include=" + this.m_includes + ", exclude=" + this.m_excludes +
+				", linguist=" + this.m_linguist + ")";
+	}
+
+	private Boolean isLinguistExcluded(TreeWalk walker) {
+		if (walker.getAttributesNodeProvider() == null) {
+			return false;
+		}
+
+		Attributes attributes = walker.getAttributes();
+
+		return isSet(attributes, LINGUIST_GENERATED) || isSet(attributes, LINGUIST_VENDORED);
+	}
+
+	private static Boolean isSet(Attributes attributes, String name) {
+		return attributes.isSet(name) || "true".equalsIgnoreCase(attributes.getValue(name));
+	}
+
+	private static Boolean matches(List<FastIgnoreRule> rules, String path, Boolean directory) {
+		for (FastIgnoreRule rule : rules) {
+			if (rule.isMatch(path, directory)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static List<FastIgnoreRule> parseRules(String[] patterns) {
+		List<FastIgnoreRule> rules = new ArrayList<FastIgnoreRule>();
+
+		if (patterns != null) {
+			for (String pattern : patterns) {
+				if (!pattern.trim().isEmpty()) {
+					rules.add(new FastIgnoreRule(pattern.trim()));
+				}
+			}
+		}
+
+		return rules;
+	}
+}
@@ -0,0 +1,331 @@
+package se.lnu.cs.doris.git;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+
+/**
+ * Output layout of --store. Every unique blob is written once to
+ * objects/, named by its id the way git names loose objects, and every
+ * commit gets a manifest, <number>.manifest, with a line per file:
+ *
+ *		<mode> <blob id> <path>
+ *
+ * The mode is octal as in git trees. Backslashes and line breaks in paths
+ * are escaped as \\ and \n. Can also be used to read a mining result.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class SnapshotStore {
+
+	public static final String OBJECTS = "objects";
+	public static final String SUFFIX = ".manifest";
+
+	//Rough size of a manifest line, only used for estimates.
+	private static final long ENTRY_SIZE = 100;
+
+	private final File m_dir;
+	private final File m_objects;
+	//Objects known to be in the store, saves a stat call per file.
+	private final Set<ObjectId> m_stored = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Constructor.
+	 * @param dir Directory of the mining result.
+	 */
+	public SnapshotStore(File dir) {
+		this.m_dir = dir;
+		this.m_objects = new File(dir, OBJECTS);
+	}
+
+	/**
+	 * Get the manifest of a commit.
+	 * @param commit Number of the commit.
+	 * @return File
+	 */
+	public File getManifest(int commit) {
+		return new File(this.m_dir, commit + SUFFIX);
+	}
+
+	/**
+	 * Get the file of a blob in the store.
+	 * @param id Id of the blob.
+	 * @return File, which only exists if the blob is stored.
+	 */
+	public File getObject(AnyObjectId id) {
+		String name = id.name();
+
+		return new File(new File(this.m_objects, name.substring(0, 2)), name.substring(2));
+	}
+
+	/**
+	 * Write a blob unless it is already stored. The content is written to
+	 * a temporary file first, so an object file is always complete.
+	 * @param reader Reader of the repository.
+	 * @param id Id of the blob.
+	 * @return Bytes written, -1 if the blob already was stored.
+	 * @throws IOException
+	 */
+	public long store(ObjectReader reader, ObjectId id) throws IOException {
+		if (this.m_stored.contains(id)) {
+			return -1;
+		}
+
+		Path object = this.getObject(id).toPath();
+
+		if (Files.exists(object)) {
+			this.m_stored.add(id.copy());
+			return -1;
+		}
+
+		Files.createDirectories(object.getParent());
+		Path temp = Files.createTempFile(object.getParent(), object.getFileName().toString(), ".tmp");
+		ObjectLoader loader = reader.open(id);
+
+		try {
+			try (OutputStream out = Files.newOutputStream(temp)) {
+				loader.copyTo(out);
+			}
+			//Workers storing the same blob write the same content, the last move wins.
+			Files.move(temp, object, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+
+		this.m_stored.add(id.copy());
+
+		return loader.getSize();
+	}
+
+	/**
+	 * Create the manifest of a commit.
+	 * @param manifest File to write.
+	 * @return ManifestWriter
+	 * @throws IOException
+	 */
+	public ManifestWriter createManifest(File manifest) throws IOException {
+		return new ManifestWriter(manifest);
+	}
+
+	/**
+	 * Read the manifest of a commit.
+	 * @param commit Number of the commit.
+	 * @return Files in the order of the tree.
+	 * @throws IOException
+	 */
+	public List<Entry> read(int commit) throws IOException {
+		List<Entry> entries = new ArrayList<Entry>();
+
+		try (BufferedReader reader = Files.newBufferedReader(this.getManifest(commit).toPath(), StandardCharsets.UTF_8)) {
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+				if (!line.isEmpty()) {
+					entries.add(Entry.parse(line));
+				}
+			}
+		}
+
+		return entries;
+	}
+
+	/**
+	 * Find a file of a commit.
+	 * @param commit Number of the commit.
+	 * @param path Path of the file, separated by /.
+	 * @return Entry or null if the commit has no such file.
+	 * @throws IOException
+	 */
+	public Entry resolve(int commit, String path) throws IOException {
+		for (Entry entry : this.read(commit)) {
+			if (entry.getPath().equals(path)) {
+				return entry;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Open the content of a file.
+	 * @param entry Entry of a manifest.
+	 * @return InputStream
+	 * @throws IOException
+	 */
+	public InputStream open(Entry entry) throws IOException {
+		return Files.newInputStream(this.getObject(entry.getId()).toPath());
+	}
+
+	/**
+	 * Get the files of a commit that are new or changed since another.
+	 * @param previous Number of the earlier commit.
+	 * @param commit Number of the commit.
+	 * @return Entries of the commit.
+	 * @throws IOException
+	 */
+	public List<Entry> changes(int previous, int commit) throws IOException {
+		Map<String, Entry> before = new HashMap<String, Entry>();
+		List<Entry> changed = new ArrayList<Entry>();
+
+		for (Entry entry : this.read(previous)) {
+			before.put(entry.getPath(), entry);
+		}
+
+		for (Entry entry : this.read(commit)) {
+			Entry old = before.get(entry.getPath());
+
+			if (old == null || !old.getId().equals(entry.getId()) || !old.getMode().equals(entry.getMode())) {
+				changed.add(entry);
+			}
+		}
+
+		return changed;
+	}
+
+	/**
+	 * Estimate the size of a manifest.
+	 * @param files Number of files of the commit.
+	 * @return Bytes.
+	 */
+	public static long estimateManifest(long files) {
+		return files * ENTRY_SIZE;
+	}
+
+	/**
+	 * Estimate the number of directories objects/ is split into.
+	 * @param objects Number of objects in the store.
+	 * @return Directories, at most 256.
+	 */
+	public static long estimateDirectories(long objects) {
+		//Expected number of the 256 prefixes in use by objects with random ids.
+		return Math.round(256 * (1 - Math.pow(255.0 / 256, objects)));
+	}
+
+	/**
+	 * A file of a commit.
+	 */
+	public static class Entry {
+		private final String m_path;
+		private final FileMode m_mode;
+		private final ObjectId m_id;
+
+		public Entry(String path, FileMode mode, ObjectId id) {
+			this.m_path = path;
+			this.m_mode = mode;
+			this.m_id = id;
+		}
+
+		public String getPath() {
+			return this.m_path;
+		}
+
+		public FileMode getMode() {
+			return this.m_mode;
+		}
+
+		public ObjectId getId() {
+			return this.m_id;
+		}
+
+		private static Entry parse(String line) throws IOException {
+			int first = line.indexOf(' '), second = line.indexOf(' ', first + 1);
+
+			if (first < 0 || second < 0) {
+				throw new IOException("Broken manifest line: " + line);
+			}
+
+			return new Entry(unescape(line.substring(second + 1)),
+					FileMode.fromBits(Integer.parseInt(line.substring(0, first), 8)),
+					ObjectId.fromString(line.substring(first + 1, second)));
+		}
+
+		private static String unescape(String path) {
+			if (path.indexOf('\\') < 0) {
+				return path;
+			}
+
+			StringBuilder unescaped = new StringBuilder(path.length());
+
+			for (int i = 0; i < path.length(); i++) {
+				char c = path.charAt(i);
+
+				if (c == '\\' && i + 1 < path.length()) {
+					c = path.charAt(++i);
+					unescaped.append(c == 'n' ? '\n' : c);
+				} else {
+					unescaped.append(c);
+				}
+			}
+
+			return unescaped.toString();
+		}
+	}
+
+	/**
+	 * Writes the lines of a manifest.
+	 */
+	public static class ManifestWriter implements AutoCloseable {
+		private final BufferedWriter m_writer;
+
+		private ManifestWriter(File manifest) throws IOException {
+			this.m_writer = Files.newBufferedWriter(manifest.toPath(), StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * Add a file.
+		 * @param path Path of the file.
+		 * @param mode Mode of the file in the tree.
+		 * @param id Id of the blob.
+		 * @throws IOException
+		 */
+		public void add(String path, FileMode mode, AnyObjectId id) throws IOException {
+			this.m_writer.write(Integer.toOctalString(mode.getBits()));
+			this.m_writer.write(' ');
+			this.m_writer.write(id.name());
+			this.m_writer.write(' ');
+			this.m_writer.write(path.replace("\\", "\\\\").replace("\n", "\\n"));
+			this.m_writer.write('\n');
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.m_writer.close();
+		}
+	}
+}
@@ -0,0 +1,359 @@
+package se.lnu.cs.doris.git;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+/**
+ * Estimates the bytes a mining will write before anything is written.
+ * Sizes are read from the object headers with getObjectSize, without
+ * inflating the blobs, and are remembered per blob and per tree, so a
+ * directory that did not change between two commits is only read once.
+ *
+ * When snapshots are deduplicated or incremental a blob is only written
+ * the first time it is seen, later commits link it.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class SpacePlan implements AutoCloseable {
+
+	//Files take up whole blocks on disk.
+	private static final long BLOCK_SIZE = 4096;
+	//Rough speed of writing snapshots, only used for the estimated time.
+	private static final double BYTES_PER_SECOND = 100 * 1024 * 1024;
+	private static final double FILES_PER_SECOND = 5000;
+
+	private final Repository m_repository;
+	private final ObjectReader m_reader;
+	private final SnapshotFilter m_filter;
+	private final Boolean m_unique;
+	private ArchiveFormat m_archive = null;
+	private Boolean m_store = false;
+
+	private final Map<ObjectId, Long> m_blobSizes = new HashMap<ObjectId, Long>();
+	//Bytes, blocks of the files in bytes, files, directories, bytes in tar blocks and
+	//all files, also those seen before, of every tree.
+	private final Map<ObjectId, long[]> m_treeSizes = new HashMap<ObjectId, long[]>();
+	private final Set<ObjectId> m_seenBlobs = new HashSet<ObjectId>();
+	private final Map<ObjectId, Long> m_commitSizes = new HashMap<ObjectId, Long>();
+
+	private int m_commits = 0;
+	private long m_files = 0;
+	private long m_bytes = 0;
+	private long m_diskBytes = 0;
+	private long m_storedBlobs = 0;
+
+	/**
+	 * Constructor.
+	 * @param repository Repository the commits are read from.
+	 * @param filter Filter of the files that are written, or null.
+	 * @param unique True if a blob is only written once, as with --dedup and
+	 * --incremental.
+	 */
+	public SpacePlan(Repository repository, SnapshotFilter filter, Boolean unique) {
+		this.m_repository = repository;
+		this.m_reader = repository.newObjectReader();
+		this.m_filter = filter;
+		this.m_unique = unique;
+	}
+
+	/**
+	 * Estimate archives instead of directories.
+	 * @param archive Format of the archives, null for directories.
+	 */
+	public void setArchive(ArchiveFormat archive) {
+		this.m_archive = archive;
+	}
+
+	/**
+	 * Estimate the layout of --store instead of directories.
+	 * @param store True for a store.
+	 */
+	public void setStore(Boolean store) {
+		this.m_store = store;
+	}
+
+	/**
+	 * Add a commit that will be written.
+	 * @param commit Parsed commit.
+	 * @return Estimated bytes the commit takes up on disk.
+	 * @throws Exception
+	 */
+	public long add(RevCommit commit) throws Exception {
+		long[] size = this.size(commit);
+		long diskBytes;
+		
+		if (this.m_store) {
+			//New blobs, the directories they open in objects/ and a manifest listing every file.
+			long directories = SnapshotStore.estimateDirectories(this.m_storedBlobs + size[2]) 
+					- SnapshotStore.estimateDirectories(this.m_storedBlobs);
+			this.m_storedBlobs += size[2];
+			diskBytes = size[1] + directories * BLOCK_SIZE + roundUp(SnapshotStore.estimateManifest(size[5]));
+		} else if (this.m_archive != null) {
+			diskBytes = roundUp(this.m_archive.estimateSize(size[0], size[4], size[2], size[3]));
+		} else {
+			//The directory of the commit and its subdirectories take a block each.
+			diskBytes = size[1] + (size[3] + 1) * BLOCK_SIZE;
+		}
+
+		this.m_commits++;
+		this.m_bytes += size[0];
+		this.m_diskBytes += diskBytes;
+		this.m_files += size[2];
+		this.m_commitSizes.put(commit.copy(), diskBytes);
+
+		return diskBytes;
+	}
+
+	/**
+	 * Add a commit written by an earlier run. Nothing is counted, but its
+	 * blobs are not counted again for later commits that link them.
+	 * @param commit Parsed commit.
+	 * @throws Exception
+	 */
+	public void addWritten(RevCommit commit) throws Exception {
+		if (this.m_unique) {
+			this.size(commit);
+		}
+	}
+
+	/**
+	 * Get the estimated bytes a commit takes up on disk.
+	 * @param commit Commit added to the plan.
+	 * @return Bytes, 0 if the commit is not in the plan.
+	 */
+	public long getDiskBytes(ObjectId commit) {
+		Long size = this.m_commitSizes.get(commit);
+		return (size == null) ? 0 : size;
+	}
+
+	/**
+	 * Get the number of commits to write.
+	 * @return int
+	 */
+	public int getCommits() {
+		return this.m_commits;
+	}
+
+	/**
+	 * Get the number of files to write.
+	 * @return long
+	 */
+	public long getFiles() {
+		return this.m_files;
+	}
+
+	/**
+	 * Get the size of the content to write.
+	 * @return long
+	 */
+	public long getBytes() {
+		return this.m_bytes;
+	}
+
+	/**
+	 * Get the estimated bytes taken up on disk, every file rounded up to
+	 * whole blocks and a block for every directory, or every archive
+	 * rounded up to whole blocks.
+	 * @return long
+	 */
+	public long getDiskBytes() {
+		return this.m_diskBytes;
+	}
+
+	/**
+	 * Get a rough estimate of the time writing takes.
+	 * @return Seconds.
+	 */
+	public double getEstimatedSeconds() {
+		return this.m_bytes / BYTES_PER_SECOND + this.m_files / FILES_PER_SECOND;
+	}
+
+	/**
+	 * Print the plan.
+	 * @param out Stream to print to.
+	 * @param name Name of the repository.
+	 * @param target Directory the snapshots are written to.
+	 */
+	public void print(PrintStream out, String name, File target) {
+		long seconds = Math.round(this.getEstimatedSeconds());
+
+		out.format("Plan for %s:\n", name);
+		out.format("\tCommits  %d\n", this.m_commits);
+		out.format("\tFiles    %d\n", this.m_files);
+		out.format("\tBytes    %s\n", format(this.m_bytes));
+		out.format("\tOn disk  %s\n", format(this.m_diskBytes));
+		out.format("\tFree     %s\n", format(usableSpace(target)));
+		out.format("\tTime     about %d:%02d:%02d\n", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+	}
+
+	/**
+	 * Get the usable space of the file system a directory is, or will be,
+	 * created on.
+	 * @param target Directory.
+	 * @return Bytes.
+	 */
+	public static long usableSpace(File target) {
+		File existing = target.getAbsoluteFile();
+
+		while (existing != null && !existing.exists()) {
+			existing = existing.getParentFile();
+		}
+
+		return (existing == null) ? 0 : existing.getUsableSpace();
+	}
+
+	private static String format(long bytes) {
+		if (bytes < 1024 * 1024) {
+			return String.format(Locale.ROOT, "%.1f kB", bytes / 1024.0);
+		} else if (bytes < 1024L * 1024 * 1024) {
+			return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024));
+		}
+
+		return String.format(Locale.ROOT, "%.1f GB", bytes / (1024.0 * 1024 * 1024));
+	}
+
+	private long[] size(RevCommit commit) throws Exception {
+		if (this.m_filter != null) {
+			return this.filteredSize(commit);
+		}
+
+		return this.treeSize(commit.getTree());
+	}
+
+	/**
+	 * Size of a tree and its subtrees. Trees are remembered by id. When
+	 * blobs are only written once a tree seen before only adds its
+	 * directories.
+	 */
+	private long[] treeSize(ObjectId tree) throws Exception {
+		long[] size = this.m_treeSizes.get(tree);
+
+		if (size != null) {
+			return this.m_unique ? new long[] { 0, 0, 0, size[3], 0, size[5] } : size;
+		}
+
+		size = new long[6];
+		CanonicalTreeParser parser = new CanonicalTreeParser(null, this.m_reader, tree);
+
+		while (!parser.eof()) {
+			FileMode mode = parser.getEntryFileMode();
+			ObjectId id = parser.getEntryObjectId();
+
+			if (mode == FileMode.TREE) {
+				long[] subtree = this.treeSize(id);
+				size[0] += subtree[0];
+				size[1] += subtree[1];
+				size[2] += subtree[2];
+				size[3] += subtree[3] + 1;
+				size[4] += subtree[4];
+				size[5] += subtree[5];
+			} else if (mode != FileMode.GITLINK) {
+				this.addFile(size, id);
+			}
+
+			parser.next();
+		}
+
+		this.m_treeSizes.put(tree, size);
+
+		return size;
+	}
+
+	/**
+	 * Size of the files of a commit that pass the filter, walked the way
+	 * they are written. The filter depends on the path, so trees can not
+	 * be remembered, only blobs. Only directories holding a file that
+	 * passes the filter are written and counted.
+	 */
+	private long[] filteredSize(RevCommit commit) throws Exception {
+		long[] size = new long[6];
+		Set<String> directories = new HashSet<String>();
+		TreeWalk treeWalk = this.m_filter.usesAttributes() ?
+				new TreeWalk(this.m_repository, this.m_reader) : new TreeWalk(this.m_reader);
+		treeWalk.setFilter(this.m_filter);
+		treeWalk.addTree(commit.getTree());
+
+		while (treeWalk.next()) {
+			ObjectId id = treeWalk.getObjectId(0);
+
+			if (treeWalk.isSubtree()) {
+				treeWalk.enterSubtree();
+			} else if (treeWalk.getFileMode(0) != FileMode.GITLINK) {
+				String path = treeWalk.getPathString();
+
+				for (int i = path.indexOf('/'); i > 0; i = path.indexOf('/', i + 1)) {
+					if (directories.add(path.substring(0, i))) {
+						size[3]++;
+					}
+				}
+				this.addFile(size, id);
+			}
+		}
+
+		return size;
+	}
+
+	/**
+	 * Count a file, and its blob unless it is only written once and has
+	 * been seen before.
+	 */
+	private void addFile(long[] size, ObjectId id) throws Exception {
+		size[5]++;
+
+		if (this.m_unique && !this.m_seenBlobs.add(id)) {
+			return;
+		}
+
+		Long bytes = this.m_blobSizes.get(id);
+
+		if (bytes == null) {
+			bytes = this.m_reader.getObjectSize(id, Constants.OBJ_BLOB);
+			this.m_blobSizes.put(id, bytes);
+		}
+
+		size[0] += bytes;
+		size[1] += roundUp(bytes);
+		size[2]++;
+		size[4] += ArchiveFormat.padTar(bytes);
+	}
+
+	private static long roundUp(long bytes) {
+		return (bytes + BLOCK_SIZE - 1) / BLOCK_SIZE * BLOCK_SIZE;
+	}
+
+	@Override
+	public void close() {
+		this.m_reader.close();
+	}
+}
@@ -0,0 +1,79 @@
+package se.lnu.cs.doris.git;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import se.lnu.cs.doris.global.OutOfSpaceException;
+
+/**
+ * Admits a commit to be written only if the free space of the target,
+ * less the space held by commits being written, stays above a reserve.
+ * A commit that does not fit stops the mining before its snapshot is
+ * started, so the run can be continued with --resume.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class SpaceReserve {
+
+	private final File m_target;
+	private final long m_reserve;
+	private final SpacePlan m_plan;
+	private final AtomicLong m_pending = new AtomicLong();
+
+	/**
+	 * Constructor.
+	 * @param target Directory the snapshots are written to.
+	 * @param reserve Bytes that must be left free.
+	 * @param plan Plan holding the estimated size of every commit.
+	 */
+	public SpaceReserve(File target, long reserve, SpacePlan plan) {
+		this.m_target = target;
+		this.m_reserve = reserve;
+		this.m_plan = plan;
+	}
+
+	/**
+	 * Hold the space of a commit before it is written.
+	 * @param commit Commit to write.
+	 * @return Bytes held, to be given to release.
+	 * @throws OutOfSpaceException If the commit would use up the reserve.
+	 */
+	public long admit(RevCommit commit) throws OutOfSpaceException {
+		long bytes = this.m_plan.getDiskBytes(commit);
+		long pending = this.m_pending.addAndGet(bytes);
+
+		if (SpacePlan.usableSpace(this.m_target) - pending < this.m_reserve) {
+			this.m_pending.addAndGet(-bytes);
+			throw new OutOfSpaceException("Less than the reserved space would be left.", commit.getName());
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * Give back the space held for a commit once it is on disk.
+	 * @param bytes Bytes returned by admit.
+	 */
+	public void release(long bytes) {
+		this.m_pending.addAndGet(-bytes);
+	}
+}
@@ -35,12 +35,22 @@ public class GlobalMessages {
 	}
 	
 	/**
-	 * Reports that a commit have been pulled.
-	 * @param id Order of the commit.
-	 * @param name Name of the commit.
+	 * Reports that only the first commits are mined, as the rest would
+	 * not fit above the reserved space.
+	 * @param fit Number of commits that fit.
+	 * @param total Number of commits asked for.
 	 */
-	public static void commitPulled(int id, String name) {
-		System.out.format("Pulled revision %d (Name: %s)\n", id, name);
+	public static void runShortened(int fit, int total) {
+		System.out.format("Only %d of %d commits fit above the reserved space, mining those.\n", fit, total);
+		System.out.println("Free more hard drive space and restart doris with the same flags and the --resume flag to mine the rest.");
+	}
+	
+	/**
+	 * Reports that a start or end point is not a commit of the repository.
+	 * @param point The start or end point.
+	 */
+	public static void pointNotFound(String point) {
+		System.out.format("Could not find the commit %s.\n", point);
 	}
 	
 	/**
@@ -60,7 +70,7 @@ public class GlobalMessages {
 	public static void outOfSpace(String name) {
 		System.out.println("Mining aborted:");
 		System.out.println("Out of hard drive space.");
-		System.out.println("Free more hard drive space and restart doris using the -e flag.");
+		System.out.println("Free more hard drive space and restart doris with the same flags and the --resume flag.");
 		System.out.format("Commit to continue from: %s", name);
 	}
 
@@ -55,4 +55,31 @@ public class GlobalStrings {
 	public static String HELP_LONG = "--help";
 	public static String MEASURE_SLOC_SHORT = "-m";
 	public static String MEASURE_SLOC_LONG = "--metric";
+	public static String DEDUP_SHORT = "-d";
+	public static String DEDUP_LONG = "--dedup";
+	public static String INCREMENTAL_SHORT = "-i";
+	public static String INCREMENTAL_LONG = "--incremental";
+	public static String METRICS_ONLY_LONG = "--metricsonly";
+	public static String RESUME_SHORT = "-r";
+	public static String RESUME_LONG = "--resume";
+	public static String UPDATE_LONG = "--update";
+	public static String INCLUDE_LONG = "--include";
+	public static String EXCLUDE_LONG = "--exclude";
+	public static String LINGUIST_LONG = "--linguist";
+	public static String LANGUAGES_LONG = "--languages";
+	public static String METRIC_FORMAT_LONG = "--metricformat";
+	public static String PROMETHEUS_LONG = "--prometheus";
+	public static String QUIET_SHORT = "-q";
+	public static String QUIET_LONG = "--quiet";
+	public static String OVERWRITE_LONG = "--overwrite";
+	public static String BATCH_LONG = "--batch";
+	public static String PARALLEL_LONG = "--parallel";
+	public static String PLAN_LONG = "--plan";
+	public static String RESERVE_LONG = "--reserve";
+	public static String ARCHIVE_LONG = "--archive";
+	public static String STORE_LONG = "--store";
+	public static String SINCE_LONG = "--since";
+	public static String UNTIL_LONG = "--until";
+	public static String AUTHOR_LONG = "--author";
+	public static String GREP_LONG = "--grep";
 }
@@ -66,17 +66,17 @@ public class Help {
 			"mining results named <repository name>.git.";
 	private static String m_startPoint =
 			"Start point\n" +
-			"\t-s, --startpoint <commit sha-1>\n" +
+			"\t-s, --startpoint <commit>\n" +
 			"Set a starting point for Doris to start mining the repository \n" +
-			"from. Full sha-1 is needed. If the sha-1 value is incorrect the\n" +
-			"mining will never be started.";
+			"from. A sha-1, abbreviated sha-1, tag or branch. If the commit\n" +
+			"is not found the mining will never be started.";
 	private static String m_endPoint = 
 			"End point\n" +
-			"\t-e, --endpoint <commit sha-1>\n" +
-			"Set a commit where Doris should stop mining. Full sha-1 is \n" +
-			"needed. If the sha-1 value is incorrect the mining will not \n" +
-			"stop. The given sha-1 commit will not be included in the \n" +
-			"mining results.";
+			"\t-e, --endpoint <commit>\n" +
+			"Set a commit where Doris should stop mining. A sha-1, \n" +
+			"abbreviated sha-1, tag or branch. If the commit is not found\n" +
+			"the mining will not stop. The given commit will not be \n" +
+			"included in the mining results.";
 	private static String m_limit =
 			"Limit\n" +
 			"\t-l, --limit <max number of commits>\n" +
@@ -88,6 +88,148 @@ public class Help {
 			"Start a simple code metrics analysis tool that compare the percent\n" +
 			"of source lines of code, lines of comments and total lines in the\n" +
 			"repository.";
+	private static String m_dedup =
+			"Deduplicate\n" +
+			"\t-d, --dedup\n" +
+			"Files that are identical to a file already written during the\n" +
+			"mining are hard linked to it instead of written again. Commits\n" +
+			"with the same content as an earlier commit reuse that snapshot.\n" +
+			"Falls back on copying where hard links are not supported. Do\n" +
+			"not edit mined files in place when this flag is used.";
+	private static String m_incremental =
+			"Incremental\n" +
+			"\t-i, --incremental\n" +
+			"Build every commit from the snapshot of the previously mined\n" +
+			"commit by linking it and applying only the files that changed\n" +
+			"between the two commits. Commits are mined one at a time in\n" +
+			"this mode. Do not edit mined files in place when this flag is\n" +
+			"used.";
+	private static String m_metricsOnly =
+			"Metrics only\n" +
+			"\t--metricsonly\n" +
+			"Measure the lines of code of every commit straight from the\n" +
+			"downloaded .git file without writing the commits to disk. Only\n" +
+			"the csv file with the results is written. Use together with -m\n" +
+			"to only measure files with certain endings.";
+	private static String m_resume =
+			"Resume\n" +
+			"\t-r, --resume\n" +
+			"Continue an earlier mining that was stopped, e.g. when the\n" +
+			"hard drive ran out of space. The repository fetched by the\n" +
+			"earlier run is reused, commits recorded as finished in the\n" +
+			"<repository>.progress file are skipped, half written commits\n" +
+			"are mined again and the log is continued. Use the same flags\n" +
+			"as the earlier run.";
+	private static String m_update =
+			"Update\n" +
+			"\t--update\n" +
+			"Update an earlier mining of the repository. New commits are\n" +
+			"fetched into the existing .git directory and only commits\n" +
+			"that are not in the log of the earlier run are mined. They\n" +
+			"are numbered after the last mined commit and added to the\n" +
+			"existing log and csv files.";
+	private static String m_include =
+			"Include\n" +
+			"\t--include <patterns>\n" +
+			"Only write files matching one of the comma separated patterns.\n" +
+			"Patterns use the .gitignore syntax, e.g. \"*.java,docs/*.md\".\n" +
+			"Quote the patterns so they aren't expanded by the shell.";
+	private static String m_exclude =
+			"Exclude\n" +
+			"\t--exclude <patterns>\n" +
+			"Leave out files and directories matching one of the comma\n" +
+			"separated patterns. Patterns use the .gitignore syntax, e.g.\n" +
+			"\"vendor/,*.min.js\". Excluded directories are never entered.";
+	private static String m_linguist =
+			"Linguist\n" +
+			"\t--linguist\n" +
+			"Leave out files marked linguist-generated or linguist-vendored\n" +
+			"in the .gitattributes files of the repository.";
+	private static String m_languages =
+			"Languages\n" +
+			"\t--languages <file>\n" +
+			"Read extra comment syntaxes for the SLOC metrics from a language table.\n" +
+			"Each language is a [Name] section with the keys extensions, line, block,\n" +
+			"strings, multiline, escape and nested. A language replaces the built in\n" +
+			"language of the same extensions.";
+	private static String m_metricFormat =
+			"Metric format\n" +
+			"\t--metricformat <formats>\n" +
+			"Comma separated formats to write the SLOC metrics in: csv, jsonl and bin.\n" +
+			"Defaults to csv. Every row holds the sha-1 and the commit time of the commit.";
+	private static String m_prometheus =
+			"Prometheus\n" +
+			"\t--prometheus <port>\n" +
+			"Serves live mining metrics at http://localhost:<port>/metrics in the\n" +
+			"Prometheus text format while Doris runs. The same metrics are always\n" +
+			"available over JMX as se.lnu.cs.doris:type=MiningStatistics.";
+	private static String m_quiet =
+			"Quiet\n" +
+			"\t-q, --quiet\n" +
+			"Do not print the progress of the mining. Without the flag a status line\n" +
+			"with done/total commits, commits/s, MB/s and the time left is printed,\n" +
+			"rewritten every second on a terminal or every ten seconds in a log.";
+	private static String m_overwrite =
+			"Overwrite\n" +
+			"\t--overwrite <policy>\n" +
+			"What to do when the target directory already exists: ask, overwrite,\n" +
+			"rename (append a number), skip or resume. Defaults to ask, or to skip\n" +
+			"when mining a batch.";
+	private static String m_batch =
+			"Batch\n" +
+			"\t--batch <manifest>\n" +
+			"Mines every repository of a manifest file in one run. Every line holds\n" +
+			"the flags of one repository, e.g. -u <uri> -b <branch> -l 100, or only\n" +
+			"its URI. Flags given next to --batch apply to every line. The\n" +
+			"repositories share one pool of workers, a failing repository does not\n" +
+			"stop the others and a status report is printed at the end.";
+	private static String m_parallel =
+			"Parallel\n" +
+			"\t--parallel <n>\n" +
+			"Number of repositories of a batch mined at the same time. Defaults to 2.";
+	private static String m_plan =
+			"Plan\n" +
+			"\t--plan\n" +
+			"Dry run. Prints the number of commits and files, the bytes that would be\n" +
+			"written, the free space and a rough estimate of the time, without\n" +
+			"writing any snapshots.";
+	private static String m_reserve =
+			"Reserve\n" +
+			"\t--reserve <MB>\n" +
+			"Megabytes of the target disk to leave free. The run is planned first\n" +
+			"and shortened to the commits that fit, and every commit is checked\n" +
+			"before it is written. Continue with --resume once space is freed.";
+	private static String m_archive =
+			"Archive\n" +
+			"\t--archive <format>\n" +
+			"Writes every commit as one archive, <number>.tar, <number>.tar.gz or\n" +
+			"<number>.zip, instead of a directory of files. Formats: tar, tgz or zip.";
+	private static String m_store =
+			"Store\n" +
+			"\t--store\n" +
+			"Writes every unique file once to objects/, named by its blob id, and a\n" +
+			"manifest per commit, <number>.manifest, listing the mode, blob id and\n" +
+			"path of every file, instead of a directory per commit.";
+	private static String m_since =
+			"Since\n" +
+			"\t--since <date>\n" +
+			"Only mine commits made at or after the date, e.g. 2014-05-31 or\n" +
+			"2014-05-31T12:00:00+02:00.";
+	private static String m_until =
+			"Until\n" +
+			"\t--until <date>\n" +
+			"Only mine commits made at or before the date. A date without a time\n" +
+			"includes the whole day.";
+	private static String m_author =
+			"Author\n" +
+			"\t--author <pattern>\n" +
+			"Only mine commits whose author name or e-mail matches the regular\n" +
+			"expression, ignoring case.";
+	private static String m_grep =
+			"Grep\n" +
+			"\t--grep <pattern>\n" +
+			"Only mine commits whose message matches the regular expression,\n" +
+			"ignoring case.";
 	
 	/**
 	 * Main method to filter out specific help through tags or
@@ -138,6 +280,79 @@ public class Help {
 			case metric:
 				printMetricHelp();
 				break;
+			case d:
+			case dedup:
+				printDedupHelp();
+				break;
+			case i:
+			case incremental:
+				printIncrementalHelp();
+				break;
+			case metricsonly:
+				printMetricsOnlyHelp();
+				break;
+			case r:
+			case resume:
+				printResumeHelp();
+				break;
+			case update:
+				printUpdateHelp();
+				break;
+			case include:
+				printIncludeHelp();
+				break;
+			case exclude:
+				printExcludeHelp();
+				break;
+			case linguist:
+				printLinguistHelp();
+				break;
+			case languages:
+				printLanguagesHelp();
+				break;
+			case metricformat:
+				printMetricFormatHelp();
+				break;
+			case prometheus:
+				printPrometheusHelp();
+				break;
+			case q:
+			case quiet:
+				printQuietHelp();
+				break;
+			case overwrite:
+				printOverwriteHelp();
+				break;
+			case batch:
+				printBatchHelp();
+				break;
+			case parallel:
+				printParallelHelp();
+				break;
+			case plan:
+				printPlanHelp();
+				break;
+			case reserve:
+				printReserveHelp();
+				break;
+			case archive:
+				printArchiveHelp();
+				break;
+			case store:
+				printStoreHelp();
+				break;
+			case since:
+				printSinceHelp();
+				break;
+			case until:
+				printUntilHelp();
+				break;
+			case author:
+				printAuthorHelp();
+				break;
+			case grep:
+				printGrepHelp();
+				break;
 			default: //If a topic can't be found.
 				printFullHelp();
 				break;
@@ -161,6 +376,29 @@ public class Help {
 		printEndPointHelp();
 		printLimitHelp();
 		printMetricHelp();
+		printDedupHelp();
+		printIncrementalHelp();
+		printMetricsOnlyHelp();
+		printResumeHelp();
+		printUpdateHelp();
+		printIncludeHelp();
+		printExcludeHelp();
+		printLinguistHelp();
+		printLanguagesHelp();
+		printMetricFormatHelp();
+		printPrometheusHelp();
+		printQuietHelp();
+		printOverwriteHelp();
+		printBatchHelp();
+		printParallelHelp();
+		printPlanHelp();
+		printReserveHelp();
+		printArchiveHelp();
+		printStoreHelp();
+		printSinceHelp();
+		printUntilHelp();
+		printAuthorHelp();
+		printGrepHelp();
 	}
 
 	/**
@@ -226,4 +464,188 @@ public class Help {
 		System.out.println(m_metric);
 		System.out.println();
 	}
+	
+	/**
+	 * Print help information of the dedup flag.
+	 */
+	public static void printDedupHelp() {
+		System.out.println(m_dedup);
+		System.out.println();
+	}
+	
+	/**
+	 * Print help information of the incremental flag.
+	 */
+	public static void printIncrementalHelp() {
+		System.out.println(m_incremental);
+		System.out.println();
+	}
+	
+	/**
+	 * Print help information of the metrics only flag.
+	 */
+	public static void printMetricsOnlyHelp() {
+		System.out.println(m_metricsOnly);
+		System.out.println();
+	}
+	
+	/**
+	 * Print help information of the resume flag.
+	 */
+	public static void printResumeHelp() {
+		System.out.println(m_resume);
+		System.out.println();
+	}
+	
+	/**
+	 * Print help information of the update flag.
+	 */
+	public static void printUpdateHelp() {
+		System.out.println(m_update);
+		System.out.println();
+	}
+	
+	/**
+	 * Print help information of the include flag.
+	 */
+	public static void printIncludeHelp() {
+		System.out.println(m_include);
+		System.out.println();
+	}
+	
+	/**
+	 * Print help information of the exclude flag.
+	 */
+	public static void printExcludeHelp() {
+		System.out.println(m_exclude);
+		System.out.println();
+	}
+	
+	/**
+	 * Print help information of the linguist flag.
+	 */
+	public static void printLinguistHelp() {
+		System.out.println(m_linguist);
+		System.out.println();
+	}
+	
+	/**
+	 * Print help information of the languages flag.
+	 */
+	public static void printLanguagesHelp() {
+		System.out.println(m_languages);
+		System.out.println();
+	}
+	
+	/**
+	 * Print help information of the metric format flag.
+	 */
+	public static void printMetricFormatHelp() {
+		System.out.println(m_metricFormat);
+		System.out.println();
+	}
+	
+	/**
+	 * Print help information of the prometheus flag.
+	 */
+	public static void printPrometheusHelp() {
+		System.out.println(m_prometheus);
+		System.out.println();
+	}
+	
+	/**
+	 * Print help information of the quiet flag.
+	 */
+	public static void printQuietHelp() {
+		System.out.println(m_quiet);
+		System.out.println();
+	}
+	
+	/**
+	 * Print help information of the overwrite flag.
+	 */
+	public static void printOverwriteHelp() {
+		System.out.println(m_overwrite);
+		System.out.println();
+	}
+	
+	/**
+	 * Print help information of the batch flag.
+	 */
+	public static void printBatchHelp() {
+		System.out.println(m_batch);
+		System.out.println();
+	}
+	
+	/**
+	 * Print help information of the parallel flag.
+	 */
+	public static void printParallelHelp() {
+		System.out.println(m_parallel);
+		System.out.println();
+	}
+	
+	/**
+	 * Print help information of the plan flag.
+	 */
+	public static void printPlanHelp() {
+		System.out.println(m_plan);
+		System.out.println();
+	}
+	
+	/**
+	 * Print help information of the reserve flag.
+	 */
+	public static void printReserveHelp() {
+		System.out.println(m_reserve);
+		System.out.println();
+	}
+	
+	/**
+	 * Print help information of the archive flag.
+	 */
+	public static void printArchiveHelp() {
+		System.out.println(m_archive);
+		System.out.println();
+	}
+	
+	/**
+	 * Print help information of the store flag.
+	 */
+	public static void printStoreHelp() {
+		System.out.println(m_store);
+		System.out.println();
+	}
+	
+	/**
+	 * Print help information of the since flag.
+	 */
+	public static void printSinceHelp() {
+		System.out.println(m_since);
+		System.out.println();
+	}
+	
+	/**
+	 * Print help information of the until flag.
+	 */
+	public static void printUntilHelp() {
+		System.out.println(m_until);
+		System.out.println();
+	}
+	
+	/**
+	 * Print help information of the author flag.
+	 */
+	public static void printAuthorHelp() {
+		System.out.println(m_author);
+		System.out.println();
+	}
+	
+	/**
+	 * Print help information of the grep flag.
+	 */
+	public static void printGrepHelp() {
+		System.out.println(m_grep);
+		System.out.println();
+	}
 }
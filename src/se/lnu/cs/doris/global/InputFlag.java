@@ -23,5 +23,5 @@ package se.lnu.cs.doris.global;
  *
  */
 public enum InputFlag {
-	h, help, t, target, u, uri, n, nolog, s, startpoint, e, endpoint, l, limit, m, metric, b, branch
+	h, help, t, target, u, uri, n, nolog, s, startpoint, e, endpoint, l, limit, m, metric, b, branch, d, dedup, i, incremental, metricsonly, r, resume, update, include, exclude, linguist, languages, metricformat, prometheus, q, quiet, overwrite, batch, parallel, plan, reserve, archive, store, since, until, author, grep
 }
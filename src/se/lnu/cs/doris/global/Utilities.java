@@ -1,8 +1,12 @@
 package se.lnu.cs.doris.global;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Scanner;
 
 /**
@@ -48,11 +52,13 @@ public class Utilities {
 				deleteDirectory(f);
 			}
 		}
-		System.gc();
-		
-		Boolean deleted = file.delete();;
-		
+
+		Boolean deleted = file.delete();
+
 		if (!deleted) {
+			//Streams that are no longer referenced may still hold the file
+			//open on some platforms, collecting them releases it.
+			System.gc();
 			Path path = file.toPath();
 			
 			try {
@@ -69,6 +75,38 @@ public class Utilities {
 		return deleted; 
 	}
 	
+	/**
+	 * Delete a snapshot, a directory or a single file, without changing
+	 * the modes of its files. Files of a snapshot may be hard links shared
+	 * with other snapshots, so only directories are made writable.
+	 * @param file Snapshot to delete.
+	 * @throws IOException
+	 */
+	public static void deleteSnapshot(File file) throws IOException {
+		Files.walkFileTree(file.toPath(), new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+				dir.toFile().setWritable(true);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) throws IOException {
+				Files.delete(path);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+				if (e != null) {
+					throw e;
+				}
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+	
 	/**
 	 * Checks if a string is possible to parse into an integer or not.
 	 * @param stringInt String to be parsed.
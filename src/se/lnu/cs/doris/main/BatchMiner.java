@@ -0,0 +1,312 @@
+package se.lnu.cs.doris.main;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import se.lnu.cs.doris.git.GitParameters;
+import se.lnu.cs.doris.git.GitRepository;
+import se.lnu.cs.doris.git.MiningExecutor;
+import se.lnu.cs.doris.git.OverwritePolicy;
+import se.lnu.cs.doris.git.SnapshotFilter;
+import se.lnu.cs.doris.global.OutOfSpaceException;
+import se.lnu.cs.doris.global.Utilities;
+
+import com.gingerswede.source.metrics.SLOC;
+
+/**
+ * Mines every repository of a manifest file. The repositories share one
+ * pool of workers and a number of them are mined at the same time. A
+ * repository that fails is reported and does not stop the others.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class BatchMiner {
+
+	private static final int DEFAULT_PARALLEL = 2;
+
+	private static final String DONE = "done";
+	private static final String SKIPPED = "skipped";
+	private static final String FAILED = "failed";
+	private static final String NOT_STARTED = "not started";
+
+	private final String[] m_args;
+	private final String m_manifest;
+	private final int m_parallel;
+	private final List<Job> m_jobs = new ArrayList<Job>();
+	private final AtomicBoolean m_stopped = new AtomicBoolean();
+	private final AtomicInteger m_finished = new AtomicInteger();
+
+	/**
+	 * Constructor taking the arguments Doris was started with.
+	 * @param args Arguments holding --batch and the flags that apply to
+	 * every repository.
+	 */
+	public BatchMiner(String[] args) {
+		GitParameters parameters = new GitParameters(args);
+
+		this.m_args = args;
+		this.m_manifest = parameters.getBatch();
+		this.m_parallel = (parameters.getParallel() > 0) ? parameters.getParallel() : DEFAULT_PARALLEL;
+	}
+
+	/**
+	 * Mine every repository of the manifest and print a report.
+	 * @throws Exception If the manifest can not be read.
+	 */
+	public void mine() throws Exception {
+		this.readManifest();
+
+		int workers = GitRepository.MAX_NUMBER_OF_THREADS;
+		//Every repository gets its share of the workers, busy or queued,
+		//so a large one does not fill the queue for the others.
+		int capacity = 2 * Math.max(1, workers / this.m_parallel);
+		ThreadPoolExecutor pool = MiningExecutor.newWorkerPool(workers);
+		ExecutorService repositories = Executors.newFixedThreadPool(this.m_parallel, new BatchThreadFactory());
+
+		System.out.format("Mining %d repositories, %d at a time.\n", this.m_jobs.size(), this.m_parallel);
+
+		try {
+			for (final Job job : this.m_jobs) {
+				if (job.m_repository == null) {
+					this.finish(job);
+					continue;
+				}
+
+				job.m_repository.setWorkerPool(pool, capacity);
+				repositories.execute(new Runnable() {
+					@Override
+					public void run() {
+						mine(job);
+					}
+				});
+			}
+
+			repositories.shutdown();
+			repositories.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} finally {
+			repositories.shutdownNow();
+			pool.shutdown();
+		}
+
+		this.printReport();
+	}
+
+	/**
+	 * Read the manifest and create the repositories in order, so targets
+	 * are claimed the same way on every run.
+	 */
+	private void readManifest() throws Exception {
+		Set<String> targets = new HashSet<String>();
+		int number = 0;
+
+		for (String line : Files.readAllLines(new File(this.m_manifest).toPath(), StandardCharsets.UTF_8)) {
+			line = line.trim();
+
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+
+			String[] args = Flags.splitArguments(line);
+			if (!args[0].startsWith("-")) {
+				//A line with only the URI.
+				String[] uriArgs = new String[args.length + 1];
+				uriArgs[0] = "-u";
+				System.arraycopy(args, 0, uriArgs, 1, args.length);
+				args = uriArgs;
+			}
+
+			Job job = new Job(++number, line);
+			this.m_jobs.add(job);
+
+			GitParameters parameters = new GitParameters(this.m_args);
+			parameters.populate(args);
+			parameters.setBatch(null);
+			parameters.setQuiet(true);
+
+			//Nobody is there to answer in a batch.
+			if (parameters.getOverwrite() == null || parameters.getOverwrite() == OverwritePolicy.ASK) {
+				parameters.setOverwrite(OverwritePolicy.SKIP);
+			}
+
+			job.m_parameters = parameters;
+			job.m_name = parameters.getUri();
+
+			if (parameters.getUri() == null || !Flags.validateUri(parameters.getUri())) {
+				job.fail("Invalid URI.");
+				continue;
+			}
+
+			try {
+				GitRepository repository = new GitRepository(parameters);
+				job.m_name = repository.getProjectName();
+				job.m_target = new File(repository.getTarget());
+				job.m_created = !job.m_target.exists();
+
+				if (!targets.add(new File(repository.getTarget()).getAbsolutePath())) {
+					job.fail("Target " + repository.getTarget() + " is used by an earlier repository.");
+				} else {
+					job.m_repository = repository;
+				}
+			} catch (Exception e) {
+				job.fail(e.toString());
+			}
+		}
+	}
+
+	/**
+	 * Mine one repository, and count its lines if metrics are asked for.
+	 */
+	private void mine(Job job) {
+		if (this.m_stopped.get()) {
+			this.finish(job);
+			return;
+		}
+
+		GitRepository repository = job.m_repository;
+		GitParameters parameters = job.m_parameters;
+		long start = System.nanoTime();
+
+		try {
+			if (repository.isSkipped()) {
+				job.m_status = SKIPPED;
+				job.m_message = repository.getTarget() + " already exists.";
+			} else {
+				repository.mine();
+				job.m_commits = repository.getCommitCount();
+
+				if (parameters.getMetrics() && !parameters.getMetricsOnly() && !parameters.getPlan()) {
+					SLOC sloc = new SLOC(repository.getTarget(), parameters.getMetricsFiles(),
+							repository.getProjectName(), SnapshotFilter.create(parameters),
+							parameters.getMetricFormats(), repository.getCommitRange());
+					sloc.generateCSV();
+				}
+
+				job.m_status = DONE;
+				job.m_message = repository.getTarget();
+			}
+		} catch (OutOfSpaceException e) {
+			//The repositories not started yet would fail the same way.
+			this.m_stopped.set(true);
+			job.fail("Out of space at " + e.getCommit() + ".");
+		} catch (Exception e) {
+			job.fail(e.toString());
+			this.cleanUp(job);
+		} finally {
+			job.m_seconds = (System.nanoTime() - start) / 1e9;
+			//Let the garbage collector take the repository of a finished job.
+			job.m_repository = null;
+		}
+
+		this.finish(job);
+	}
+
+	/**
+	 * Remove the target of a failed job if the job created it. A run that
+	 * ran out of space is kept so it can be resumed.
+	 */
+	private void cleanUp(Job job) {
+		if (job.m_created && job.m_target.exists()) {
+			Utilities.deleteDirectory(job.m_target);
+		}
+	}
+
+	private void finish(Job job) {
+		//Finished in any order, the manifest number maps the line to the report.
+		synchronized (System.out) {
+			System.out.format("[%d/%d] #%d %s: %s\n", this.m_finished.incrementAndGet(), this.m_jobs.size(),
+					job.m_number, job.m_name, job.m_status);
+		}
+	}
+
+	private void printReport() {
+		String format = "%4s  %-30s  %-11s  %8s  %9s  %s\n";
+		int done = 0, skipped = 0, failed = 0;
+
+		System.out.println();
+		System.out.format(format, "#", "Repository", "Status", "Commits", "Seconds", "Message");
+
+		for (Job job : this.m_jobs) {
+			System.out.format(Locale.ROOT, format, job.m_number, job.m_name, job.m_status,
+					job.m_commits, String.format(Locale.ROOT, "%.1f", job.m_seconds),
+					(job.m_message == null) ? "" : job.m_message);
+
+			if (DONE.equals(job.m_status)) {
+				done++;
+			} else if (SKIPPED.equals(job.m_status)) {
+				skipped++;
+			} else {
+				failed++;
+			}
+		}
+
+		System.out.format("\n%d done, %d skipped, %d failed or not started.\n", done, skipped, failed);
+	}
+
+	/**
+	 * A repository of the manifest and the outcome of mining it.
+	 */
+	private static class Job {
+		private final int m_number;
+		private String m_name;
+		private GitParameters m_parameters;
+		private GitRepository m_repository;
+		private File m_target;
+		private Boolean m_created = false;
+		//Written by the worker before finish prints it, read after the pool is terminated.
+		private volatile String m_status = NOT_STARTED;
+		private int m_commits = 0;
+		private double m_seconds = 0;
+		private String m_message = null;
+
+		public Job(int number, String line) {
+			this.m_number = number;
+			this.m_name = line;
+		}
+
+		public void fail(String message) {
+			this.m_status = FAILED;
+			this.m_message = message;
+		}
+	}
+
+	private static class BatchThreadFactory implements ThreadFactory {
+		private final AtomicInteger m_count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "doris-batch-" + this.m_count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,354 @@
+package se.lnu.cs.doris.main;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import se.lnu.cs.doris.benchmark.SyntheticRepository;
+import se.lnu.cs.doris.git.GitParameters;
+import se.lnu.cs.doris.git.GitRepository;
+import se.lnu.cs.doris.git.SnapshotFilter;
+import se.lnu.cs.doris.git.SnapshotStore;
+import se.lnu.cs.doris.global.ExceptionHandler;
+import se.lnu.cs.doris.global.GlobalStrings;
+import se.lnu.cs.doris.global.Utilities;
+import se.lnu.cs.doris.metrics.LanguageRegistry;
+
+import com.gingerswede.source.metrics.SLOC;
+
+/**
+ * Entry point of the end-to-end benchmark. Generates a local repository
+ * with SyntheticRepository, mines it the way Main does and reports the
+ * throughput, the peak heap and the wall time of every phase as a single
+ * line of JSON.
+ *
+ * Flags of the generator are read here, all other flags are passed on to
+ * Doris, so e.g. --dedup, --incremental, -m and --metricsonly can be
+ * benchmarked as well.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class Benchmark {
+
+	private static final String COMMITS = "--commits";
+	private static final String FILES = "--files";
+	private static final String FILE_SIZE = "--filesize";
+	private static final String CHURN = "--churn";
+	private static final String MERGE_EVERY = "--mergeevery";
+	private static final String SEED = "--seed";
+	private static final String REPORT = "--report";
+	private static final String KEEP = "--keep";
+
+	private static final String[] VALUE_FLAGS = { COMMITS, FILES, FILE_SIZE, CHURN, MERGE_EVERY, SEED, REPORT };
+	private static final double MEGABYTE = 1024 * 1024;
+
+	private static long m_phaseStart;
+
+	private static String m_help =
+			"Benchmark\n" +
+			"\t--commits <n>      Commits on the first parent line (default 100).\n" +
+			"\t--files <n>        Files in every commit (default 100).\n" +
+			"\t--filesize <n>     Mean size of a file in bytes (default 4096).\n" +
+			"\t--churn <share>    Share of the files changed by a commit (default 0.1).\n" +
+			"\t--mergeevery <n>   Every n:th commit merges a side branch (default 0, no merges).\n" +
+			"\t--seed <n>         Seed of the generated content (default 42).\n" +
+			"\t--report <file>    Also write the report to a file.\n" +
+			"\t--keep             Keep the generated repository and output.\n\n" +
+			"Generates a repository, mines it and prints a JSON report as the\n" +
+			"last line of the output. All other flags are passed on to Doris;\n" +
+			"-u is set to the generated repository.";
+
+	/**
+	 * Entry point of the benchmark.
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		if (Flags.needHelp(args)) {
+			System.out.println(m_help);
+			return;
+		}
+
+		SyntheticRepository synthetic = new SyntheticRepository();
+		String report = Flags.getFlagValue(args, REPORT);
+		Boolean keep = Arrays.asList(args).contains(KEEP);
+
+		try {
+			String value;
+			if ((value = Flags.getFlagValue(args, COMMITS)) != null) {
+				synthetic.setCommits(parseCount(COMMITS, value));
+			}
+			if ((value = Flags.getFlagValue(args, FILES)) != null) {
+				synthetic.setFiles(parseCount(FILES, value));
+			}
+			if ((value = Flags.getFlagValue(args, FILE_SIZE)) != null) {
+				synthetic.setFileSize(parseCount(FILE_SIZE, value));
+			}
+			if ((value = Flags.getFlagValue(args, MERGE_EVERY)) != null) {
+				synthetic.setMergeEvery(parseCount(MERGE_EVERY, value));
+			}
+			if ((value = Flags.getFlagValue(args, SEED)) != null) {
+				synthetic.setSeed(Long.parseLong(value));
+			}
+			if ((value = Flags.getFlagValue(args, CHURN)) != null) {
+				double churn = Double.parseDouble(value);
+
+				if (churn < 0 || churn > 1) {
+					throw new IllegalArgumentException(CHURN + " must be between 0 and 1.");
+				}
+				synthetic.setChurn(churn);
+			}
+		} catch (Exception e) {
+			System.out.println(e.getMessage());
+			System.out.println(m_help);
+			return;
+		}
+
+		GitParameters parameters = new GitParameters(dorisArguments(args));
+		File workDir = null;
+
+		try {
+			workDir = Files.createTempDirectory("doris-benchmark").toFile();
+
+			if (parameters.getTarget() == null) {
+				parameters.setTarget(workDir.getAbsolutePath());
+			}
+
+			if (parameters.getLanguages() != null) {
+				LanguageRegistry.getDefault().load(new File(parameters.getLanguages()));
+			}
+
+			Map<String, double[]> phases = new LinkedHashMap<String, double[]>();
+
+			startPhase();
+			File gitDir = synthetic.create(workDir);
+			phases.put("generate", endPhase());
+
+			parameters.setUri("file://" + gitDir.getAbsolutePath().replace('\\', '/'));
+			GitRepository gr = new GitRepository(parameters);
+			String projectPath = gr.getTarget();
+			String projectName = gr.getProjectName();
+
+			startPhase();
+			gr.mine();
+			phases.put("mine", endPhase());
+
+			int commits = gr.getCommitCount();
+			long written = size(new File(projectPath));
+
+			if (parameters.getMetrics() && !parameters.getMetricsOnly() && !parameters.getPlan()) {
+				startPhase();
+				SLOC sloc = new SLOC(projectPath, parameters.getMetricsFiles(), projectName,
+						SnapshotFilter.create(parameters), parameters.getMetricFormats(), gr.getCommitRange());
+				sloc.generateCSV();
+				phases.put("metrics", endPhase());
+			}
+
+			String json = toJson(synthetic, commits, written, phases);
+			System.out.println(json);
+
+			if (report != null) {
+				try (PrintWriter writer = new PrintWriter(report, GlobalStrings.UTF8_CHATSET)) {
+					writer.println(json);
+				}
+			}
+		} catch (Exception e) {
+			ExceptionHandler.HandleException(e);
+		} finally {
+			if (workDir != null && !keep) {
+				Utilities.deleteDirectory(workDir);
+			}
+		}
+
+		Utilities.scanner.close();
+	}
+
+	private static int parseCount(String flag, String value) {
+		if (!Utilities.tryParseInt(value) || Utilities.parseInt(value) < 0) {
+			throw new IllegalArgumentException(flag + " must be a positive number.");
+		}
+
+		return Utilities.parseInt(value);
+	}
+
+	/**
+	 * Remove the flags of the benchmark, and their values, from the
+	 * arguments.
+	 */
+	private static String[] dorisArguments(String[] args) {
+		List<String> flags = Arrays.asList(VALUE_FLAGS);
+		List<String> doris = new ArrayList<String>();
+
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i].toLowerCase();
+
+			if (flags.contains(arg)) {
+				i++;
+			} else if (!arg.equals(KEEP)) {
+				doris.add(args[i]);
+			}
+		}
+
+		return doris.toArray(new String[doris.size()]);
+	}
+
+	/**
+	 * Start timing a phase. The heap is collected first so the peak of
+	 * the phase is not inflated by garbage of the one before.
+	 */
+	private static void startPhase() {
+		System.gc();
+
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+
+		m_phaseStart = System.nanoTime();
+	}
+
+	/**
+	 * End timing a phase.
+	 * @return Wall time in seconds and peak heap in bytes.
+	 */
+	private static double[] endPhase() {
+		double seconds = (System.nanoTime() - m_phaseStart) / 1e9;
+		long peak = 0;
+
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+
+		return new double[] { seconds, peak };
+	}
+
+	/**
+	 * Get the number of bytes of the snapshots in a project directory: the
+	 * numbered directories, archives and manifests and the objects of the
+	 * store. The bare repository, log, index and progress file are left
+	 * out. Hard linked files, as written by --dedup, are only counted once.
+	 */
+	private static long size(File dir) throws IOException {
+		final Set<Object> seen = new HashSet<Object>();
+		final long[] size = { 0 };
+		final Path root = dir.toPath();
+
+		if (!dir.exists()) {
+			return 0;
+		}
+
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+				if (root.equals(directory.getParent()) && !isSnapshot(directory)) {
+					return FileVisitResult.SKIP_SUBTREE;
+				}
+
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+				if (root.equals(file.getParent()) && !isSnapshot(file)) {
+					return FileVisitResult.CONTINUE;
+				}
+
+				Object key = attributes.fileKey();
+
+				if (key == null || seen.add(key)) {
+					size[0] += attributes.size();
+				}
+
+				return FileVisitResult.CONTINUE;
+			}
+		});
+
+		return size[0];
+	}
+
+	/**
+	 * Check if an entry of the project directory is written by the mining
+	 * rather than kept next to it.
+	 */
+	private static Boolean isSnapshot(Path path) {
+		String name = path.getFileName().toString();
+
+		return name.matches("[0-9]+(\\..*)?") || name.equals(SnapshotStore.OBJECTS);
+	}
+
+	private static String toJson(SyntheticRepository synthetic, int commits, long written, Map<String, double[]> phases) {
+		double mining = Math.max(phases.get("mine")[0], 1e-9);
+		double total = 0;
+		long peak = 0;
+		StringBuilder json = new StringBuilder();
+
+		json.append("{\"commits\":").append(synthetic.getCommits())
+			.append(",\"files\":").append(synthetic.getFiles())
+			.append(",\"file_size\":").append(synthetic.getFileSize())
+			.append(",\"churn\":").append(synthetic.getChurn())
+			.append(",\"merge_every\":").append(synthetic.getMergeEvery())
+			.append(",\"seed\":").append(synthetic.getSeed())
+			.append(",\"threads\":").append(Runtime.getRuntime().availableProcessors())
+			.append(",\"max_heap_bytes\":").append(Runtime.getRuntime().maxMemory())
+			.append(",\"generated_bytes\":").append(synthetic.getBytes())
+			.append(",\"mined_commits\":").append(commits)
+			.append(",\"written_bytes\":").append(written)
+			.append(",\"commits_per_second\":").append(format(commits / mining))
+			.append(",\"mb_per_second\":").append(format(written / MEGABYTE / mining))
+			.append(",\"phases\":{");
+
+		String separator = "";
+		for (Map.Entry<String, double[]> phase : phases.entrySet()) {
+			json.append(separator).append('"').append(phase.getKey()).append("\":{\"seconds\":")
+				.append(format(phase.getValue()[0])).append(",\"peak_heap_bytes\":").append((long) phase.getValue()[1]).append('}');
+			separator = ",";
+			total += phase.getValue()[0];
+			peak = Math.max(peak, (long) phase.getValue()[1]);
+		}
+
+		json.append("},\"seconds\":").append(format(total))
+			.append(",\"peak_heap_bytes\":").append(peak)
+			.append('}');
+
+		return json.toString();
+	}
+
+	private static String format(double value) {
+		return String.format(Locale.ROOT, "%.3f", value);
+	}
+}
@@ -89,6 +89,40 @@ public class Flags {
 		return flagArray;
 	}
 	
+	/**
+	 * Splits a line into arguments the way a shell would. Arguments are
+	 * separated by white space, double quotes keep spaces in a value.
+	 * @param line Line of arguments, e.g. from a batch manifest.
+	 * @return Arguments.
+	 */
+	public static String[] splitArguments(String line) {
+		ArrayList<String> args = new ArrayList<String>();
+		StringBuilder arg = new StringBuilder();
+		Boolean quoted = false, started = false;
+		
+		for (char c : line.toCharArray()) {
+			if (c == '"') {
+				quoted = !quoted;
+				started = true;
+			} else if (Character.isWhitespace(c) && !quoted) {
+				if (started) {
+					args.add(arg.toString());
+					arg.setLength(0);
+					started = false;
+				}
+			} else {
+				arg.append(c);
+				started = true;
+			}
+		}
+		
+		if (started) {
+			args.add(arg.toString());
+		}
+		
+		return args.toArray(new String[args.size()]);
+	}
+	
 	/**
 	 * Validates a git URI.
 	 * @param uri URI string to validate.
@@ -109,18 +143,35 @@ public class Flags {
 	}
 
 	public static String[] getMetricsFiles(String[] args) {
-		String[] files;
-		String metricFlag = getFlagValue(args, GlobalStrings.MEASURE_SLOC_SHORT);
+		return parseMetricsFiles(getFlagValue(args, GlobalStrings.MEASURE_SLOC_SHORT));
+	}
+	
+	/**
+	 * Splits the value of the metric flag into file endings.
+	 * @param metricFlag Value following the metric flag.
+	 * @return File endings or null if all files should be measured.
+	 */
+	public static String[] parseMetricsFiles(String metricFlag) {
+		return parseList(metricFlag);
+	}
+	
+	/**
+	 * Splits a comma separated flag value.
+	 * @param flagValue Value following a flag.
+	 * @return Values or null if the flag have no value.
+	 */
+	public static String[] parseList(String flagValue) {
+		String[] values;
 		
-		if (!metricFlag.startsWith("-")) {
-			if (metricFlag.contains(",")) 
-				files = metricFlag.split(",");
+		if (flagValue != null && !flagValue.startsWith("-")) {
+			if (flagValue.contains(",")) 
+				values = flagValue.split(",");
 			else
-				files = new String[] { metricFlag };
+				values = new String[] { flagValue };
 		} else {
-			files = null;
+			values = null;
 		}
 		
-		return files;
+		return values;
 	}
 }
\ No newline at end of file
@@ -1,11 +1,18 @@
 package se.lnu.cs.doris.main;
 
+import java.io.File;
+
+import se.lnu.cs.doris.git.CommitRange;
 import se.lnu.cs.doris.git.GitRepository;
+import se.lnu.cs.doris.git.SnapshotFilter;
 import se.lnu.cs.doris.global.ExceptionHandler;
 import se.lnu.cs.doris.global.GlobalStrings;
 import se.lnu.cs.doris.global.Help;
 import se.lnu.cs.doris.global.Utilities;
 import se.lnu.cs.doris.git.GitParameters;
+import se.lnu.cs.doris.metrics.LanguageRegistry;
+import se.lnu.cs.doris.monitor.MiningStatistics;
+import se.lnu.cs.doris.monitor.PrometheusEndpoint;
 
 //This package in added to show how to include external
 //packages to Doris.
@@ -41,6 +48,7 @@ public class Main {
 		String target = null, uri = null,  projectPath = null, projectName = null, cwd = System.getProperty("user.dir");
 		String[] metricsFiles = null;
 		Boolean metrics = false;
+		CommitRange range = null;
 		GitParameters parameters = new GitParameters();
 		
 		
@@ -71,24 +79,50 @@ public class Main {
 				}
 				
 				//Example of how to add "hooked" parameters.
-				metricsFiles = (metrics) ? Flags.getMetricsFiles(args) : null;
+				metrics = parameters.getMetrics() && !parameters.getMetricsOnly() && !parameters.getPlan();
+				metricsFiles = (metrics) ? parameters.getMetricsFiles() : null;
 			}
 
-			if (Flags.validateUri(parameters.getUri())) { // Check if the URI is valid.
-
-				GitRepository gr = new GitRepository(
-							parameters.getUri(),
-							parameters.getTarget(),
-							parameters.getBranch(),
-							parameters.getStartPoint(),
-							parameters.getEndPoint(),
-							parameters.getLimit(),
-							parameters.getLogStatus()
-						);
+			if (parameters.getBatch() != null) { // Mine every repository of a manifest.
+				PrometheusEndpoint endpoint = null;
+				try {
+					if (parameters.getLanguages() != null) {
+						LanguageRegistry.getDefault().load(new File(parameters.getLanguages()));
+					}
+					
+					MiningStatistics.register();
+					if (parameters.getPrometheusPort() > 0) {
+						endpoint = new PrometheusEndpoint(parameters.getPrometheusPort(), MiningStatistics.getDefault());
+					}
+					
+					new BatchMiner(args).mine();
+				} catch (Exception e) {
+					ExceptionHandler.HandleException(e);
+				} finally {
+					if (endpoint != null) {
+						endpoint.close();
+					}
+					
+					MiningStatistics.getDefault().printSummary(System.out);
+				}
+			} else if (parameters.getUri() != null && Flags.validateUri(parameters.getUri())) { // Check if the URI is valid.
+
+				GitRepository gr = new GitRepository(parameters);
+				PrometheusEndpoint endpoint = null;
 				try {
+					//Read before mining so a broken table stops Doris early.
+					if (parameters.getLanguages() != null) {
+						LanguageRegistry.getDefault().load(new File(parameters.getLanguages()));
+					}
+					
+					MiningStatistics.register();
+					if (parameters.getPrometheusPort() > 0) {
+						endpoint = new PrometheusEndpoint(parameters.getPrometheusPort(), MiningStatistics.getDefault());
+					}
 
 					projectPath = gr.getTarget();
 					projectName = gr.getProjectName();
+					range = gr.getCommitRange();
 
 					System.out
 							.println("Initializing mining of "
@@ -107,10 +141,13 @@ public class Main {
 
 					if (metrics) { //Example of external tool usage.
 						System.out.println("Generating metrics, please wait.");
+						long phase = System.nanoTime();
 
 						SLOC sloc = new SLOC(projectPath, metricsFiles,
-								projectName);
+								projectName, SnapshotFilter.create(parameters),
+								parameters.getMetricFormats(), range);
 						sloc.generateCSV();
+						MiningStatistics.getDefault().phaseDone("metrics", phase);
 
 						System.out
 								.println("Metrics generated, cvs file can be found in:\n"
@@ -119,6 +156,12 @@ public class Main {
 
 				} catch (Exception e) {
 					ExceptionHandler.HandleException(e);
+				} finally {
+					if (endpoint != null) {
+						endpoint.close();
+					}
+					
+					MiningStatistics.getDefault().printSummary(System.out);
 				}
 			} else { // Print help information of the URI flag if URI is
 						// invalid.
@@ -0,0 +1,171 @@
+package se.lnu.cs.doris.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Reads the binary columnar file written by BinaryMetricSink. The file is
+ * memory mapped and every column of every block is copied with a single
+ * bulk get, so a million rows load in milliseconds. A last block that was
+ * never finished is ignored.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class BinaryMetricReader {
+
+	private int m_size = 0;
+	private long m_length = 0;
+	private int[] m_numbers = new int[0];
+	private byte[] m_commits = new byte[0];
+	private int[] m_times = new int[0];
+	private int[] m_code = new int[0];
+	private int[] m_comments = new int[0];
+	private int[] m_blanks = new int[0];
+
+	/**
+	 * Read a file.
+	 * @param file File written by BinaryMetricSink.
+	 * @throws IOException If the file isn't a metrics file.
+	 */
+	public BinaryMetricReader(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+
+			if (size < BinaryMetricSink.HEADER_SIZE) {
+				return;
+			}
+
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+			if (buffer.getInt() != BinaryMetricSink.MAGIC || buffer.getInt() != BinaryMetricSink.VERSION) {
+				throw new IOException(file.getName() + " is not a metrics file of a known version.");
+			}
+
+			this.m_length = BinaryMetricSink.HEADER_SIZE;
+
+			while (buffer.remaining() >= 4) {
+				int rows = buffer.getInt();
+
+				if (rows <= 0 || (long) rows * BinaryMetricSink.ROW_SIZE > buffer.remaining()) {
+					break;
+				}
+
+				this.grow(this.m_size + rows);
+				this.getColumn(buffer, this.m_numbers, rows);
+				buffer.get(this.m_commits, this.m_size * 20, rows * 20);
+				this.getColumn(buffer, this.m_times, rows);
+				this.getColumn(buffer, this.m_code, rows);
+				this.getColumn(buffer, this.m_comments, rows);
+				this.getColumn(buffer, this.m_blanks, rows);
+
+				this.m_size += rows;
+				this.m_length = buffer.position();
+			}
+		}
+	}
+
+	/**
+	 * Get the number of rows.
+	 * @return Number of rows.
+	 */
+	public int size() {
+		return this.m_size;
+	}
+
+	/**
+	 * Get the length of the file up to the end of its last whole block.
+	 * @return Length in bytes, 0 if the file has no header.
+	 */
+	public long getLength() {
+		return this.m_length;
+	}
+
+	public int getCommitNumber(int row) {
+		return this.m_numbers[row];
+	}
+
+	/**
+	 * Get the sha-1 of the commit of a row.
+	 * @param row Row index.
+	 * @return ObjectId or null if it wasn't known when written.
+	 */
+	public ObjectId getCommitId(int row) {
+		ObjectId id = ObjectId.fromRaw(this.m_commits, row * 20);
+
+		return id.equals(ObjectId.zeroId()) ? null : id;
+	}
+
+	public int getCommitTime(int row) {
+		return this.m_times[row];
+	}
+
+	public LineCount getCount(int row) {
+		return new LineCount(this.m_code[row], this.m_comments[row], this.m_blanks[row]);
+	}
+
+	/**
+	 * Get a whole column, e.g. for plotting.
+	 * @return Lines of code of every row.
+	 */
+	public int[] getCodeColumn() {
+		return Arrays.copyOf(this.m_code, this.m_size);
+	}
+
+	public int[] getCommentColumn() {
+		return Arrays.copyOf(this.m_comments, this.m_size);
+	}
+
+	public int[] getBlankColumn() {
+		return Arrays.copyOf(this.m_blanks, this.m_size);
+	}
+
+	public int[] getCommitNumberColumn() {
+		return Arrays.copyOf(this.m_numbers, this.m_size);
+	}
+
+	public int[] getCommitTimeColumn() {
+		return Arrays.copyOf(this.m_times, this.m_size);
+	}
+
+	private void getColumn(MappedByteBuffer buffer, int[] column, int rows) {
+		buffer.asIntBuffer().get(column, this.m_size, rows);
+		buffer.position(buffer.position() + rows * 4);
+	}
+
+	private void grow(int size) {
+		if (size <= this.m_numbers.length) {
+			return;
+		}
+
+		int capacity = Math.max(size, this.m_numbers.length * 2);
+		this.m_numbers = Arrays.copyOf(this.m_numbers, capacity);
+		this.m_commits = Arrays.copyOf(this.m_commits, capacity * 20);
+		this.m_times = Arrays.copyOf(this.m_times, capacity);
+		this.m_code = Arrays.copyOf(this.m_code, capacity);
+		this.m_comments = Arrays.copyOf(this.m_comments, capacity);
+		this.m_blanks = Arrays.copyOf(this.m_blanks, capacity);
+	}
+}
@@ -0,0 +1,179 @@
+package se.lnu.cs.doris.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Writes line counts in a compact binary columnar format that can be
+ * loaded without parsing text. The file starts with the magic number and
+ * the version as two big endian ints and is followed by blocks of up to
+ * BATCH_SIZE rows:
+ *
+ * int rows
+ * int[rows] commit numbers
+ * byte[rows * 20] raw sha-1 of the commits, zeros if unknown
+ * int[rows] commit times in seconds since the epoch
+ * int[rows] lines of code
+ * int[rows] lines of comments
+ * int[rows] blank lines
+ *
+ * Index values are not stored, the first row is the base. Use
+ * BinaryMetricReader to read the file.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class BinaryMetricSink implements MetricSink {
+
+	public static final int MAGIC = 0x444D4554; //"DMET"
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 8;
+	//Bytes of a row over all columns.
+	public static final int ROW_SIZE = 4 + 20 + 4 + 4 + 4 + 4;
+
+	private FileChannel m_channel;
+	private ByteBuffer m_buffer = ByteBuffer.allocate(4 + BATCH_SIZE * ROW_SIZE);
+	private Integer m_baseCommit = null;
+	private Set<Integer> m_written = new HashSet<Integer>();
+
+	//Columns of the rows not yet written.
+	private int m_rows = 0;
+	private int[] m_numbers = new int[BATCH_SIZE];
+	private byte[] m_commits = new byte[BATCH_SIZE * 20];
+	private int[] m_times = new int[BATCH_SIZE];
+	private int[] m_code = new int[BATCH_SIZE];
+	private int[] m_comments = new int[BATCH_SIZE];
+	private int[] m_blanks = new int[BATCH_SIZE];
+
+	/**
+	 * Constructor.
+	 * @param file File to write to.
+	 * @param append True to continue the file if it exists.
+	 * @throws IOException
+	 */
+	public BinaryMetricSink(File file, Boolean append) throws IOException {
+		long length = 0;
+
+		if (append && file.exists()) {
+			BinaryMetricReader existing = new BinaryMetricReader(file);
+
+			for (int i = 0; i < existing.size(); i++) {
+				if (this.m_baseCommit == null) {
+					this.m_baseCommit = existing.getCommitNumber(i);
+				}
+				this.m_written.add(existing.getCommitNumber(i));
+			}
+
+			length = existing.getLength();
+		}
+
+		this.m_channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+
+		if (length >= HEADER_SIZE) {
+			//A block that was never finished is cut off.
+			this.m_channel.truncate(length);
+			this.m_channel.position(length);
+		} else {
+			this.m_channel.truncate(0);
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putInt(VERSION).flip();
+			this.writeFully(header);
+		}
+	}
+
+	@Override
+	public Integer getBaseCommit() {
+		return this.m_baseCommit;
+	}
+
+	@Override
+	public Set<Integer> getWritten() {
+		return this.m_written;
+	}
+
+	@Override
+	public void write(int commitNumber, ObjectId commit, int commitTime, LineCount count, LineCount base) throws IOException {
+		int row = this.m_rows++;
+
+		this.m_numbers[row] = commitNumber;
+		if (commit != null) {
+			commit.copyRawTo(this.m_commits, row * 20);
+		} else {
+			Arrays.fill(this.m_commits, row * 20, row * 20 + 20, (byte) 0);
+		}
+		this.m_times[row] = commitTime;
+		this.m_code[row] = count.getCode();
+		this.m_comments[row] = count.getComments();
+		this.m_blanks[row] = count.getBlanks();
+
+		if (this.m_rows == BATCH_SIZE) {
+			this.flush();
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (this.m_rows == 0) {
+			return;
+		}
+
+		int rows = this.m_rows;
+		ByteBuffer buffer = this.m_buffer;
+		buffer.clear();
+		buffer.putInt(rows);
+		putColumn(buffer, this.m_numbers, rows);
+		buffer.put(this.m_commits, 0, rows * 20);
+		putColumn(buffer, this.m_times, rows);
+		putColumn(buffer, this.m_code, rows);
+		putColumn(buffer, this.m_comments, rows);
+		putColumn(buffer, this.m_blanks, rows);
+		buffer.flip();
+
+		this.writeFully(buffer);
+		this.m_rows = 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			this.flush();
+		} finally {
+			this.m_channel.close();
+		}
+	}
+
+	private static void putColumn(ByteBuffer buffer, int[] column, int rows) {
+		buffer.asIntBuffer().put(column, 0, rows);
+		buffer.position(buffer.position() + rows * 4);
+	}
+
+	private void writeFully(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			this.m_channel.write(buffer);
+		}
+	}
+}
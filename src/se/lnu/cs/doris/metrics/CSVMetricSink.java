@@ -0,0 +1,88 @@
+package se.lnu.cs.doris.metrics;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+import se.lnu.cs.doris.global.Utilities;
+
+/**
+ * Writes line counts to a csv file in the layout of the SLOC tool, index
+ * values relative to the first commit, followed by the sha-1 and the
+ * commit time of each commit. A file written before those columns were
+ * added is continued without them.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class CSVMetricSink extends TextMetricSink {
+
+	public static final String LEGACY_HEADER = "Commit number;Base value;Total lines;Lines of source code;Lines of comments";
+	public static final String HEADER = LEGACY_HEADER + ";Commit;Commit time";
+
+	private Boolean m_legacy = false;
+
+	/**
+	 * Constructor.
+	 * @param csvFile File to write to.
+	 * @param append True to continue the file if it exists.
+	 * @throws IOException
+	 */
+	public CSVMetricSink(File csvFile, Boolean append) throws IOException {
+		this.open(csvFile, append);
+	}
+
+	@Override
+	protected String getHeader() {
+		return HEADER + "\n";
+	}
+
+	@Override
+	protected Boolean acceptsHeader(String header) {
+		this.m_legacy = header.equals(LEGACY_HEADER);
+
+		return this.m_legacy || header.equals(HEADER);
+	}
+
+	@Override
+	protected Integer parseCommitNumber(String row) {
+		int separator = row.indexOf(';');
+		String number = (separator >= 0) ? row.substring(0, separator) : row;
+
+		return Utilities.tryParseInt(number) ? Utilities.parseInt(number) : null;
+	}
+
+	@Override
+	protected void formatRow(StringBuilder row, int commitNumber, ObjectId commit, int commitTime,
+			LineCount count, LineCount base) {
+		row.append(commitNumber).append(";100;")
+			.append(index(count.getTotal(), base.getTotal())).append(';')
+			.append(index(count.getCode(), base.getCode())).append(';')
+			.append(index(count.getComments(), base.getComments()));
+
+		if (!this.m_legacy) {
+			row.append(';');
+			if (commit != null) {
+				row.append(commit.getName());
+			}
+			row.append(';').append(commitTime);
+		}
+	}
+}
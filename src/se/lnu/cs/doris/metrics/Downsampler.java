@@ -0,0 +1,111 @@
+package se.lnu.cs.doris.metrics;
+
+/**
+ * Reduces a series to a given number of points with the Largest
+ * Triangle Three Buckets algorithm. The first and last points are kept
+ * and every bucket in between keeps the point forming the largest
+ * triangle with the point kept before it and the average of the next
+ * bucket, so peaks and dips survive where plain sampling would drop them.
+ * It runs in a single pass over the series.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class Downsampler {
+
+	/**
+	 * Select the points to keep of a series.
+	 * @param x X values in ascending order.
+	 * @param y Y values.
+	 * @param length Number of points of the series.
+	 * @param threshold Number of points to keep, at least 3 to downsample.
+	 * @return Indexes of the points to keep in ascending order.
+	 */
+	public static int[] select(double[] x, double[] y, int length, int threshold) {
+		if (threshold >= length || threshold < 3) {
+			int[] all = new int[length];
+			for (int i = 0; i < length; i++) {
+				all[i] = i;
+			}
+			return all;
+		}
+
+		int[] selected = new int[threshold];
+		//Buckets between the first and the last point.
+		double every = (double) (length - 2) / (threshold - 2);
+		int a = 0;
+
+		selected[0] = 0;
+
+		for (int i = 0; i < threshold - 2; i++) {
+			//Average of the next bucket, the last point for the last bucket.
+			int averageStart = (int) ((i + 1) * every) + 1;
+			int averageEnd = Math.min((int) ((i + 2) * every) + 1, length);
+			double averageX = 0;
+			double averageY = 0;
+
+			for (int j = averageStart; j < averageEnd; j++) {
+				averageX += x[j];
+				averageY += y[j];
+			}
+
+			int averageLength = averageEnd - averageStart;
+			averageX /= averageLength;
+			averageY /= averageLength;
+
+			//Point of this bucket forming the largest triangle.
+			int rangeStart = (int) (i * every) + 1;
+			int rangeEnd = (int) ((i + 1) * every) + 1;
+			double maxArea = -1;
+			int next = rangeStart;
+
+			for (int j = rangeStart; j < rangeEnd; j++) {
+				double area = Math.abs((x[a] - averageX) * (y[j] - y[a]) - (x[a] - x[j]) * (averageY - y[a]));
+
+				if (area > maxArea) {
+					maxArea = area;
+					next = j;
+				}
+			}
+
+			selected[i + 1] = next;
+			a = next;
+		}
+
+		selected[threshold - 1] = length - 1;
+
+		return selected;
+	}
+
+	/**
+	 * Pick the values at the selected indexes.
+	 * @param values Values of a series.
+	 * @param selected Indexes returned by select().
+	 * @return The selected values.
+	 */
+	public static double[] pick(double[] values, int[] selected) {
+		double[] picked = new double[selected.length];
+
+		for (int i = 0; i < selected.length; i++) {
+			picked[i] = values[selected[i]];
+		}
+
+		return picked;
+	}
+}
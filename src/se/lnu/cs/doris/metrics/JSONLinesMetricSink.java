@@ -0,0 +1,95 @@
+package se.lnu.cs.doris.metrics;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+import se.lnu.cs.doris.global.GlobalStrings;
+
+/**
+ * Writes line counts as JSON Lines, one object per commit holding the
+ * sha-1, the commit time, the absolute counts and the index values
+ * relative to the first commit. Keys are named as the attributes of the
+ * xml log.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class JSONLinesMetricSink extends TextMetricSink {
+
+	private static final String NUMBER_KEY = "{\"" + GlobalStrings.COMMIT_NUMBER + "\":";
+
+	/**
+	 * Constructor.
+	 * @param file File to write to.
+	 * @param append True to continue the file if it exists.
+	 * @throws IOException
+	 */
+	public JSONLinesMetricSink(File file, Boolean append) throws IOException {
+		this.open(file, append);
+	}
+
+	@Override
+	protected String getHeader() {
+		return null;
+	}
+
+	@Override
+	protected Boolean acceptsHeader(String header) {
+		return true;
+	}
+
+	@Override
+	protected Integer parseCommitNumber(String row) {
+		if (!row.startsWith(NUMBER_KEY)) {
+			return null;
+		}
+
+		int start = NUMBER_KEY.length();
+		int end = start;
+
+		while (end < row.length() && Character.isDigit(row.charAt(end))) {
+			end++;
+		}
+
+		return (end > start) ? Integer.parseInt(row.substring(start, end)) : null;
+	}
+
+	@Override
+	protected void formatRow(StringBuilder row, int commitNumber, ObjectId commit, int commitTime,
+			LineCount count, LineCount base) {
+		row.append(NUMBER_KEY).append(commitNumber);
+		row.append(",\"").append(GlobalStrings.COMMIT_NAME).append("\":");
+		if (commit != null) {
+			row.append('"').append(commit.getName()).append('"');
+		} else {
+			row.append("null");
+		}
+		row.append(",\"").append(GlobalStrings.COMMIT_TIME).append("\":").append(commitTime);
+		row.append(",\"total\":").append(count.getTotal());
+		row.append(",\"code\":").append(count.getCode());
+		row.append(",\"comments\":").append(count.getComments());
+		row.append(",\"blanks\":").append(count.getBlanks());
+		row.append(",\"index_total\":").append(index(count.getTotal(), base.getTotal()));
+		row.append(",\"index_code\":").append(index(count.getCode(), base.getCode()));
+		row.append(",\"index_comments\":").append(index(count.getComments(), base.getComments()));
+		row.append('}');
+	}
+}
@@ -0,0 +1,125 @@
+package se.lnu.cs.doris.metrics;
+
+/**
+ * Comment and string syntax of a language, the data a Lexer is compiled
+ * from. Languages are usually read from a table by LanguageRegistry.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class Language {
+
+	private String m_name;
+	private String[] m_extensions = new String[0];
+	private String[] m_lineComments = new String[0];
+	private String[] m_blockComments = new String[0];
+	private String[] m_strings = new String[0];
+	private String[] m_multiLineStrings = new String[0];
+	private String m_escape = null;
+	private Boolean m_nested = false;
+
+	public Language(String name) {
+		this.m_name = name;
+	}
+
+	public String getName() {
+		return this.m_name;
+	}
+
+	/**
+	 * File extensions without the dot, or whole file names such as Makefile.
+	 */
+	public String[] getExtensions() {
+		return this.m_extensions;
+	}
+
+	public void setExtensions(String[] extensions) {
+		this.m_extensions = extensions;
+	}
+
+	/**
+	 * Markers starting a comment that ends with the line, e.g. // or #.
+	 */
+	public String[] getLineComments() {
+		return this.m_lineComments;
+	}
+
+	public void setLineComments(String[] lineComments) {
+		this.m_lineComments = lineComments;
+	}
+
+	/**
+	 * Start and end markers of block comments in pairs, e.g. { "/*", "*&#47;" }.
+	 */
+	public String[] getBlockComments() {
+		return this.m_blockComments;
+	}
+
+	public void setBlockComments(String[] blockComments) {
+		if (blockComments.length % 2 != 0) {
+			throw new IllegalArgumentException("Block comments of " + this.m_name + " must be given in pairs.");
+		}
+
+		this.m_blockComments = blockComments;
+	}
+
+	/**
+	 * Delimiters of string literals that end with the line at the latest.
+	 */
+	public String[] getStrings() {
+		return this.m_strings;
+	}
+
+	public void setStrings(String[] strings) {
+		this.m_strings = strings;
+	}
+
+	/**
+	 * Delimiters of string literals that can span several lines, e.g. """.
+	 */
+	public String[] getMultiLineStrings() {
+		return this.m_multiLineStrings;
+	}
+
+	public void setMultiLineStrings(String[] multiLineStrings) {
+		this.m_multiLineStrings = multiLineStrings;
+	}
+
+	/**
+	 * Escape character of string literals, null if there is none.
+	 */
+	public String getEscape() {
+		return this.m_escape;
+	}
+
+	public void setEscape(String escape) {
+		this.m_escape = escape;
+	}
+
+	/**
+	 * True if block comments can be nested.
+	 */
+	public Boolean getNested() {
+		return this.m_nested;
+	}
+
+	public void setNested(Boolean nested) {
+		this.m_nested = nested;
+	}
+}
@@ -0,0 +1,304 @@
+package se.lnu.cs.doris.metrics;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps file extensions to the lexer of their language. Languages are
+ * data, read from tables in the format below, so a language is added by
+ * writing its table instead of code:
+ *
+ * [Python]
+ * extensions = py pyw
+ * line = #
+ * block =
+ * strings = " '
+ * multiline = """ '''
+ * escape = \
+ * nested = false
+ *
+ * Every value is a list separated by white space and block comments are
+ * given as start and end pairs. Files of unknown extensions are lexed as
+ * C, which is what SLOC counted before languages were known.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class LanguageRegistry {
+
+	public static final String DEFAULT_LANGUAGE = "C";
+
+	private static final String[] BUILT_IN = {
+		"[C]",
+		"extensions = c h cc cpp cxx hpp hh hxx ino java js jsx mjs cjs ts tsx cs go kt kts scala sc groovy gradle swift dart php m mm proto json",
+		"line = //",
+		"block = /* */",
+		"strings = \" '",
+		"multiline = `",
+		"escape = \\",
+		"[CSS]",
+		"extensions = css",
+		"block = /* */",
+		"strings = \" '",
+		"escape = \\",
+		"[SCSS]",
+		"extensions = scss less sass",
+		"line = //",
+		"block = /* */",
+		"strings = \" '",
+		"escape = \\",
+		"[Rust]",
+		"extensions = rs",
+		"line = //",
+		"block = /* */",
+		"strings = \"",
+		"escape = \\",
+		"nested = true",
+		"[Python]",
+		"extensions = py pyw pyi",
+		"line = #",
+		"strings = \" '",
+		"multiline = \"\"\" '''",
+		"escape = \\",
+		"[Shell]",
+		"extensions = sh bash zsh ksh fish",
+		"line = #",
+		"multiline = \" '",
+		"escape = \\",
+		"[Ruby]",
+		"extensions = rb rake gemspec Rakefile Gemfile",
+		"line = #",
+		"block = =begin =end",
+		"strings = \" '",
+		"escape = \\",
+		"[Perl]",
+		"extensions = pl pm t",
+		"line = #",
+		"strings = \" '",
+		"escape = \\",
+		"[Script]",
+		"extensions = r cmake CMakeLists.txt Makefile mk Dockerfile toml yml yaml properties cfg conf ini",
+		"line = #",
+		"strings = \" '",
+		"[SQL]",
+		"extensions = sql",
+		"line = --",
+		"block = /* */",
+		"strings = \" '",
+		"[Lua]",
+		"extensions = lua",
+		"line = --",
+		"block = --[[ ]]",
+		"strings = \" '",
+		"escape = \\",
+		"[Haskell]",
+		"extensions = hs lhs elm",
+		"line = --",
+		"block = {- -}",
+		"strings = \"",
+		"escape = \\",
+		"nested = true",
+		"[Pascal]",
+		"extensions = pas pp dpr",
+		"line = //",
+		"block = { } (* *)",
+		"strings = '",
+		"[Lisp]",
+		"extensions = lisp lsp el clj cljs cljc scm rkt",
+		"line = ;",
+		"strings = \"",
+		"escape = \\",
+		"[Erlang]",
+		"extensions = erl hrl",
+		"line = %",
+		"strings = \"",
+		"escape = \\",
+		"[TeX]",
+		"extensions = tex sty cls",
+		"line = %",
+		"[XML]",
+		"extensions = xml xsd xsl xslt html htm xhtml svg vue",
+		"block = <!-- -->",
+		"[Text]",
+		"extensions = txt md markdown rst csv"
+	};
+
+	private static final LanguageRegistry DEFAULT = new LanguageRegistry();
+
+	private Map<String, Lexer> m_lexers = new ConcurrentHashMap<String, Lexer>();
+	private Lexer m_default;
+
+	/**
+	 * Create a registry holding the built in languages.
+	 */
+	public LanguageRegistry() {
+		try {
+			this.load(new StringReader(String.join("\n", BUILT_IN)));
+		} catch (IOException e) {
+			//Can't happen when reading a string.
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Get the registry used when no other is given.
+	 * @return LanguageRegistry
+	 */
+	public static LanguageRegistry getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Add a language, replacing earlier languages of the same extensions.
+	 * @param language Language to add.
+	 */
+	public void register(Language language) {
+		Lexer lexer = new Lexer(language);
+
+		for (String extension : language.getExtensions()) {
+			this.m_lexers.put(extension, lexer);
+		}
+
+		if (language.getName().equals(DEFAULT_LANGUAGE)) {
+			this.m_default = lexer;
+		}
+	}
+
+	/**
+	 * Add the languages of a table file.
+	 * @param file Table in the format described for this class.
+	 * @throws IOException
+	 */
+	public void load(File file) throws IOException {
+		try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			this.load(reader);
+		}
+	}
+
+	/**
+	 * Add the languages of a table.
+	 * @param reader Table in the format described for this class.
+	 * @throws IOException
+	 */
+	public void load(Reader reader) throws IOException {
+		BufferedReader lines = new BufferedReader(reader);
+		List<Language> languages = new ArrayList<Language>();
+		Language language = null;
+		String line;
+		int number = 0;
+
+		while ((line = lines.readLine()) != null) {
+			number++;
+			line = line.trim();
+
+			if (line.isEmpty() || line.startsWith(";")) {
+				continue;
+			}
+
+			if (line.startsWith("[") && line.endsWith("]")) {
+				language = new Language(line.substring(1, line.length() - 1).trim());
+				languages.add(language);
+				continue;
+			}
+
+			int equals = line.indexOf('=');
+			if (language == null || equals < 0) {
+				throw new IOException("Malformed language table at line " + number + ": " + line);
+			}
+
+			String key = line.substring(0, equals).trim().toLowerCase();
+			String value = line.substring(equals + 1).trim();
+			String[] values = value.isEmpty() ? new String[0] : value.split("\\s+");
+
+			switch (key) {
+			case "extensions":
+				language.setExtensions(values);
+				break;
+			case "line":
+				language.setLineComments(values);
+				break;
+			case "block":
+				try {
+					language.setBlockComments(values);
+				} catch (IllegalArgumentException e) {
+					throw new IOException(e.getMessage() + " Line " + number + ".");
+				}
+				break;
+			case "strings":
+				language.setStrings(values);
+				break;
+			case "multiline":
+				language.setMultiLineStrings(values);
+				break;
+			case "escape":
+				language.setEscape(value.isEmpty() ? null : value);
+				break;
+			case "nested":
+				language.setNested(Boolean.parseBoolean(value));
+				break;
+			default:
+				throw new IOException("Unknown key " + key + " in language table at line " + number + ".");
+			}
+		}
+
+		for (Language l : languages) {
+			this.register(l);
+		}
+	}
+
+	/**
+	 * Get the lexer of a file by its name or, if no language claims the
+	 * whole name, by its extension.
+	 * @param fileName Name of the file, may be null.
+	 * @return Lexer of the language, the C lexer if the language is unknown.
+	 */
+	public Lexer lexerFor(String fileName) {
+		if (fileName == null) {
+			return this.m_default;
+		}
+
+		int slash = fileName.lastIndexOf('/');
+		String name = (slash >= 0) ? fileName.substring(slash + 1) : fileName;
+
+		Lexer lexer = this.m_lexers.get(name);
+		if (lexer != null) {
+			return lexer;
+		}
+
+		int dot = name.lastIndexOf('.');
+		if (dot >= 0) {
+			lexer = this.m_lexers.get(name.substring(dot + 1));
+
+			if (lexer == null) {
+				lexer = this.m_lexers.get(name.substring(dot + 1).toLowerCase());
+			}
+		}
+
+		return (lexer != null) ? lexer : this.m_default;
+	}
+}
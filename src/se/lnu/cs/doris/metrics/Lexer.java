@@ -0,0 +1,415 @@
+package se.lnu.cs.doris.metrics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * State machine classifying lines as code, comment or blank, compiled
+ * from the tables of a Language. The markers of the language are turned
+ * into byte arrays and a 256 entry table of the bytes a marker can start
+ * with, so the inner loop skips every other byte with a single array
+ * lookup no matter how many markers the language has.
+ *
+ * A line is code if anything but white space is outside of a comment,
+ * a comment if it only holds white space and comments and blank if it
+ * only holds white space. Comment markers inside string literals are
+ * ignored.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class Lexer {
+
+	private static final int CODE = 0;
+	private static final int LINE_COMMENT = 1;
+	private static final int BLOCK_COMMENT = 2;
+	private static final int STRING = 3;
+
+	private static final byte[] LINE_BREAK = { '\n' };
+
+	private String m_name;
+	//Markers found in code, longest first so """ wins over ".
+	private byte[][] m_markers;
+	private int[] m_kinds;
+	//Block comment pair of a block marker or the closing delimiter of a string marker.
+	private byte[][] m_closers;
+	private boolean[] m_multiLine;
+	//Marker indexes by the byte they start with, null if no marker does.
+	private int[][] m_starts = new int[256][];
+	private boolean[] m_special = new boolean[256];
+	private int m_escape = -1;
+	private boolean m_nested;
+	//Longest marker, a scan stops this many bytes minus one before the end of a buffer.
+	private int m_longest = 1;
+
+	/**
+	 * Compile the tables of a language.
+	 * @param language Language to lex.
+	 */
+	public Lexer(Language language) {
+		this.m_name = language.getName();
+		this.m_nested = language.getNested();
+
+		List<byte[]> markers = new ArrayList<byte[]>();
+		List<Integer> kinds = new ArrayList<Integer>();
+		List<byte[]> closers = new ArrayList<byte[]>();
+		List<Boolean> multiLine = new ArrayList<Boolean>();
+
+		for (String marker : language.getLineComments()) {
+			addMarker(markers, kinds, closers, multiLine, marker, LINE_COMMENT, null, false);
+		}
+
+		String[] blocks = language.getBlockComments();
+		for (int i = 0; i + 1 < blocks.length; i += 2) {
+			addMarker(markers, kinds, closers, multiLine, blocks[i], BLOCK_COMMENT, blocks[i + 1], true);
+		}
+
+		for (String marker : language.getStrings()) {
+			addMarker(markers, kinds, closers, multiLine, marker, STRING, marker, false);
+		}
+
+		for (String marker : language.getMultiLineStrings()) {
+			addMarker(markers, kinds, closers, multiLine, marker, STRING, marker, true);
+		}
+
+		int count = markers.size();
+		this.m_markers = markers.toArray(new byte[count][]);
+		this.m_closers = closers.toArray(new byte[count][]);
+		this.m_kinds = new int[count];
+		this.m_multiLine = new boolean[count];
+
+		for (int i = 0; i < count; i++) {
+			this.m_kinds[i] = kinds.get(i);
+			this.m_multiLine[i] = multiLine.get(i);
+			this.m_longest = Math.max(this.m_longest, this.m_markers[i].length);
+
+			if (this.m_closers[i] != null) {
+				this.m_longest = Math.max(this.m_longest, this.m_closers[i].length);
+			}
+		}
+
+		for (int b = 0; b < 256; b++) {
+			List<Integer> starts = new ArrayList<Integer>();
+
+			for (int i = 0; i < count; i++) {
+				if ((this.m_markers[i][0] & 0xFF) == b) {
+					starts.add(i);
+				}
+			}
+
+			if (!starts.isEmpty()) {
+				starts.sort((x, y) -> this.m_markers[y].length - this.m_markers[x].length);
+				this.m_starts[b] = starts.stream().mapToInt(Integer::intValue).toArray();
+				this.m_special[b] = true;
+			}
+		}
+
+		this.m_special['\n'] = true;
+
+		String escape = language.getEscape();
+		if (escape != null && !escape.isEmpty()) {
+			this.m_escape = escape.getBytes(StandardCharsets.UTF_8)[0] & 0xFF;
+			this.m_longest = Math.max(this.m_longest, 2);
+		}
+	}
+
+	public String getName() {
+		return this.m_name;
+	}
+
+	/**
+	 * Get the number of bytes a scan might leave unread at the end of a
+	 * buffer, waiting for the rest of a marker.
+	 * @return Number of bytes.
+	 */
+	public int getCarry() {
+		return this.m_longest - 1;
+	}
+
+	/**
+	 * Create the state for lexing a single file.
+	 * @return State
+	 */
+	public State newState() {
+		return new State();
+	}
+
+	private static void addMarker(List<byte[]> markers, List<Integer> kinds, List<byte[]> closers,
+			List<Boolean> multiLine, String marker, int kind, String closer, Boolean isMultiLine) {
+		if (marker == null || marker.isEmpty()) {
+			return;
+		}
+
+		markers.add(marker.getBytes(StandardCharsets.UTF_8));
+		kinds.add(kind);
+		closers.add(closer != null ? closer.getBytes(StandardCharsets.UTF_8) : null);
+		multiLine.add(isMultiLine);
+	}
+
+	private static boolean isWhiteSpace(byte b) {
+		return b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+	}
+
+	private static boolean matches(byte[] bytes, int i, byte[] marker) {
+		for (int j = 1; j < marker.length; j++) {
+			if (bytes[i + j] != marker[j]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * State of the classification, kept between buffers of the same file.
+	 * Primitive booleans are used since this is the inner loop of SLOC.
+	 */
+	public class State {
+
+		private int m_state = CODE;
+		//Marker that opened the current comment or string.
+		private int m_current = -1;
+		private int m_depth = 0;
+		private boolean m_lineHasCode = false;
+		private boolean m_lineHasComment = false;
+		private int m_code = 0;
+		private int m_comments = 0;
+		private int m_blanks = 0;
+
+		/**
+		 * Classify the lines of a part of a file.
+		 * @param bytes Buffer holding the part.
+		 * @param offset Start of the part.
+		 * @param length Length of the part.
+		 * @param last True if no more bytes follow.
+		 * @return Number of bytes scanned. Unless last is set, at most
+		 * getCarry() bytes at the end may be left to be scanned again
+		 * with the bytes that follow them.
+		 */
+		public int scan(byte[] bytes, int offset, int length, boolean last) {
+			//The state is kept in locals while scanning and stored when done.
+			final boolean[] special = m_special;
+			final int escape = m_escape;
+			int state = this.m_state;
+			int current = this.m_current;
+			int depth = this.m_depth;
+			boolean lineHasCode = this.m_lineHasCode;
+			boolean lineHasComment = this.m_lineHasComment;
+			int code = this.m_code;
+			int comments = this.m_comments;
+			int blanks = this.m_blanks;
+
+			int i = offset;
+			int end = offset + length;
+
+			scan:
+			while (i < end) {
+				byte b = bytes[i];
+
+				if (b == '\n') {
+					if (lineHasCode) {
+						code++;
+					} else if (lineHasComment) {
+						comments++;
+					} else {
+						blanks++;
+					}
+
+					//Line comments and single line strings end with the line.
+					if (state == LINE_COMMENT || (state == STRING && !m_multiLine[current])) {
+						state = CODE;
+					}
+					lineHasCode = false;
+					lineHasComment = false;
+					i++;
+					continue;
+				}
+
+				switch (state) {
+				case CODE:
+					if (special[b & 0xFF]) {
+						int matched = -1;
+
+						for (int marker : m_starts[b & 0xFF]) {
+							byte[] bytesOfMarker = m_markers[marker];
+
+							if (i + bytesOfMarker.length > end) {
+								if (!last) {
+									break scan;
+								}
+							} else if (matches(bytes, i, bytesOfMarker)) {
+								matched = marker;
+								break;
+							}
+						}
+
+						if (matched < 0) {
+							lineHasCode = true;
+							i++;
+							break;
+						}
+
+						i += m_markers[matched].length;
+						current = matched;
+
+						if (m_kinds[matched] == STRING) {
+							state = STRING;
+							lineHasCode = true;
+						} else {
+							state = m_kinds[matched];
+							depth = 1;
+							lineHasComment = true;
+						}
+					} else if (isWhiteSpace(b)) {
+						i++;
+					} else {
+						lineHasCode = true;
+						i++;
+
+						//The line is code, only markers and the line break matter now.
+						while (i < end && !special[bytes[i] & 0xFF]) {
+							i++;
+						}
+					}
+					break;
+				case LINE_COMMENT:
+					//Nothing matters until the end of the line.
+					while (i < end && bytes[i] != '\n') {
+						i++;
+					}
+					break;
+				case BLOCK_COMMENT: {
+					byte[] closer = m_closers[current];
+					byte[] opener = m_markers[current];
+
+					if (b == closer[0] || (m_nested && b == opener[0])) {
+						if (i + m_longest > end && !last) {
+							break scan;
+						}
+
+						if (b == closer[0] && i + closer.length <= end && matches(bytes, i, closer)) {
+							i += closer.length;
+							lineHasComment = true;
+
+							if (--depth == 0) {
+								state = CODE;
+							}
+							break;
+						}
+
+						if (m_nested && b == opener[0] && i + opener.length <= end && matches(bytes, i, opener)) {
+							i += opener.length;
+							depth++;
+							lineHasComment = true;
+							break;
+						}
+					}
+
+					if (!isWhiteSpace(b)) {
+						lineHasComment = true;
+					}
+					i++;
+
+					//Only the end of the comment or the line matters now.
+					while (lineHasComment && i < end) {
+						byte c = bytes[i];
+						if (c == '\n' || c == closer[0] || (m_nested && c == opener[0])) {
+							break;
+						}
+						i++;
+					}
+					break;
+				}
+				case STRING: {
+					byte[] closer = m_closers[current];
+
+					if ((b & 0xFF) == escape) {
+						if (i + 1 >= end) {
+							if (!last) {
+								break scan;
+							}
+							i++;
+						} else {
+							//An escaped line break is still counted as one.
+							i += (bytes[i + 1] == '\n') ? 1 : 2;
+						}
+						lineHasCode = true;
+						break;
+					}
+
+					if (b == closer[0]) {
+						if (i + closer.length > end) {
+							if (!last) {
+								break scan;
+							}
+						} else if (matches(bytes, i, closer)) {
+							i += closer.length;
+							state = CODE;
+							lineHasCode = true;
+							break;
+						}
+					}
+
+					if (!isWhiteSpace(b)) {
+						lineHasCode = true;
+					}
+					i++;
+
+					while (lineHasCode && i < end) {
+						byte c = bytes[i];
+						if (c == '\n' || c == closer[0] || (c & 0xFF) == escape) {
+							break;
+						}
+						i++;
+					}
+					break;
+				}
+				default:
+					i++;
+					break;
+				}
+			}
+
+			this.m_state = state;
+			this.m_current = current;
+			this.m_depth = depth;
+			this.m_lineHasCode = lineHasCode;
+			this.m_lineHasComment = lineHasComment;
+			this.m_code = code;
+			this.m_comments = comments;
+			this.m_blanks = blanks;
+
+			return i - offset;
+		}
+
+		/**
+		 * Classify the last line and get the result.
+		 * @return LineCount
+		 */
+		public LineCount finish() {
+			//The last line might not end with a line break.
+			if (this.m_lineHasCode || this.m_lineHasComment) {
+				this.scan(LINE_BREAK, 0, 1, true);
+			}
+
+			return new LineCount(this.m_code, this.m_comments, this.m_blanks);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package se.lnu.cs.doris.metrics;
+
+/**
+ * Line counts of a file, a directory or a whole commit.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of 
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License 
+ * along with Doris.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ * 
+ *  
+ * @author Emil Carlsson
+ * 
+ */
+public class LineCount {
+
+	private int m_code;
+	private int m_comments;
+	private int m_blanks;
+	
+	public LineCount() {
+		this(0, 0, 0);
+	}
+	
+	public LineCount(int code, int comments) {
+		this(code, comments, 0);
+	}
+	
+	public LineCount(int code, int comments, int blanks) {
+		this.m_code = code;
+		this.m_comments = comments;
+		this.m_blanks = blanks;
+	}
+	
+	/**
+	 * Add another count to this one.
+	 * @param count Count to add.
+	 */
+	public void add(LineCount count) {
+		this.m_code += count.m_code;
+		this.m_comments += count.m_comments;
+		this.m_blanks += count.m_blanks;
+	}
+	
+	public int getCode() {
+		return this.m_code;
+	}
+	
+	public int getComments() {
+		return this.m_comments;
+	}
+	
+	public int getBlanks() {
+		return this.m_blanks;
+	}
+	
+	/**
+	 * Lines of code and lines of comments together.
+	 * @return Total lines.
+	 */
+	public int getTotal() {
+		return this.m_code + this.m_comments;
+	}
+}
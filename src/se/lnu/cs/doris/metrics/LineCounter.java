@@ -0,0 +1,252 @@
+package se.lnu.cs.doris.metrics;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import se.lnu.cs.doris.monitor.LineCountEvent;
+import se.lnu.cs.doris.monitor.MiningStatistics;
+
+/**
+ * Counts lines of code, lines of comments and blank lines of a single
+ * file in one pass over its raw bytes.
+ *
+ * A line is code if anything but white space is outside of a comment,
+ * a comment if it only holds white space and comments and blank if it
+ * only holds white space. The comment and string syntax is the one of the
+ * language of the file, looked up by its extension in a LanguageRegistry.
+ * No objects are created per line; the bytes are read into a buffer kept
+ * by each thread and files larger than MAP_THRESHOLD are memory mapped.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class LineCounter {
+
+	//Files larger than this are memory mapped instead of read.
+	public static final long MAP_THRESHOLD = 1024 * 1024;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+	//File endings that are a plain extension, looked up without the dot.
+	private Set<String> m_extensions = null;
+	//Other file endings, matched with endsWith.
+	private String[] m_fileEndings = null;
+	private LanguageRegistry m_languages;
+
+	/**
+	 * Constructor taking the file endings to count, using the default
+	 * languages.
+	 * @param fileEndings File endings to count, null to count all files.
+	 */
+	public LineCounter(String[] fileEndings) {
+		this(fileEndings, LanguageRegistry.getDefault());
+	}
+
+	/**
+	 * Constructor.
+	 * @param fileEndings File endings to count, null to count all files.
+	 * @param languages Languages the files are lexed as.
+	 */
+	public LineCounter(String[] fileEndings, LanguageRegistry languages) {
+		this.m_languages = languages;
+
+		if (fileEndings == null) {
+			return;
+		}
+
+		List<String> others = new ArrayList<String>();
+		this.m_extensions = new HashSet<String>();
+
+		for (String ending : fileEndings) {
+			String extension = ending.startsWith(".") ? ending.substring(1) : ending;
+
+			if (!extension.isEmpty() && extension.indexOf('.') < 0 && extension.indexOf('/') < 0) {
+				this.m_extensions.add(extension);
+			} else {
+				others.add(ending);
+			}
+		}
+
+		this.m_fileEndings = others.toArray(new String[others.size()]);
+	}
+
+	/**
+	 * Check if a file should be counted.
+	 * @param fileName Name of the file.
+	 * @return True if the file have one of the file endings.
+	 */
+	public Boolean accepts(String fileName) {
+		if (this.m_extensions == null) {
+			return true;
+		}
+
+		int dot = fileName.lastIndexOf('.');
+		if (dot >= 0 && this.m_extensions.contains(fileName.substring(dot + 1))) {
+			return true;
+		}
+
+		for (String s : this.m_fileEndings) {
+			if (fileName.endsWith(s)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Count the lines of a file. The stream is closed when done.
+	 * @param fileName Name of the file, used to pick the language.
+	 * @param stream Content of the file.
+	 * @return LineCount
+	 * @throws Exception
+	 */
+	public LineCount count(String fileName, InputStream stream) throws Exception {
+		LineCountEvent event = new LineCountEvent();
+		event.begin();
+		byte[] buffer = BUFFER.get();
+		Lexer.State state = this.m_languages.lexerFor(fileName).newState();
+		int carry = 0;
+		long size = 0;
+
+		try (InputStream in = stream) {
+			int read;
+			while ((read = in.read(buffer, carry, buffer.length - carry)) > 0) {
+				carry = scan(state, buffer, carry + read);
+				size += read;
+			}
+		}
+
+		state.scan(buffer, 0, carry, true);
+
+		return finish(state, event, fileName, size);
+	}
+
+	/**
+	 * Count the lines of a file on disk.
+	 * @param file Path to the file.
+	 * @return LineCount
+	 * @throws Exception
+	 */
+	public LineCount count(Path file) throws Exception {
+		LineCountEvent event = new LineCountEvent();
+		event.begin();
+		byte[] buffer = BUFFER.get();
+		Lexer.State state = this.m_languages.lexerFor(file.getFileName().toString()).newState();
+		int carry = 0;
+
+		long size;
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			size = channel.size();
+
+			if (size > MAP_THRESHOLD) {
+				MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+				while (mapped.hasRemaining()) {
+					int length = Math.min(buffer.length - carry, mapped.remaining());
+					mapped.get(buffer, carry, length);
+					carry = scan(state, buffer, carry + length);
+				}
+			} else {
+				ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+				int read;
+
+				while ((read = channel.read(wrapped)) > 0) {
+					carry = scan(state, buffer, carry + read);
+					wrapped.clear().position(carry);
+				}
+			}
+		}
+
+		state.scan(buffer, 0, carry, true);
+
+		return finish(state, event, file.toString(), size);
+	}
+
+	/**
+	 * Count the lines of content already in memory.
+	 * @param fileName Name of the file, used to pick the language.
+	 * @param bytes Content of the file.
+	 * @return LineCount
+	 */
+	public LineCount count(String fileName, byte[] bytes) {
+		LineCountEvent event = new LineCountEvent();
+		event.begin();
+		Lexer.State state = this.m_languages.lexerFor(fileName).newState();
+		state.scan(bytes, 0, bytes.length, true);
+
+		return finish(state, event, fileName, bytes.length);
+	}
+
+	/**
+	 * Get the lexer a file is counted with.
+	 * @param fileName Name of the file.
+	 * @return Lexer
+	 */
+	public Lexer lexerFor(String fileName) {
+		return this.m_languages.lexerFor(fileName);
+	}
+
+	/**
+	 * Get the count of a scanned file and report it to the statistics
+	 * and the flight recorder.
+	 */
+	private static LineCount finish(Lexer.State state, LineCountEvent event, String path, long size) {
+		LineCount count = state.finish();
+		MiningStatistics.getDefault().fileCounted(size);
+
+		event.end();
+		if (event.shouldCommit()) {
+			event.path = path;
+			event.bytes = size;
+			event.code = count.getCode();
+			event.comments = count.getComments();
+			event.blanks = count.getBlanks();
+			event.commit();
+		}
+
+		return count;
+	}
+
+	/**
+	 * Scan a filled buffer and move the bytes left for the next read to
+	 * its start.
+	 * @return Number of bytes moved.
+	 */
+	private static int scan(Lexer.State state, byte[] buffer, int length) {
+		int scanned = state.scan(buffer, 0, length, false);
+		int carry = length - scanned;
+
+		if (carry > 0) {
+			System.arraycopy(buffer, scanned, buffer, 0, carry);
+		}
+
+		return carry;
+	}
+}
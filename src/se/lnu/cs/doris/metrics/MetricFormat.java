@@ -0,0 +1,131 @@
+package se.lnu.cs.doris.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Formats the line counts of mined commits can be written in, named by
+ * the file suffix they are written with.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public enum MetricFormat {
+	CSV(".csv"), JSONL(".jsonl"), BINARY(".metrics");
+
+	private String m_suffix;
+
+	private MetricFormat(String suffix) {
+		this.m_suffix = suffix;
+	}
+
+	public String getSuffix() {
+		return this.m_suffix;
+	}
+
+	/**
+	 * Open a sink of this format.
+	 * @param dir Directory to write to.
+	 * @param projectName Name of the project, used as file name.
+	 * @param append True to continue an existing file.
+	 * @return MetricSink
+	 * @throws IOException
+	 */
+	public MetricSink open(File dir, String projectName, Boolean append) throws IOException {
+		File file = new File(dir, projectName + this.m_suffix);
+
+		switch (this) {
+		case JSONL:
+			return new JSONLinesMetricSink(file, append);
+		case BINARY:
+			return new BinaryMetricSink(file, append);
+		default:
+			return new CSVMetricSink(file, append);
+		}
+	}
+
+	/**
+	 * Open sinks of several formats as one.
+	 * @param dir Directory to write to.
+	 * @param projectName Name of the project, used as file name.
+	 * @param formats Names of the formats, null for csv only.
+	 * @param append True to continue existing files.
+	 * @return MetricSink
+	 * @throws IOException
+	 */
+	public static MetricSink open(File dir, String projectName, String[] formats, Boolean append) throws IOException {
+		List<MetricSink> sinks = new ArrayList<MetricSink>();
+
+		try {
+			for (MetricFormat format : parse(formats)) {
+				sinks.add(format.open(dir, projectName, append));
+			}
+		} catch (IOException e) {
+			for (MetricSink sink : sinks) {
+				sink.close();
+			}
+			throw e;
+		}
+
+		return (sinks.size() == 1) ? sinks.get(0) : new MultiMetricSink(sinks);
+	}
+
+	/**
+	 * Parse format names, e.g. csv, jsonl or bin.
+	 * @param formats Names of the formats, null for csv only.
+	 * @return Formats without duplicates.
+	 */
+	public static List<MetricFormat> parse(String[] formats) {
+		List<MetricFormat> parsed = new ArrayList<MetricFormat>();
+
+		if (formats != null) {
+			for (String name : formats) {
+				MetricFormat format = parse(name.trim());
+
+				if (!parsed.contains(format)) {
+					parsed.add(format);
+				}
+			}
+		}
+
+		if (parsed.isEmpty()) {
+			parsed.add(CSV);
+		}
+
+		return parsed;
+	}
+
+	private static MetricFormat parse(String name) {
+		switch (name.toLowerCase()) {
+		case "csv":
+			return CSV;
+		case "json":
+		case "jsonl":
+			return JSONL;
+		case "bin":
+		case "binary":
+		case "metrics":
+			return BINARY;
+		default:
+			throw new IllegalArgumentException("Unknown metric format " + name + ".");
+		}
+	}
+}
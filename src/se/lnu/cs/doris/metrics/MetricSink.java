@@ -0,0 +1,74 @@
+package se.lnu.cs.doris.metrics;
+
+import java.io.IOException;
+import java.util.Set;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Output of the line counts of mined commits. A sink keeps its file open
+ * for the whole run and writes rows in batches. Rows are written in
+ * commit number order and the first row is the base the index values
+ * of the later rows are relative to.
+ *
+ * A sink opened to continue an earlier file reads the commits already
+ * in it, so only new commits are written.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public interface MetricSink extends AutoCloseable {
+
+	/**
+	 * Rows written between flushes of the file.
+	 */
+	public static final int BATCH_SIZE = 1024;
+
+	/**
+	 * Get the commit in the first row of a continued file.
+	 * @return Commit number or null if the file has no rows yet.
+	 */
+	public Integer getBaseCommit();
+
+	/**
+	 * Get the commits already written to a continued file.
+	 * @return Commit numbers.
+	 */
+	public Set<Integer> getWritten();
+
+	/**
+	 * Write the line count of a commit.
+	 * @param commitNumber Number of the commit.
+	 * @param commit Sha-1 of the commit, null if unknown.
+	 * @param commitTime Commit time in seconds since the epoch, 0 if unknown.
+	 * @param count Line count of the commit.
+	 * @param base Line count of the base commit, the same as count for the first row.
+	 * @throws IOException
+	 */
+	public void write(int commitNumber, ObjectId commit, int commitTime, LineCount count, LineCount base) throws IOException;
+
+	/**
+	 * Write buffered rows to the file.
+	 * @throws IOException
+	 */
+	public void flush() throws IOException;
+
+	@Override
+	public void close() throws IOException;
+}
@@ -0,0 +1,95 @@
+package se.lnu.cs.doris.metrics;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Writes every row to several sinks, e.g. a csv file and a binary file
+ * of the same run. A commit counts as written only if every sink have
+ * it, and it is only written to the sinks that are missing it. The
+ * first sink decides which commit is the base.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class MultiMetricSink implements MetricSink {
+
+	private List<MetricSink> m_sinks;
+	private Set<Integer> m_written;
+
+	/**
+	 * Constructor.
+	 * @param sinks Sinks to write to, at least one.
+	 */
+	public MultiMetricSink(List<MetricSink> sinks) {
+		this.m_sinks = sinks;
+		this.m_written = new HashSet<Integer>(sinks.get(0).getWritten());
+
+		for (MetricSink sink : sinks) {
+			this.m_written.retainAll(sink.getWritten());
+		}
+	}
+
+	@Override
+	public Integer getBaseCommit() {
+		return this.m_sinks.get(0).getBaseCommit();
+	}
+
+	@Override
+	public Set<Integer> getWritten() {
+		return this.m_written;
+	}
+
+	@Override
+	public void write(int commitNumber, ObjectId commit, int commitTime, LineCount count, LineCount base) throws IOException {
+		for (MetricSink sink : this.m_sinks) {
+			if (!sink.getWritten().contains(commitNumber)) {
+				sink.write(commitNumber, commit, commitTime, count, base);
+			}
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		for (MetricSink sink : this.m_sinks) {
+			sink.flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		IOException failure = null;
+
+		for (MetricSink sink : this.m_sinks) {
+			try {
+				sink.close();
+			} catch (IOException e) {
+				failure = (failure == null) ? e : failure;
+			}
+		}
+
+		if (failure != null) {
+			throw failure;
+		}
+	}
+}
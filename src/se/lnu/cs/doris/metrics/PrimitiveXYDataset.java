@@ -0,0 +1,97 @@
+package se.lnu.cs.doris.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jfree.data.DomainOrder;
+import org.jfree.data.xy.AbstractXYDataset;
+
+/**
+ * XYDataset backed by arrays of doubles. Unlike XYSeries nothing is
+ * sorted, checked for duplicates or boxed when points are added; the
+ * series are expected to be in ascending x order already, which lets
+ * the renderer skip points outside of the visible range.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+@SuppressWarnings("serial")
+public class PrimitiveXYDataset extends AbstractXYDataset {
+
+	private List<String> m_keys = new ArrayList<String>();
+	private List<double[]> m_xValues = new ArrayList<double[]>();
+	private List<double[]> m_yValues = new ArrayList<double[]>();
+
+	/**
+	 * Add a series. The arrays are used as they are, not copied.
+	 * @param key Name of the series.
+	 * @param x X values in ascending order.
+	 * @param y Y values, as many as the x values.
+	 */
+	public void addSeries(String key, double[] x, double[] y) {
+		if (x.length != y.length) {
+			throw new IllegalArgumentException("Series " + key + " have " + x.length + " x values and " + y.length + " y values.");
+		}
+
+		this.m_keys.add(key);
+		this.m_xValues.add(x);
+		this.m_yValues.add(y);
+		this.fireDatasetChanged();
+	}
+
+	@Override
+	public int getSeriesCount() {
+		return this.m_keys.size();
+	}
+
+	@Override
+	public String getSeriesKey(int series) {
+		return this.m_keys.get(series);
+	}
+
+	@Override
+	public int getItemCount(int series) {
+		return this.m_xValues.get(series).length;
+	}
+
+	@Override
+	public DomainOrder getDomainOrder() {
+		return DomainOrder.ASCENDING;
+	}
+
+	@Override
+	public Number getX(int series, int item) {
+		return this.getXValue(series, item);
+	}
+
+	@Override
+	public Number getY(int series, int item) {
+		return this.getYValue(series, item);
+	}
+
+	@Override
+	public double getXValue(int series, int item) {
+		return this.m_xValues.get(series)[item];
+	}
+
+	@Override
+	public double getYValue(int series, int item) {
+		return this.m_yValues.get(series)[item];
+	}
+}
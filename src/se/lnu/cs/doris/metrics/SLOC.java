@@ -1,20 +1,17 @@
 package se.lnu.cs.doris.metrics;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
+import java.util.Map;
 
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartUtils;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.axis.NumberAxis;
-import org.jfree.chart.axis.NumberTickUnit;
 import org.jfree.chart.plot.PlotOrientation;
 import org.jfree.chart.plot.XYPlot;
-import org.jfree.data.xy.XYSeries;
-import org.jfree.data.xy.XYSeriesCollection;
 
-import se.lnu.cs.doris.global.Utilities;
+import se.lnu.cs.doris.git.CommitRange;
 
 /**
  * This file is a part of Doris
@@ -38,17 +35,43 @@ import se.lnu.cs.doris.global.Utilities;
  */
 public class SLOC {
 
+	//Points per series of a chart, twice the width of the chart in pixels.
+	public static final int DEFAULT_MAX_POINTS = 2000;
+	private static final int WIDTH = 1000;
+	private static final int HEIGHT = 720;
+
 	private File m_mainDir;
-	private final String m_avoid = ".git";
 	private int m_baseValueTotal = -1;
 	private int m_baseValueCode = -1;
 	private int m_baseValueComments = -1;
 	private String m_projectName;
 	private String[] m_fileEndings;
+	private TreeFilter m_filter = null;
+	private CommitRange m_range = null;
+	private int m_maxPoints = DEFAULT_MAX_POINTS;
 	
 	public SLOC(String path, String[] fileEndings, String projectName) {
 		this(new File(path), fileEndings, projectName);
 	}
+
+	/**
+	 * Constructor for a mining result whose files were filtered, so the
+	 * same files are counted when reading from the .git file.
+	 */
+	public SLOC(String path, String[] fileEndings, String projectName, TreeFilter filter) {
+		this(new File(path), fileEndings, projectName);
+		this.m_filter = filter;
+	}
+	
+	/**
+	 * Constructor for a mining result of a part of the history, so the
+	 * same commits are counted when reading from the .git file.
+	 * @param range Commits that were mined.
+	 */
+	public SLOC(String path, String[] fileEndings, String projectName, TreeFilter filter, CommitRange range) {
+		this(path, fileEndings, projectName, filter);
+		this.m_range = range;
+	}
 	
 	public SLOC(File dir, String[] fileEndings, String projectName) {
 		this.m_mainDir = dir;
@@ -56,6 +79,16 @@ public class SLOC {
 		this.m_fileEndings = fileEndings;
 	}
 	
+	/**
+	 * Set the number of points each series of the chart is reduced to.
+	 * Long histories are downsampled with Downsampler, keeping the shape
+	 * of the series.
+	 * @param maxPoints Points per series, 0 to draw every commit.
+	 */
+	public void setMaxPoints(int maxPoints) {
+		this.m_maxPoints = maxPoints;
+	}
+	
 	public void generatePNG() throws Exception {
 		this.generateImage(ImageType.PNG);
 	}
@@ -64,66 +97,78 @@ public class SLOC {
 		this.generateImage(ImageType.JPEG);
 	}
 	
+	public void generateSVG() throws Exception {
+		this.generateImage(ImageType.SVG);
+	}
+	
 	private void generateImage(ImageType type) throws Exception {
 		if (this.m_mainDir == null) {
 			throw new Exception("Base directory not set.");
 		}
 		
-		XYSeries linesOfCodeTotal= new XYSeries("Total lines");
-		XYSeries linesOfCode = new XYSeries("Lines of code");
-		XYSeries linesOfComments = new XYSeries("Lines of comments");
-		XYSeries baseLine = new XYSeries("index 100");
-		
-		for (File f : this.m_mainDir.listFiles()) {
-			if (f.isDirectory() && !f.getName().contains(this.m_avoid)) {
-				
-				int commitNumber = Utilities.parseInt(f.getName());
-				int slocd = 0;
-				int slocmt = 0;
-				int sloct = 0;
-				
-				for (File sd : f.listFiles()) {
-					if (!sd.getName().toLowerCase().contains(this.m_avoid)) {
-						slocd += this.countLines(sd, false);
-						slocmt += this.countLines(sd, true);
-						sloct += slocd + slocmt;
-					}
-				}
-				
-				if (this.m_baseValueTotal < 0) {
-					this.m_baseValueTotal = sloct;
-					this.m_baseValueComments = slocmt;
-					this.m_baseValueCode = slocd;
-					
-					sloct = 100;
-					slocmt = 100;
-					slocd = 100;
-				} else {
-					sloct = (int)((double)sloct/(double)this.m_baseValueTotal * 100);
-					slocmt = (int)((double)slocmt/(double)this.m_baseValueComments * 100);
-					slocd = (int)((double)slocd/(double)this.m_baseValueCode * 100);
-				}
-				
-				linesOfCodeTotal.add(commitNumber, sloct);
-				linesOfCode.add(commitNumber, slocd);
-				linesOfComments.add(commitNumber, slocmt);
-				baseLine.add(commitNumber, 100);
-				
+		Map<Integer, LineCount> counts;
+		
+		try (SnapshotHistory history = SnapshotHistory.open(this.m_mainDir, this.m_projectName, this.m_fileEndings, this.m_filter, this.m_range)) {
+			//Counted in parallel, ordered by commit number.
+			counts = new SnapshotCounter(this.m_fileEndings, history).count(this.m_mainDir, null);
+		}
+		
+		int length = counts.size();
+		double[] commits = new double[length];
+		double[] linesOfCodeTotal = new double[length];
+		double[] linesOfCode = new double[length];
+		double[] linesOfComments = new double[length];
+		int i = 0;
+		
+		for (Map.Entry<Integer, LineCount> commit : counts.entrySet()) {
+			int slocd = commit.getValue().getCode();
+			int slocmt = commit.getValue().getComments();
+			int sloct = slocd + slocmt;
+		
+			if (this.m_baseValueTotal < 0) {
+				this.m_baseValueTotal = sloct;
+				this.m_baseValueComments = slocmt;
+				this.m_baseValueCode = slocd;
+			
+				sloct = 100;
+				slocmt = 100;
+				slocd = 100;
+			} else {
+				sloct = (int)((double)sloct/(double)this.m_baseValueTotal * 100);
+				slocmt = (int)((double)slocmt/(double)this.m_baseValueComments * 100);
+				slocd = (int)((double)slocd/(double)this.m_baseValueCode * 100);
 			}
+		
+			commits[i] = commit.getKey();
+			linesOfCodeTotal[i] = sloct;
+			linesOfCode[i] = slocd;
+			linesOfComments[i] = slocmt;
+			i++;
 		}
 		
-		XYSeriesCollection collection = new XYSeriesCollection();
+		PrimitiveXYDataset dataset = new PrimitiveXYDataset();
 		
-		collection.addSeries(linesOfCodeTotal);
-		collection.addSeries(linesOfCode);
-		collection.addSeries(linesOfComments);
-		collection.addSeries(baseLine);
+		this.addSeries(dataset, "Total lines", commits, linesOfCodeTotal);
+		this.addSeries(dataset, "Lines of code", commits, linesOfCode);
+		this.addSeries(dataset, "Lines of comments", commits, linesOfComments);
+		//A straight line only needs its ends.
+		dataset.addSeries("index 100", 
+				(length > 0) ? new double[] { commits[0], commits[length - 1] } : new double[0],
+				(length > 0) ? new double[] { 100, 100 } : new double[0]);
+		
+		String title = "Source lines of code change for " + this.m_projectName + " \nBase value code: " + this.m_baseValueCode + "\nBase value comments: " + this.m_baseValueComments;
+		
+		if (type == ImageType.SVG) {
+			new SVGChartWriter(WIDTH, HEIGHT).write(new File(this.m_mainDir.getAbsolutePath(), "sloc_chart.svg"), 
+					title, "Commit", "SLOC change %", dataset);
+			return;
+		}
 		
 		JFreeChart chart = ChartFactory.createXYLineChart(
-				"Source lines of code change for " + this.m_projectName + " \nBase value code: " + this.m_baseValueCode + "\nBase value comments: " + this.m_baseValueComments,
+				title,
 				"Commit",
 				"SLOC change %",
-				collection,
+				dataset,
 				PlotOrientation.VERTICAL,
 				true,
 				true,
@@ -132,92 +177,32 @@ public class SLOC {
 		
 		XYPlot plot = chart.getXYPlot();
 		
+		//Whole number ticks chosen by the axis, a fixed unit gives thousands of ticks on long histories.
 		NumberAxis xAxis = (NumberAxis) plot.getDomainAxis();		
-		xAxis.setTickUnit(new NumberTickUnit(2));
+		xAxis.setStandardTickUnits(NumberAxis.createIntegerTickUnits());
 		
 		NumberAxis yAxis = (NumberAxis) plot.getRangeAxis();		
-		yAxis.setTickUnit(new NumberTickUnit(10));
+		yAxis.setStandardTickUnits(NumberAxis.createIntegerTickUnits());
 		
 		switch (type) {
 		case JPEG:
-			ChartUtils.saveChartAsJPEG(new File(this.m_mainDir.getAbsolutePath(), "sloc_chart.jpg"), chart, 1000, 720);
+			ChartUtils.saveChartAsJPEG(new File(this.m_mainDir.getAbsolutePath(), "sloc_chart.jpg"), chart, WIDTH, HEIGHT);
 			break;
 		case PNG:
-			ChartUtils.saveChartAsPNG(new File(this.m_mainDir.getAbsolutePath(), "sloc_chart.png"), chart, 1000, 720);
+			ChartUtils.saveChartAsPNG(new File(this.m_mainDir.getAbsolutePath(), "sloc_chart.png"), chart, WIDTH, HEIGHT);
 			break;
 		default:
 			break;
 		}
 	}
-
-	//TODO: Find decent api for getting sloc.
-	private int countLines(File file, Boolean countComments) throws Exception {
-		int sloc = 0;
-		
-		if (file.isDirectory()) {
-			for (File f : file.listFiles()) {
-				sloc += this.countLines(f, countComments);
-			}
-		} else {
-			
-			Boolean readFile = true;
-			
-			if (this.m_fileEndings == null) {
-				readFile = true;
-			} else {
-				for (String s : this.m_fileEndings) {
-					if (file.getName().endsWith(s)) {
-						readFile = true;
-						break;
-					} else {
-						readFile = false;
-					}
-				}
-			}
-			
-			if (readFile) {
-				BufferedReader br = new BufferedReader(new FileReader(file));
-				Boolean isEOF = true;
-
-				Boolean isComment;
-				Boolean isBlankLine;
-				Boolean inMultiLineComment = false;
-				Boolean prevMultiLineComment = inMultiLineComment;
-				
-				do {
-					String t = br.readLine();
-					
-					if (t != null) {
-						isComment = this.lineIsComment(t);
-						isBlankLine = t.trim().equals("");
-						prevMultiLineComment = inMultiLineComment;
-						inMultiLineComment = this.resolveMultiLineComment(t, inMultiLineComment);
-						
-						isEOF = false;
-						if (!isBlankLine && (!countComments ? 
-								!isComment && !prevMultiLineComment :
-								isComment && prevMultiLineComment
-							)) {
-							sloc++;
-						}
-					} else {
-						isEOF = true;
-					}
-					
-				} while (!isEOF);
-				
-				br.close();
-			}
+	
+	private void addSeries(PrimitiveXYDataset dataset, String key, double[] x, double[] y) {
+		if (this.m_maxPoints > 0 && x.length > this.m_maxPoints) {
+			int[] selected = Downsampler.select(x, y, x.length, this.m_maxPoints);
+			x = Downsampler.pick(x, selected);
+			y = Downsampler.pick(y, selected);
 		}
 		
-		return sloc;
-	}
-	
-	private Boolean lineIsComment(String line) {
-		return (line.trim().startsWith("//") || (line.trim().startsWith("/*") && line.contains("*/")));
-	}
-	
-	private Boolean resolveMultiLineComment(String line, Boolean inCommentBlock) {
-		return (line.trim().startsWith("/*") || !line.contains("*/"));
+		dataset.addSeries(key, x, y);
 	}
 }
@@ -0,0 +1,149 @@
+package se.lnu.cs.doris.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Writes line counts of mined commits to a MetricSink, by default a csv
+ * file with the same layout as the one generated by the SLOC tool. Counts
+ * can be added from several threads in any order, rows are written in
+ * the order the commits were mined and the first commit is used as the
+ * index 100 base value.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class SLOCWriter {
+
+	private MetricSink m_sink;
+	private ArrayDeque<Integer> m_expected = new ArrayDeque<Integer>();
+	private HashMap<Integer, Row> m_ready = new HashMap<Integer, Row>();
+	private LineCount m_base = null;
+
+	/**
+	 * Constructor creating the csv file.
+	 * @param csvFile File to write to.
+	 * @throws IOException
+	 */
+	public SLOCWriter(File csvFile) throws IOException {
+		this(csvFile, false);
+	}
+
+	/**
+	 * Constructor that can continue an existing csv file. The count of the
+	 * commit in its first row must then be given with setBase() before
+	 * any count is added.
+	 * @param csvFile File to write to.
+	 * @param append True to continue the file if it exists.
+	 * @throws IOException
+	 */
+	public SLOCWriter(File csvFile, Boolean append) throws IOException {
+		this(new CSVMetricSink(csvFile, append));
+	}
+
+	/**
+	 * Constructor writing to any sink. If the sink continues an earlier
+	 * file the count of its base commit must be given with setBase()
+	 * before any count is added.
+	 * @param sink Sink to write to, closed with the writer.
+	 */
+	public SLOCWriter(MetricSink sink) {
+		this.m_sink = sink;
+	}
+
+	/**
+	 * Get the commit the rows of a continued file are relative to.
+	 * @return Commit number or null if the file has no rows yet.
+	 */
+	public Integer getBaseCommit() {
+		return this.m_sink.getBaseCommit();
+	}
+
+	/**
+	 * Set the count of the base commit of a continued file.
+	 * @param base Line count of the base commit.
+	 */
+	public synchronized void setBase(LineCount base) {
+		this.m_base = base;
+	}
+
+	/**
+	 * Check if a continued file already have a row for a commit.
+	 * @param commitNumber Number of the commit.
+	 * @return True if the commit have a row.
+	 */
+	public Boolean contains(int commitNumber) {
+		return this.m_sink.getWritten().contains(commitNumber);
+	}
+
+	/**
+	 * Reserve the next row for a commit. Must be called in mining order.
+	 * @param commitNumber Number of the commit.
+	 */
+	public synchronized void expect(int commitNumber) {
+		this.m_expected.add(commitNumber);
+	}
+
+	/**
+	 * Add the count of a commit. Rows that are ready are written.
+	 * @param commitNumber Number of the commit.
+	 * @param commit Sha-1 of the commit.
+	 * @param commitTime Commit time in seconds since the epoch.
+	 * @param count Line count of the commit.
+	 * @throws IOException
+	 */
+	public synchronized void add(int commitNumber, ObjectId commit, int commitTime, LineCount count) throws IOException {
+		this.m_ready.put(commitNumber, new Row(commit.copy(), commitTime, count));
+
+		while (!this.m_expected.isEmpty() && this.m_ready.containsKey(this.m_expected.peek())) {
+			int next = this.m_expected.poll();
+			Row row = this.m_ready.remove(next);
+
+			if (this.m_base == null) {
+				this.m_base = row.m_count;
+			}
+
+			this.m_sink.write(next, row.m_commit, row.m_commitTime, row.m_count, this.m_base);
+		}
+	}
+
+	/**
+	 * Close the sink. Commits that never got a count are left out.
+	 * @throws IOException
+	 */
+	public synchronized void close() throws IOException {
+		this.m_sink.close();
+	}
+
+	private static class Row {
+		private ObjectId m_commit;
+		private int m_commitTime;
+		private LineCount m_count;
+
+		Row(ObjectId commit, int commitTime, LineCount count) {
+			this.m_commit = commit;
+			this.m_commitTime = commitTime;
+			this.m_count = count;
+		}
+	}
+}
@@ -0,0 +1,200 @@
+package se.lnu.cs.doris.metrics;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.jfree.data.xy.XYDataset;
+
+import se.lnu.cs.doris.global.GlobalStrings;
+
+/**
+ * Writes a line chart of an XYDataset as SVG. Points are streamed from
+ * the dataset into one polyline per series, so no scene graph or image
+ * is held in memory and the size of the file only depends on the number
+ * of points. Colors follow the default series colors of JFreeChart so
+ * the SVG looks like the PNG and JPEG charts.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class SVGChartWriter {
+
+	private static final String[] COLORS = { "#ff5555", "#5555ff", "#55ff55", "#ffff55", "#ff55ff", "#55ffff" };
+	private static final int TICKS = 10;
+	private static final int LINE_HEIGHT = 18;
+
+	private int m_width;
+	private int m_height;
+
+	/**
+	 * Constructor.
+	 * @param width Width of the chart in pixels.
+	 * @param height Height of the chart in pixels.
+	 */
+	public SVGChartWriter(int width, int height) {
+		this.m_width = width;
+		this.m_height = height;
+	}
+
+	/**
+	 * Write a chart to a file.
+	 * @param file File to write to.
+	 * @param title Title, may hold line breaks.
+	 * @param xLabel Label of the x axis.
+	 * @param yLabel Label of the y axis.
+	 * @param dataset Series to draw, in ascending x order.
+	 * @throws IOException
+	 */
+	public void write(File file, String title, String xLabel, String yLabel, XYDataset dataset) throws IOException {
+		String[] titleLines = title.split("\n");
+		int left = 80;
+		int right = this.m_width - 20;
+		int top = 20 + titleLines.length * LINE_HEIGHT;
+		int bottom = this.m_height - 70;
+
+		double minX = Double.MAX_VALUE, maxX = -Double.MAX_VALUE;
+		double minY = Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+
+		for (int s = 0; s < dataset.getSeriesCount(); s++) {
+			for (int i = 0; i < dataset.getItemCount(s); i++) {
+				double x = dataset.getXValue(s, i);
+				double y = dataset.getYValue(s, i);
+				minX = Math.min(minX, x);
+				maxX = Math.max(maxX, x);
+				minY = Math.min(minY, y);
+				maxY = Math.max(maxY, y);
+			}
+		}
+
+		if (minX > maxX) {
+			minX = 0; maxX = 1; minY = 0; maxY = 1;
+		}
+
+		double xStep = tickUnit(maxX - minX);
+		double yStep = tickUnit(maxY - minY);
+		//Axes start and end on whole ticks.
+		minX = Math.floor(minX / xStep) * xStep;
+		maxX = Math.max(Math.ceil(maxX / xStep) * xStep, minX + xStep);
+		minY = Math.floor(minY / yStep) * yStep;
+		maxY = Math.max(Math.ceil(maxY / yStep) * yStep, minY + yStep);
+
+		double xScale = (right - left) / (maxX - minX);
+		double yScale = (bottom - top) / (maxY - minY);
+
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), GlobalStrings.UTF8_CHATSET))) {
+			writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+			writer.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + this.m_width + "\" height=\"" + this.m_height +
+					"\" viewBox=\"0 0 " + this.m_width + " " + this.m_height + "\" font-family=\"sans-serif\" font-size=\"11\">\n");
+			writer.write("<rect width=\"100%\" height=\"100%\" fill=\"white\"/>\n");
+
+			for (int i = 0; i < titleLines.length; i++) {
+				writer.write("<text x=\"" + this.m_width / 2 + "\" y=\"" + (20 + i * LINE_HEIGHT) +
+						"\" text-anchor=\"middle\" font-size=\"" + (i == 0 ? 16 : 12) + "\">" + escape(titleLines[i]) + "</text>\n");
+			}
+
+			writer.write("<rect x=\"" + left + "\" y=\"" + top + "\" width=\"" + (right - left) + "\" height=\"" + (bottom - top) +
+					"\" fill=\"#f2f2f2\" stroke=\"#808080\"/>\n");
+
+			//Grid lines and tick labels.
+			writer.write("<g stroke=\"white\">\n");
+			for (double x = minX; x <= maxX + xStep / 2; x += xStep) {
+				double px = left + (x - minX) * xScale;
+				writer.write("<line x1=\"" + format(px) + "\" y1=\"" + top + "\" x2=\"" + format(px) + "\" y2=\"" + bottom + "\"/>\n");
+			}
+			for (double y = minY; y <= maxY + yStep / 2; y += yStep) {
+				double py = bottom - (y - minY) * yScale;
+				writer.write("<line x1=\"" + left + "\" y1=\"" + format(py) + "\" x2=\"" + right + "\" y2=\"" + format(py) + "\"/>\n");
+			}
+			writer.write("</g>\n<g text-anchor=\"middle\">\n");
+			for (double x = minX; x <= maxX + xStep / 2; x += xStep) {
+				writer.write("<text x=\"" + format(left + (x - minX) * xScale) + "\" y=\"" + (bottom + 15) + "\">" + label(x) + "</text>\n");
+			}
+			writer.write("</g>\n<g text-anchor=\"end\">\n");
+			for (double y = minY; y <= maxY + yStep / 2; y += yStep) {
+				writer.write("<text x=\"" + (left - 5) + "\" y=\"" + format(bottom - (y - minY) * yScale + 4) + "\">" + label(y) + "</text>\n");
+			}
+			writer.write("</g>\n");
+
+			writer.write("<text x=\"" + (left + right) / 2 + "\" y=\"" + (bottom + 35) + "\" text-anchor=\"middle\" font-size=\"12\">" + escape(xLabel) + "</text>\n");
+			writer.write("<text x=\"15\" y=\"" + (top + bottom) / 2 + "\" text-anchor=\"middle\" font-size=\"12\" transform=\"rotate(-90 15 " +
+					(top + bottom) / 2 + ")\">" + escape(yLabel) + "</text>\n");
+
+			//One polyline per series, written point by point.
+			StringBuilder point = new StringBuilder(32);
+			for (int s = 0; s < dataset.getSeriesCount(); s++) {
+				writer.write("<polyline fill=\"none\" stroke-width=\"1\" stroke=\"" + COLORS[s % COLORS.length] + "\" points=\"");
+
+				for (int i = 0; i < dataset.getItemCount(s); i++) {
+					point.setLength(0);
+					point.append(format(left + (dataset.getXValue(s, i) - minX) * xScale)).append(',')
+						.append(format(bottom - (dataset.getYValue(s, i) - minY) * yScale)).append(' ');
+					writer.append(point);
+				}
+
+				writer.write("\"/>\n");
+			}
+
+			//Legend below the x axis label.
+			int legendX = left;
+			for (int s = 0; s < dataset.getSeriesCount(); s++) {
+				String key = String.valueOf(dataset.getSeriesKey(s));
+				writer.write("<line x1=\"" + legendX + "\" y1=\"" + (bottom + 55) + "\" x2=\"" + (legendX + 20) + "\" y2=\"" + (bottom + 55) +
+						"\" stroke=\"" + COLORS[s % COLORS.length] + "\" stroke-width=\"2\"/>\n");
+				writer.write("<text x=\"" + (legendX + 25) + "\" y=\"" + (bottom + 59) + "\">" + escape(key) + "</text>\n");
+				legendX += 45 + key.length() * 7;
+			}
+
+			writer.write("</svg>\n");
+		}
+	}
+
+	/**
+	 * Get a tick unit of 1, 2 or 5 times a power of ten giving about
+	 * TICKS ticks over a range.
+	 */
+	private static double tickUnit(double range) {
+		if (range <= 0) {
+			return 1;
+		}
+
+		double raw = range / TICKS;
+		double magnitude = Math.pow(10, Math.floor(Math.log10(raw)));
+		double residual = raw / magnitude;
+		double unit = (residual > 5) ? 10 : (residual > 2) ? 5 : (residual > 1) ? 2 : 1;
+
+		//Commit numbers and index values are whole numbers.
+		return Math.max(1, unit * magnitude);
+	}
+
+	private static String format(double value) {
+		return Double.toString(Math.round(value * 10) / 10.0);
+	}
+
+	private static String label(double value) {
+		return (value == Math.rint(value)) ? Long.toString((long) value) : Double.toString(value);
+	}
+
+	private static String escape(String text) {
+		return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+	}
+}
@@ -0,0 +1,273 @@
+package se.lnu.cs.doris.metrics;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+
+import se.lnu.cs.doris.git.ArchiveFormat;
+import se.lnu.cs.doris.git.SnapshotStore;
+import se.lnu.cs.doris.global.Utilities;
+
+/**
+ * Counts the lines of the commit directories of a mining result in
+ * parallel on a work stealing pool. Every commit is a task of its own and
+ * when a commit is read from disk every directory in it is forked as a
+ * task as well, so a few large commits are spread over all cores too.
+ * Results are returned ordered by commit number, regardless of the order
+ * the directories are listed or finished in.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class SnapshotCounter {
+
+	//Top level entries skipped by the SLOC classes.
+	private final String m_avoid = ".git";
+	private LineCounter m_lineCounter;
+	private SnapshotHistory m_history;
+
+	/**
+	 * Constructor.
+	 * @param fileEndings File endings to count, null to count all files.
+	 * @param history History to count commits from, null to read every commit from disk.
+	 */
+	public SnapshotCounter(String[] fileEndings, SnapshotHistory history) {
+		this.m_lineCounter = new LineCounter(fileEndings);
+		this.m_history = history;
+	}
+
+	/**
+	 * Count the lines of every commit directory.
+	 * @param mainDir Directory of the mining result.
+	 * @param skip Commit numbers not to count, may be null.
+	 * @return Line counts ordered by commit number.
+	 * @throws Exception
+	 */
+	public TreeMap<Integer, LineCount> count(File mainDir, Set<Integer> skip) throws Exception {
+		TreeMap<Integer, CommitTask> tasks = new TreeMap<Integer, CommitTask>();
+		TreeMap<Integer, LineCount> counts = new TreeMap<Integer, LineCount>();
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(mainDir.toPath())) {
+			for (Path dir : stream) {
+				String name = dir.getFileName().toString();
+				//Commits mined with --archive or --store are read from their archives or manifests.
+				ArchiveFormat format = ArchiveFormat.of(name);
+				String suffix = (format != null) ? format.getSuffix() : (name.endsWith(SnapshotStore.SUFFIX) ? SnapshotStore.SUFFIX : "");
+				String number = name.substring(0, name.length() - suffix.length());
+
+				if (name.contains(this.m_avoid) || !Utilities.tryParseInt(number) || (suffix.isEmpty() && !Files.isDirectory(dir))) {
+					continue;
+				}
+
+				int commitNumber = Utilities.parseInt(number);
+
+				if (skip == null || !skip.contains(commitNumber)) {
+					tasks.put(commitNumber, new CommitTask(dir, commitNumber));
+				}
+			}
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+		try {
+			for (CommitTask task : tasks.values()) {
+				pool.execute(task);
+			}
+
+			for (Map.Entry<Integer, CommitTask> task : tasks.entrySet()) {
+				counts.put(task.getKey(), task.getValue().join());
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		return counts;
+	}
+
+	/**
+	 * Count a single commit directory, or its archive, on the calling thread.
+	 * @param dir Directory of the commit.
+	 * @return LineCount
+	 * @throws Exception
+	 */
+	public LineCount count(File dir) throws Exception {
+		File snapshot = dir;
+
+		if (!dir.exists()) {
+			File manifest = new File(dir.getParentFile(), dir.getName() + SnapshotStore.SUFFIX);
+			snapshot = manifest.exists() ? manifest : ArchiveFormat.find(dir.getParentFile(), dir.getName());
+		}
+
+		return new CommitTask(((snapshot != null) ? snapshot : dir).toPath(), Utilities.parseInt(dir.getName())).invoke();
+	}
+
+	/**
+	 * Count the files of a manifest of --store.
+	 * @param manifest Manifest of the commit.
+	 * @return LineCount
+	 * @throws Exception
+	 */
+	private LineCount countManifest(Path manifest) throws Exception {
+		LineCount total = new LineCount();
+		SnapshotStore store = new SnapshotStore(manifest.getParent().toFile());
+		String name = manifest.getFileName().toString();
+
+		for (SnapshotStore.Entry entry : store.read(Utilities.parseInt(name.substring(0, name.length() - SnapshotStore.SUFFIX.length())))) {
+			String path = entry.getPath();
+			String fileName = path.substring(path.lastIndexOf('/') + 1);
+
+			if ((path.indexOf('/') < 0 && fileName.toLowerCase().contains(this.m_avoid))
+					|| !this.m_lineCounter.accepts(fileName)) {
+				continue;
+			}
+
+			total.add(this.m_lineCounter.count(fileName, store.open(entry)));
+		}
+
+		return total;
+	}
+
+	/**
+	 * Count the files of an archive without extracting it.
+	 * @param archive Archive of the commit.
+	 * @return LineCount
+	 * @throws Exception
+	 */
+	private LineCount countArchive(Path archive) throws Exception {
+		LineCount total = new LineCount();
+
+		try (ArchiveInputStream<? extends ArchiveEntry> in = ArchiveFormat.open(archive.toFile())) {
+			ArchiveEntry entry;
+
+			while ((entry = in.getNextEntry()) != null) {
+				String path = entry.getName();
+				String name = path.substring(path.lastIndexOf('/') + 1);
+				Boolean root = path.indexOf('/') < 0;
+
+				if (entry.isDirectory() || (root && name.toLowerCase().contains(this.m_avoid)) || !this.m_lineCounter.accepts(name)) {
+					continue;
+				}
+
+				//A link in a tar has no content, it is counted as the path it
+				//points to the way it is written to a directory.
+				if (entry instanceof TarArchiveEntry && ArchiveFormat.isLink(entry)) {
+					total.add(this.m_lineCounter.count(name, ((TarArchiveEntry) entry).getLinkName().getBytes(StandardCharsets.UTF_8)));
+					continue;
+				}
+
+				//The stream ends with the entry.
+				total.add(this.m_lineCounter.count(name, in.readAllBytes()));
+			}
+		}
+
+		return total;
+	}
+
+	@SuppressWarnings("serial")
+	class CommitTask extends RecursiveTask<LineCount> {
+
+		private Path m_dir;
+		private int m_commitNumber;
+
+		public CommitTask(Path dir, int commitNumber) {
+			this.m_dir = dir;
+			this.m_commitNumber = commitNumber;
+		}
+
+		@Override
+		protected LineCount compute() {
+			try {
+				LineCount count = (m_history != null) ? m_history.count(this.m_commitNumber) : null;
+
+				if (count != null) {
+					return count;
+				}
+
+				if (Files.isDirectory(this.m_dir)) {
+					return new DirectoryTask(this.m_dir, true).compute();
+				}
+
+				return this.m_dir.toString().endsWith(SnapshotStore.SUFFIX) ? countManifest(this.m_dir) : countArchive(this.m_dir);
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	@SuppressWarnings("serial")
+	class DirectoryTask extends RecursiveTask<LineCount> {
+
+		private Path m_dir;
+		private Boolean m_root;
+
+		public DirectoryTask(Path dir, Boolean root) {
+			this.m_dir = dir;
+			this.m_root = root;
+		}
+
+		@Override
+		protected LineCount compute() {
+			LineCount total = new LineCount();
+			List<DirectoryTask> subtasks = new ArrayList<DirectoryTask>();
+
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.m_dir)) {
+				for (Path entry : stream) {
+					String name = entry.getFileName().toString();
+
+					if (this.m_root && name.toLowerCase().contains(m_avoid)) {
+						continue;
+					}
+
+					//A single stat call instead of isDirectory, isFile and listFiles.
+					BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+
+					if (attributes.isDirectory()) {
+						DirectoryTask subtask = new DirectoryTask(entry, false);
+						subtask.fork();
+						subtasks.add(subtask);
+					} else if (m_lineCounter.accepts(name)) {
+						total.add(m_lineCounter.count(entry));
+					}
+				}
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+
+			for (DirectoryTask subtask : subtasks) {
+				total.add(subtask.join());
+			}
+
+			return total;
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package se.lnu.cs.doris.metrics;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import se.lnu.cs.doris.git.CommitRange;
+import se.lnu.cs.doris.git.MinedCommits;
+
+/**
+ * Connects the commit directories of a mining result to the commits in
+ * the .git file Doris leaves next to them, using the commit index or the
+ * xml log when they exist, so the SLOC tools can count
+ * lines from the object database with a memoizing TreeLineCounter
+ * instead of reading every file of every directory.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class SnapshotHistory implements AutoCloseable {
+
+	private Repository m_repository;
+	private Map<Integer, ObjectId> m_trees;
+	private TreeLineCounter m_counter;
+
+	private SnapshotHistory(Repository repository, Map<Integer, ObjectId> trees, String[] fileEndings, TreeFilter filter) {
+		this.m_repository = repository;
+		this.m_trees = trees;
+		this.m_counter = new TreeLineCounter(new LineCounter(fileEndings), repository, filter);
+	}
+
+	/**
+	 * Open the history of a mining result.
+	 * @param mainDir Directory of the mining result.
+	 * @param projectName Name of the project, used to find the log.
+	 * @param fileEndings File endings to count, null to count all files.
+	 * @return SnapshotHistory or null if there is no .git file to read from.
+	 */
+	public static SnapshotHistory open(File mainDir, String projectName, String[] fileEndings) {
+		return open(mainDir, projectName, fileEndings, null);
+	}
+
+	/**
+	 * Open the history of a mining result whose files were filtered.
+	 * @param mainDir Directory of the mining result.
+	 * @param projectName Name of the project, used to find the log.
+	 * @param fileEndings File endings to count, null to count all files.
+	 * @param filter Filter used when mining, null if all files were mined.
+	 * @return SnapshotHistory or null if there is no .git file to read from.
+	 */
+	public static SnapshotHistory open(File mainDir, String projectName, String[] fileEndings, TreeFilter filter) {
+		return open(mainDir, projectName, fileEndings, filter, null);
+	}
+
+	/**
+	 * Open the history of a mining result whose files or commits were
+	 * filtered. The range is only walked if there is no log or index.
+	 * @param mainDir Directory of the mining result.
+	 * @param projectName Name of the project, used to find the log.
+	 * @param fileEndings File endings to count, null to count all files.
+	 * @param filter Filter used when mining, null if all files were mined.
+	 * @param range Commits that were mined, null if all commits were mined.
+	 * @return SnapshotHistory or null if there is no .git file to read from.
+	 */
+	public static SnapshotHistory open(File mainDir, String projectName, String[] fileEndings, TreeFilter filter, CommitRange range) {
+		File gitDir = findGitDir(mainDir);
+
+		if (gitDir == null) {
+			return null;
+		}
+
+		Repository repository = null;
+
+		try {
+			repository = new FileRepositoryBuilder().setGitDir(gitDir).setBare().build();
+
+			MinedCommits commits = MinedCommits.read(mainDir.getAbsolutePath(), projectName);
+			Map<Integer, ObjectId> trees = (commits != null) ? 
+					readTrees(repository, commits) : walkHistory(repository, range);
+
+			return new SnapshotHistory(repository, trees, fileEndings, filter);
+		} catch (Exception e) {
+			//Fall back on reading the commit directories.
+			if (repository != null) {
+				repository.close();
+			}
+
+			return null;
+		}
+	}
+
+	/**
+	 * Count the lines of a mined commit.
+	 * @param commitNumber Number of the commit directory.
+	 * @return LineCount or null if the commit is unknown.
+	 * @throws Exception
+	 */
+	public LineCount count(int commitNumber) throws Exception {
+		ObjectId tree = this.m_trees.get(commitNumber);
+
+		if (tree == null) {
+			return null;
+		}
+
+		try (ObjectReader reader = this.m_repository.newObjectReader()) {
+			return this.m_counter.count(reader, tree);
+		}
+	}
+
+	@Override
+	public void close() {
+		this.m_repository.close();
+	}
+
+	private static File findGitDir(File mainDir) {
+		File[] files = mainDir.listFiles();
+
+		if (files == null) {
+			return null;
+		}
+
+		for (File f : files) {
+			if (f.isDirectory() && f.getName().endsWith(".git") && new File(f, "objects").isDirectory()) {
+				return f;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Look up the trees of the commits of an earlier mining.
+	 */
+	private static Map<Integer, ObjectId> readTrees(Repository repository, MinedCommits commits) throws Exception {
+		Map<Integer, ObjectId> trees = new HashMap<Integer, ObjectId>();
+
+		try (RevWalk rw = new RevWalk(repository)) {
+			for (Map.Entry<Integer, ObjectId> commit : commits.getCommits().entrySet()) {
+				trees.put(commit.getKey(), rw.parseCommit(commit.getValue()).getTree().copy());
+			}
+		}
+
+		return trees;
+	}
+
+	/**
+	 * Number the commits of the range the same way as GitRepository.mine()
+	 * does, from 0 at the first commit of the walk.
+	 */
+	private static Map<Integer, ObjectId> walkHistory(Repository repository, CommitRange range) throws Exception {
+		Map<Integer, ObjectId> trees = new HashMap<Integer, ObjectId>();
+
+		if (range == null) {
+			range = new CommitRange(null, null, null);
+		}
+
+		try (RevWalk rw = new RevWalk(repository)) {
+			int i = 0;
+			for (RevCommit commit : range.walk(repository, rw, null)) {
+				trees.put(i++, commit.getTree().copy());
+			}
+		}
+
+		return trees;
+	}
+}
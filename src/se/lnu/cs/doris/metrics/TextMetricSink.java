@@ -0,0 +1,172 @@
+package se.lnu.cs.doris.metrics;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+import se.lnu.cs.doris.global.GlobalStrings;
+
+/**
+ * Base of the sinks writing one line of text per commit. Rows are built
+ * in a single StringBuilder and the file is flushed every BATCH_SIZE
+ * rows. When a file is continued a last line that was never finished is
+ * cut off before writing.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public abstract class TextMetricSink implements MetricSink {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private Writer m_writer;
+	private StringBuilder m_row = new StringBuilder(128);
+	private int m_pending = 0;
+	private Integer m_baseCommit = null;
+	private Set<Integer> m_written = new HashSet<Integer>();
+
+	/**
+	 * Open the file.
+	 * @param file File to write to.
+	 * @param append True to continue the file if it exists.
+	 * @throws IOException
+	 */
+	protected void open(File file, Boolean append) throws IOException {
+		Boolean appended = append && file.exists() && this.readExisting(file);
+
+		this.m_writer = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(file, appended), GlobalStrings.UTF8_CHATSET), BUFFER_SIZE);
+
+		if (!appended && this.getHeader() != null) {
+			this.m_writer.append(this.getHeader());
+		}
+	}
+
+	/**
+	 * Get the first line of a new file.
+	 * @return Header ending with a line break, null if there is none.
+	 */
+	protected abstract String getHeader();
+
+	/**
+	 * Check if the first line of an existing file can be continued.
+	 * @param header First line of the file, without line break.
+	 * @return True if rows can be appended.
+	 */
+	protected abstract Boolean acceptsHeader(String header);
+
+	/**
+	 * Get the commit number of a row of an existing file.
+	 * @param row Row without line break.
+	 * @return Commit number, null if the row holds none.
+	 */
+	protected abstract Integer parseCommitNumber(String row);
+
+	/**
+	 * Append a row without line break.
+	 */
+	protected abstract void formatRow(StringBuilder row, int commitNumber, ObjectId commit, int commitTime,
+			LineCount count, LineCount base);
+
+	@Override
+	public Integer getBaseCommit() {
+		return this.m_baseCommit;
+	}
+
+	@Override
+	public Set<Integer> getWritten() {
+		return this.m_written;
+	}
+
+	@Override
+	public void write(int commitNumber, ObjectId commit, int commitTime, LineCount count, LineCount base) throws IOException {
+		this.m_row.setLength(0);
+		this.formatRow(this.m_row, commitNumber, commit, commitTime, count, base);
+		this.m_row.append('\n');
+		this.m_writer.append(this.m_row);
+
+		if (++this.m_pending >= BATCH_SIZE) {
+			this.flush();
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		this.m_writer.flush();
+		this.m_pending = 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.m_writer.close();
+	}
+
+	/**
+	 * Index value of a count relative to the base, 100 being equal.
+	 */
+	protected static int index(int value, int base) {
+		return (base == 0) ? 0 : (int) ((double) value / (double) base * 100);
+	}
+
+	/**
+	 * Read the rows of an existing file and cut a last row that was
+	 * never finished.
+	 * @return False if the file can't be continued.
+	 */
+	private Boolean readExisting(File file) throws IOException {
+		String content = new String(Files.readAllBytes(file.toPath()), GlobalStrings.UTF8_CHATSET);
+		int end = content.lastIndexOf('\n') + 1;
+		String[] rows = content.substring(0, end).split("\n");
+		int first = 0;
+
+		if (this.getHeader() != null) {
+			if (end == 0 || !this.acceptsHeader(rows[0])) {
+				return false;
+			}
+			first = 1;
+		}
+
+		for (int i = first; i < rows.length; i++) {
+			Integer number = this.parseCommitNumber(rows[i]);
+
+			if (number != null) {
+				if (this.m_baseCommit == null) {
+					this.m_baseCommit = number;
+				}
+				this.m_written.add(number);
+			}
+		}
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+			channel.truncate(content.substring(0, end).getBytes(GlobalStrings.UTF8_CHATSET).length);
+		}
+
+		return true;
+	}
+}
@@ -0,0 +1,173 @@
+package se.lnu.cs.doris.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * Counts the lines of a commit straight from the object database of a
+ * repository, without writing the commit to disk first.
+ *
+ * Blobs and trees never change content once written, so the count of
+ * every blob and every subtree is remembered by its id. A commit then
+ * only costs the files and directories that changed since an earlier
+ * commit counted by the same instance.
+ *
+ * With a TreeFilter only the files passing it are counted. Filters can
+ * depend on the path of a file, so subtrees are then not remembered.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class TreeLineCounter {
+
+	//Top level entries skipped by the SLOC classes.
+	private final String m_avoid = ".git";
+	private LineCounter m_lineCounter;
+	private Repository m_repository;
+	private TreeFilter m_filter;
+
+	//Root trees are kept apart since top level entries are filtered.
+	//Blobs are kept by lexer, the same content is counted differently as another language.
+	private ConcurrentHashMap<Lexer, ConcurrentHashMap<ObjectId, LineCount>> m_blobs = 
+			new ConcurrentHashMap<Lexer, ConcurrentHashMap<ObjectId, LineCount>>();
+	private ConcurrentHashMap<ObjectId, LineCount> m_trees = new ConcurrentHashMap<ObjectId, LineCount>();
+	private ConcurrentHashMap<ObjectId, LineCount> m_roots = new ConcurrentHashMap<ObjectId, LineCount>();
+
+	public TreeLineCounter(LineCounter lineCounter) {
+		this(lineCounter, null, null);
+	}
+
+	/**
+	 * Constructor taking a filter of the files to count.
+	 * @param lineCounter Counter of single files.
+	 * @param repository Repository the trees belong to, used to read attributes. May be null.
+	 * @param filter Filter of the files to count, null to count all files.
+	 */
+	public TreeLineCounter(LineCounter lineCounter, Repository repository, TreeFilter filter) {
+		this.m_lineCounter = lineCounter;
+		this.m_repository = repository;
+		this.m_filter = filter;
+	}
+
+	/**
+	 * Count the lines of every file in a tree.
+	 * @param reader Reader of the repository the tree belongs to.
+	 * @param treeId Root tree of a commit.
+	 * @return LineCount
+	 * @throws Exception
+	 */
+	public LineCount count(ObjectReader reader, AnyObjectId treeId) throws Exception {
+		LineCount count = this.m_roots.get(treeId);
+
+		if (count == null) {
+			count = (this.m_filter == null) ? 
+					this.countTree(reader, treeId, true) : this.countFiltered(reader, treeId);
+			this.m_roots.putIfAbsent(treeId.copy(), count);
+		}
+
+		return count;
+	}
+
+	private LineCount countTree(ObjectReader reader, AnyObjectId treeId, Boolean root) throws Exception {
+		LineCount total = new LineCount();
+
+		TreeWalk treeWalk = new TreeWalk(reader);
+		treeWalk.addTree(treeId);
+
+		while (treeWalk.next()) {
+			if (root && treeWalk.getNameString().toLowerCase().contains(this.m_avoid)) {
+				continue;
+			}
+
+			if (treeWalk.isSubtree()) {
+				ObjectId subtreeId = treeWalk.getObjectId(0);
+				LineCount count = this.m_trees.get(subtreeId);
+
+				if (count == null) {
+					count = this.countTree(reader, subtreeId, false);
+					this.m_trees.putIfAbsent(subtreeId, count);
+				}
+
+				total.add(count);
+			} else if (this.isFile(treeWalk) && this.m_lineCounter.accepts(treeWalk.getNameString())) {
+				total.add(this.countBlob(reader, treeWalk.getNameString(), treeWalk.getObjectId(0)));
+			}
+		}
+
+		return total;
+	}
+
+	private LineCount countFiltered(ObjectReader reader, AnyObjectId treeId) throws Exception {
+		LineCount total = new LineCount();
+
+		TreeWalk treeWalk = (this.m_repository != null) ? 
+				new TreeWalk(this.m_repository, reader) : new TreeWalk(reader);
+		treeWalk.addTree(treeId);
+		treeWalk.setFilter(this.m_filter);
+
+		while (treeWalk.next()) {
+			if (treeWalk.getDepth() == 0 && treeWalk.getNameString().toLowerCase().contains(this.m_avoid)) {
+				continue;
+			}
+
+			if (treeWalk.isSubtree()) {
+				treeWalk.enterSubtree();
+			} else if (this.isFile(treeWalk) && this.m_lineCounter.accepts(treeWalk.getNameString())) {
+				total.add(this.countBlob(reader, treeWalk.getNameString(), treeWalk.getObjectId(0)));
+			}
+		}
+
+		return total;
+	}
+
+	private LineCount countBlob(ObjectReader reader, String name, ObjectId blobId) throws Exception {
+		ConcurrentHashMap<ObjectId, LineCount> blobs = this.m_blobs.computeIfAbsent(
+				this.m_lineCounter.lexerFor(name), lexer -> new ConcurrentHashMap<ObjectId, LineCount>());
+		LineCount count = blobs.get(blobId);
+
+		if (count == null) {
+			ObjectLoader loader = reader.open(blobId);
+			//Small blobs are counted straight from the bytes JGit already inflated.
+			count = loader.isLarge() ? 
+					this.m_lineCounter.count(name, loader.openStream()) : this.m_lineCounter.count(name, loader.getCachedBytes());
+			blobs.putIfAbsent(blobId, count);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Check if an entry is counted. Regular and executable files are, and so
+	 * are symbolic links, which are written to a snapshot as a file holding
+	 * the path they point to. Submodules are skipped.
+	 */
+	private Boolean isFile(TreeWalk treeWalk) {
+		int type = treeWalk.getRawMode(0) & FileMode.TYPE_MASK;
+
+		return type == FileMode.TYPE_FILE || type == FileMode.TYPE_SYMLINK;
+	}
+}
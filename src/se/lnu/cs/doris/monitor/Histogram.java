@@ -0,0 +1,141 @@
+package se.lnu.cs.doris.monitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with buckets doubling from one microsecond to about
+ * eight seconds. Recording is lock free so the mining workers can share
+ * one histogram.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class Histogram {
+
+	private static final long FIRST_BOUND = 1000;
+	private static final int BUCKETS = 24;
+
+	private final AtomicLongArray m_buckets = new AtomicLongArray(BUCKETS + 1);
+	private final LongAdder m_count = new LongAdder();
+	private final LongAdder m_sum = new LongAdder();
+	private final AtomicLong m_max = new AtomicLong();
+
+	/**
+	 * Record a duration.
+	 * @param nanos Duration in nanoseconds.
+	 */
+	public void record(long nanos) {
+		long units = (Math.max(nanos, 1) - 1) / FIRST_BOUND;
+		int bucket = Math.min(64 - Long.numberOfLeadingZeros(units), BUCKETS);
+
+		this.m_buckets.incrementAndGet(bucket);
+		this.m_count.increment();
+		this.m_sum.add(nanos);
+
+		long max;
+		while (nanos > (max = this.m_max.get()) && !this.m_max.compareAndSet(max, nanos)) {
+			//Retry until the largest value is stored.
+		}
+	}
+
+	/**
+	 * Get the number of recorded durations.
+	 * @return long
+	 */
+	public long getCount() {
+		return this.m_count.sum();
+	}
+
+	/**
+	 * Get the sum of all recorded durations.
+	 * @return Nanoseconds.
+	 */
+	public long getSum() {
+		return this.m_sum.sum();
+	}
+
+	/**
+	 * Get the longest recorded duration.
+	 * @return Nanoseconds.
+	 */
+	public long getMax() {
+		return this.m_max.get();
+	}
+
+	/**
+	 * Get the mean of the recorded durations.
+	 * @return Nanoseconds, 0 if nothing have been recorded.
+	 */
+	public double getMean() {
+		long count = this.getCount();
+
+		return (count == 0) ? 0 : (double) this.getSum() / count;
+	}
+
+	/**
+	 * Get the upper bound of the bucket holding a quantile.
+	 * @param quantile Quantile between 0 and 1.
+	 * @return Nanoseconds, 0 if nothing have been recorded.
+	 */
+	public long getQuantile(double quantile) {
+		long count = this.getCount();
+		long rank = (long) Math.ceil(quantile * count);
+		long seen = 0;
+
+		if (count == 0) {
+			return 0;
+		}
+
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += this.m_buckets.get(i);
+
+			if (seen >= rank) {
+				return Math.min(FIRST_BOUND << i, this.getMax());
+			}
+		}
+
+		return this.getMax();
+	}
+
+	/**
+	 * Append the histogram in the Prometheus text format.
+	 * @param out Text to append to.
+	 * @param name Name of the metric, in seconds.
+	 * @param help Description of the metric.
+	 */
+	public void appendPrometheus(StringBuilder out, String name, String help) {
+		out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(name).append(" histogram\n");
+
+		long cumulative = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			cumulative += this.m_buckets.get(i);
+			out.append(name).append("_bucket{le=\"").append((FIRST_BOUND << i) / 1e9)
+				.append("\"} ").append(cumulative).append('\n');
+		}
+
+		//Bucket counts and the total are read separately, the buckets are used for both.
+		cumulative += this.m_buckets.get(BUCKETS);
+		out.append(name).append("_bucket{le=\"+Inf\"} ").append(cumulative).append('\n');
+		out.append(name).append("_sum ").append(this.getSum() / 1e9).append('\n');
+		out.append(name).append("_count ").append(cumulative).append('\n');
+	}
+}
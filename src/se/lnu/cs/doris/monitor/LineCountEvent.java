@@ -0,0 +1,56 @@
+package se.lnu.cs.doris.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event of the lines of a file being counted. Files
+ * counted faster than the threshold are not recorded.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+@Name("se.lnu.cs.doris.LineCount")
+@Label("Line Count")
+@Category("Doris")
+@Description("Lines of a file counted by SLOC.")
+@Threshold("1 ms")
+public class LineCountEvent extends Event {
+
+	@Label("Path")
+	public String path;
+
+	@Label("Size")
+	@DataAmount
+	public long bytes;
+
+	@Label("Code")
+	public int code;
+
+	@Label("Comments")
+	public int comments;
+
+	@Label("Blanks")
+	public int blanks;
+}
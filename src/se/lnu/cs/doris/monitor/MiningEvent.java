@@ -0,0 +1,45 @@
+package se.lnu.cs.doris.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of a whole mining run.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+@Name("se.lnu.cs.doris.Mining")
+@Label("Mining")
+@Category("Doris")
+@Description("A call to GitRepository.mine().")
+public class MiningEvent extends Event {
+
+	@Label("Repository")
+	public String repository;
+
+	@Label("Target")
+	public String target;
+
+	@Label("Commits")
+	public int commits;
+}
@@ -0,0 +1,345 @@
+package se.lnu.cs.doris.monitor;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import se.lnu.cs.doris.git.MiningExecutor;
+
+/**
+ * Counters, latency histograms and phase times of a mining run. Updated
+ * by the mining workers and the SLOC counters, read through JMX, the
+ * Prometheus endpoint and the summary printed when Doris is done.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class MiningStatistics implements MiningStatisticsMBean {
+
+	public static final String OBJECT_NAME = "se.lnu.cs.doris:type=MiningStatistics";
+
+	private static final MiningStatistics DEFAULT = new MiningStatistics();
+
+	private final LongAdder m_commits = new LongAdder();
+	private final LongAdder m_blobsLinked = new LongAdder();
+	private final LongAdder m_bytesWritten = new LongAdder();
+	private final Histogram m_blobWrites = new Histogram();
+	private final LongAdder m_slocFiles = new LongAdder();
+	private final LongAdder m_slocBytes = new LongAdder();
+	private final AtomicLong m_slocStart = new AtomicLong();
+	private final AtomicLong m_slocEnd = new AtomicLong();
+	private final Histogram m_logAppends = new Histogram();
+	private final Map<String, Long> m_phases = new LinkedHashMap<String, Long>();
+
+	private final CopyOnWriteArrayList<MiningExecutor> m_executors = new CopyOnWriteArrayList<MiningExecutor>();
+
+	/**
+	 * Get the statistics shared by everything in this JVM.
+	 * @return MiningStatistics
+	 */
+	public static MiningStatistics getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Register the shared statistics with the platform MBean server.
+	 * Registering more than once does nothing.
+	 * @throws Exception
+	 */
+	public static void register() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(OBJECT_NAME);
+
+		if (!server.isRegistered(name)) {
+			server.registerMBean(DEFAULT, name);
+		}
+	}
+
+	/**
+	 * A commit have been written to disk.
+	 */
+	public void commitMaterialized() {
+		this.m_commits.increment();
+	}
+
+	/**
+	 * A blob have been written to a file.
+	 * @param bytes Size of the blob.
+	 * @param nanos Time it took to write.
+	 */
+	public void blobWritten(long bytes, long nanos) {
+		this.m_bytesWritten.add(bytes);
+		this.m_blobWrites.record(nanos);
+	}
+
+	/**
+	 * A file have been linked instead of written.
+	 */
+	public void blobLinked() {
+		this.m_blobsLinked.increment();
+	}
+
+	/**
+	 * The lines of a file have been counted.
+	 * @param bytes Size of the file.
+	 */
+	public void fileCounted(long bytes) {
+		long now = System.nanoTime();
+
+		this.m_slocFiles.increment();
+		this.m_slocBytes.add(bytes);
+		this.m_slocStart.compareAndSet(0, now);
+		this.m_slocEnd.set(now);
+	}
+
+	/**
+	 * A commit have been added to the log.
+	 * @param nanos Time it took.
+	 */
+	public void logAppended(long nanos) {
+		this.m_logAppends.record(nanos);
+	}
+
+	/**
+	 * Add wall time to a phase. Time added to the same phase more than
+	 * once is summed.
+	 * @param phase Name of the phase.
+	 * @param start Value of System.nanoTime() when the phase started.
+	 */
+	public synchronized void phaseDone(String phase, long start) {
+		long nanos = System.nanoTime() - start;
+		Long earlier = this.m_phases.get(phase);
+
+		this.m_phases.put(phase, (earlier == null) ? nanos : earlier + nanos);
+	}
+
+	/**
+	 * Add an executor the queue depth and active workers are read from.
+	 * @param executor Executor of a running mining.
+	 */
+	public void addExecutor(MiningExecutor executor) {
+		this.m_executors.add(executor);
+	}
+
+	/**
+	 * Remove an executor when its mining is done.
+	 * @param executor Executor added earlier.
+	 */
+	public void removeExecutor(MiningExecutor executor) {
+		this.m_executors.remove(executor);
+	}
+
+	@Override
+	public long getCommitsMaterialized() {
+		return this.m_commits.sum();
+	}
+
+	@Override
+	public long getBlobsWritten() {
+		return this.m_blobWrites.getCount();
+	}
+
+	@Override
+	public long getBlobsLinked() {
+		return this.m_blobsLinked.sum();
+	}
+
+	@Override
+	public long getBytesWritten() {
+		return this.m_bytesWritten.sum();
+	}
+
+	@Override
+	public double getBlobWriteMeanMillis() {
+		return this.m_blobWrites.getMean() / 1e6;
+	}
+
+	@Override
+	public double getBlobWriteP99Millis() {
+		return this.m_blobWrites.getQuantile(0.99) / 1e6;
+	}
+
+	@Override
+	public double getBlobWriteMaxMillis() {
+		return this.m_blobWrites.getMax() / 1e6;
+	}
+
+	@Override
+	public int getQueueDepth() {
+		int depth = 0;
+
+		for (ThreadPoolExecutor pool : this.getPools()) {
+			depth += pool.getQueue().size();
+		}
+
+		return depth;
+	}
+
+	@Override
+	public int getActiveWorkers() {
+		int active = 0;
+
+		for (ThreadPoolExecutor pool : this.getPools()) {
+			active += pool.getActiveCount();
+		}
+
+		return active;
+	}
+
+	/**
+	 * Get the pools of the running executors, a shared pool only once.
+	 */
+	private Set<ThreadPoolExecutor> getPools() {
+		Set<ThreadPoolExecutor> pools = Collections.newSetFromMap(new IdentityHashMap<ThreadPoolExecutor, Boolean>());
+
+		for (MiningExecutor executor : this.m_executors) {
+			pools.add(executor.getPool());
+		}
+
+		return pools;
+	}
+
+	@Override
+	public long getSlocFiles() {
+		return this.m_slocFiles.sum();
+	}
+
+	@Override
+	public long getSlocBytes() {
+		return this.m_slocBytes.sum();
+	}
+
+	@Override
+	public double getSlocFilesPerSecond() {
+		double seconds = (this.m_slocEnd.get() - this.m_slocStart.get()) / 1e9;
+
+		return (seconds <= 0) ? 0 : this.getSlocFiles() / seconds;
+	}
+
+	@Override
+	public long getLogAppends() {
+		return this.m_logAppends.getCount();
+	}
+
+	@Override
+	public double getLogAppendMeanMillis() {
+		return this.m_logAppends.getMean() / 1e6;
+	}
+
+	@Override
+	public double getLogAppendMaxMillis() {
+		return this.m_logAppends.getMax() / 1e6;
+	}
+
+	@Override
+	public synchronized String[] getPhases() {
+		String[] phases = new String[this.m_phases.size()];
+		int i = 0;
+
+		for (Map.Entry<String, Long> phase : this.m_phases.entrySet()) {
+			phases[i++] = String.format(Locale.ROOT, "%s=%.3fs", phase.getKey(), phase.getValue() / 1e9);
+		}
+
+		return phases;
+	}
+
+	/**
+	 * Get the statistics in the Prometheus text format.
+	 * @return String
+	 */
+	public String toPrometheus() {
+		StringBuilder out = new StringBuilder(4096);
+
+		counter(out, "doris_commits_materialized_total", "Commits written to disk.", this.getCommitsMaterialized());
+		counter(out, "doris_blobs_linked_total", "Files linked to an earlier snapshot instead of written.", this.getBlobsLinked());
+		counter(out, "doris_bytes_written_total", "Bytes of blobs written to disk.", this.getBytesWritten());
+		this.m_blobWrites.appendPrometheus(out, "doris_blob_write_seconds", "Time to write a blob to a file.");
+		gauge(out, "doris_queue_depth", "Commits waiting for a free worker.", this.getQueueDepth());
+		gauge(out, "doris_active_workers", "Workers mining a commit.", this.getActiveWorkers());
+		counter(out, "doris_sloc_files_total", "Files counted by SLOC.", this.getSlocFiles());
+		counter(out, "doris_sloc_bytes_total", "Bytes counted by SLOC.", this.getSlocBytes());
+		this.m_logAppends.appendPrometheus(out, "doris_log_append_seconds", "Time to add a commit to the log and the index.");
+
+		out.append("# HELP doris_phase_seconds Wall time of the phases of the run.\n");
+		out.append("# TYPE doris_phase_seconds gauge\n");
+		synchronized (this) {
+			for (Map.Entry<String, Long> phase : this.m_phases.entrySet()) {
+				out.append("doris_phase_seconds{phase=\"").append(phase.getKey()).append("\"} ")
+					.append(phase.getValue() / 1e9).append('\n');
+			}
+		}
+
+		return out.toString();
+	}
+
+	/**
+	 * Print the time of every phase and the totals of the counters.
+	 * @param out Stream to print to.
+	 */
+	public void printSummary(PrintStream out) {
+		long total = 0;
+
+		out.println("Phase summary:");
+		synchronized (this) {
+			for (Map.Entry<String, Long> phase : this.m_phases.entrySet()) {
+				out.format(Locale.ROOT, "\t%-10s %10.3f s\n", phase.getKey(), phase.getValue() / 1e9);
+				total += phase.getValue();
+			}
+		}
+		out.format(Locale.ROOT, "\t%-10s %10.3f s\n", "total", total / 1e9);
+
+		if (this.getCommitsMaterialized() > 0) {
+			out.format(Locale.ROOT, "Commits written: %d, blobs written: %d (%.1f MB, mean %.3f ms, p99 %.3f ms), files linked: %d\n",
+					this.getCommitsMaterialized(), this.getBlobsWritten(), this.getBytesWritten() / 1048576.0,
+					this.getBlobWriteMeanMillis(), this.getBlobWriteP99Millis(), this.getBlobsLinked());
+		}
+		if (this.getSlocFiles() > 0) {
+			out.format(Locale.ROOT, "SLOC files counted: %d (%.1f MB, %.0f files/s)\n",
+					this.getSlocFiles(), this.getSlocBytes() / 1048576.0, this.getSlocFilesPerSecond());
+		}
+		if (this.getLogAppends() > 0) {
+			out.format(Locale.ROOT, "Log appends: %d (mean %.3f ms, max %.3f ms)\n",
+					this.getLogAppends(), this.getLogAppendMeanMillis(), this.getLogAppendMaxMillis());
+		}
+	}
+
+	private static void counter(StringBuilder out, String name, String help, long value) {
+		out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(name).append(" counter\n");
+		out.append(name).append(' ').append(value).append('\n');
+	}
+
+	private static void gauge(StringBuilder out, String name, String help, long value) {
+		out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(name).append(" gauge\n");
+		out.append(name).append(' ').append(value).append('\n');
+	}
+}
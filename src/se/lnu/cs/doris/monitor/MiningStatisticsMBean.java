@@ -0,0 +1,59 @@
+package se.lnu.cs.doris.monitor;
+
+/**
+ * Management interface of MiningStatistics. Durations are given in
+ * milliseconds.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public interface MiningStatisticsMBean {
+
+	long getCommitsMaterialized();
+
+	long getBlobsWritten();
+
+	long getBlobsLinked();
+
+	long getBytesWritten();
+
+	double getBlobWriteMeanMillis();
+
+	double getBlobWriteP99Millis();
+
+	double getBlobWriteMaxMillis();
+
+	int getQueueDepth();
+
+	int getActiveWorkers();
+
+	long getSlocFiles();
+
+	long getSlocBytes();
+
+	double getSlocFilesPerSecond();
+
+	long getLogAppends();
+
+	double getLogAppendMeanMillis();
+
+	double getLogAppendMaxMillis();
+
+	String[] getPhases();
+}
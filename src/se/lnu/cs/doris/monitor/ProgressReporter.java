@@ -0,0 +1,210 @@
+package se.lnu.cs.doris.monitor;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reports the progress of a mining run. Workers only increment a counter,
+ * a single timer thread prints a status line with done/total, commits/s,
+ * MB/s and the estimated time left. On a terminal the line is rewritten
+ * every second, otherwise a new line is printed every ten seconds so logs
+ * of batch runs stay short. In quiet mode nothing is printed.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class ProgressReporter {
+
+	private static final long TERMINAL_INTERVAL = 1000;
+	private static final long LOG_INTERVAL = 10000;
+	private static final double MEGABYTE = 1024 * 1024;
+
+	private final LongAdder m_done = new LongAdder();
+	private final PrintStream m_out;
+	private final Boolean m_quiet;
+	private final Boolean m_terminal;
+	private final MiningStatistics m_statistics;
+
+	private volatile long m_total = -1;
+	private long m_start;
+	private long m_startBytes;
+	private int m_lastLength = 0;
+	private ScheduledExecutorService m_timer = null;
+
+	/**
+	 * Constructor.
+	 * @param out Stream to print to.
+	 * @param quiet True to print nothing.
+	 */
+	public ProgressReporter(PrintStream out, Boolean quiet) {
+		this(out, quiet, System.console() != null, MiningStatistics.getDefault());
+	}
+
+	/**
+	 * Constructor.
+	 * @param out Stream to print to.
+	 * @param quiet True to print nothing.
+	 * @param terminal True to rewrite the status line in place.
+	 * @param statistics Statistics the bytes are read from.
+	 */
+	public ProgressReporter(PrintStream out, Boolean quiet, Boolean terminal, MiningStatistics statistics) {
+		this.m_out = out;
+		this.m_quiet = quiet;
+		this.m_terminal = terminal;
+		this.m_statistics = statistics;
+	}
+
+	/**
+	 * Start printing the status line.
+	 */
+	public void start() {
+		this.m_start = System.nanoTime();
+		this.m_startBytes = this.bytes();
+
+		if (this.m_quiet) {
+			return;
+		}
+
+		long interval = this.m_terminal ? TERMINAL_INTERVAL : LOG_INTERVAL;
+		this.m_timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "doris-progress");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.m_timer.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				print(false);
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Set the number of commits of the run, or an upper bound of it.
+	 * @param total Number of commits.
+	 */
+	public void setTotal(long total) {
+		this.m_total = total;
+	}
+
+	/**
+	 * A commit is done. Called by the workers.
+	 */
+	public void commitDone() {
+		this.m_done.increment();
+	}
+
+	/**
+	 * Get the number of commits done.
+	 * @return long
+	 */
+	public long getDone() {
+		return this.m_done.sum();
+	}
+
+	/**
+	 * Stop the timer and print the final status line.
+	 */
+	public void stop() {
+		if (this.m_timer != null) {
+			this.m_timer.shutdownNow();
+
+			try {
+				this.m_timer.awaitTermination(1, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			this.m_timer = null;
+			this.print(true);
+		}
+	}
+
+	/**
+	 * Get the status line.
+	 * @return String
+	 */
+	public String getStatus() {
+		double seconds = Math.max((System.nanoTime() - this.m_start) / 1e9, 1e-3);
+		long done = this.getDone();
+		long total = this.m_total;
+		double rate = done / seconds;
+		StringBuilder status = new StringBuilder(96);
+
+		status.append("Mined ").append(done);
+		if (total >= 0) {
+			status.append('/').append(total)
+				.append(String.format(Locale.ROOT, " (%.1f%%)", (total == 0) ? 100.0 : 100.0 * done / total));
+		}
+
+		status.append(String.format(Locale.ROOT, " commits, %.1f commits/s, %.1f MB/s",
+				rate, (this.bytes() - this.m_startBytes) / MEGABYTE / seconds));
+
+		if (total > done && rate > 0) {
+			status.append(", ETA ").append(duration((long) ((total - done) / rate)));
+		}
+
+		return status.toString();
+	}
+
+	private synchronized void print(Boolean last) {
+		String status = this.getStatus();
+
+		if (this.m_terminal) {
+			//Pad with spaces to hide the end of a longer earlier line.
+			StringBuilder line = new StringBuilder("\r").append(status);
+			for (int i = status.length(); i < this.m_lastLength; i++) {
+				line.append(' ');
+			}
+
+			this.m_lastLength = status.length();
+			this.m_out.print(line);
+
+			if (last) {
+				this.m_out.println();
+			}
+		} else {
+			this.m_out.println(status);
+		}
+
+		this.m_out.flush();
+	}
+
+	private long bytes() {
+		return this.m_statistics.getBytesWritten() + this.m_statistics.getSlocBytes();
+	}
+
+	private static String duration(long seconds) {
+		if (seconds >= 3600) {
+			return String.format(Locale.ROOT, "%dh%02dm", seconds / 3600, seconds % 3600 / 60);
+		} else if (seconds >= 60) {
+			return String.format(Locale.ROOT, "%dm%02ds", seconds / 60, seconds % 60);
+		}
+
+		return seconds + "s";
+	}
+}
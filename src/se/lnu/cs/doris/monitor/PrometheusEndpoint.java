@@ -0,0 +1,82 @@
+package se.lnu.cs.doris.monitor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves MiningStatistics at http://localhost:<port>/metrics in the
+ * Prometheus text format. Only bound to the loopback address.
+ *
+ * This file is a part of Doris
+ *
+ * Doris is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Doris is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doris.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ *
+ * @author Emil Carlsson
+ *
+ */
+public class PrometheusEndpoint implements AutoCloseable {
+
+	public static final String PATH = "/metrics";
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private final HttpServer m_server;
+
+	/**
+	 * Start serving the statistics.
+	 * @param port Port to listen on, 0 for any free port.
+	 * @param statistics Statistics to serve.
+	 * @throws IOException
+	 */
+	public PrometheusEndpoint(int port, final MiningStatistics statistics) throws IOException {
+		this.m_server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		this.m_server.createContext(PATH, new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				byte[] body = statistics.toPrometheus().getBytes(StandardCharsets.UTF_8);
+
+				exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+				exchange.sendResponseHeaders(200, body.length);
+
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(body);
+				}
+			}
+		});
+		this.m_server.start();
+	}
+
+	/**
+	 * Get the port the endpoint listens on.
+	 * @return int
+	 */
+	public int getPort() {
+		return this.m_server.getAddress().getPort();
+	}
+
+	/**
+	 * Stop serving. Requests being answered are given a second to finish.
+	 */
+	@Override
+	public void close() {
+		this.m_server.stop(1);
+	}
+}